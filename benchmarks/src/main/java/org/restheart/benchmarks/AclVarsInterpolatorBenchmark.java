@@ -0,0 +1,107 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import io.undertow.security.impl.SecurityContextImpl;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.configuration.ConfigurationException;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.security.AclPredicate;
+import org.restheart.security.AclVarsInterpolator;
+import org.restheart.security.MongoRealmAccount;
+
+/**
+ * Benchmarks the interpolation of the variables of the mongo permissions,
+ * i.e. the readFilter and the mergeRequest of the ACL, that is executed
+ * on each request authorized by the MongoAclAuthorizer, and the evaluation of
+ * a permission predicate with variables
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AclVarsInterpolatorBenchmark {
+    private static final BsonDocument ACCOUNT = BsonDocument.parse("""
+        { "_id": "bench", "roles": [ "user" ], "tenant": "softinstigate", "profile": { "groups": [ "a", "b" ] } }
+        """);
+
+    private static final BsonDocument READ_FILTER = BsonDocument.parse("""
+        { "$or": [ { "author": "@user._id" }, { "public": true } ], "tenant": "@user.tenant", "groups": { "$in": "@user.profile.groups" } }
+        """);
+
+    private static final BsonDocument MERGE_REQUEST = BsonDocument.parse("""
+        { "author": "@user._id", "tenant": "@user.tenant", "timestamp": "@now", "status": "draft" }
+        """);
+
+    private static final String PREDICATE = "path-prefix('/db') and equals(@user.tenant, 'softinstigate')";
+
+    private final AclPredicate compiledPredicate = new AclPredicate(PREDICATE, AclVarsInterpolatorBenchmark.class.getClassLoader());
+
+    private MongoRequest request;
+
+    @Setup
+    public void setup() {
+        var exchange = Fixtures.exchange("/db/coll");
+
+        var sc = new SecurityContextImpl(exchange, null);
+        sc.authenticationComplete(new MongoRealmAccount("bench", "secret".toCharArray(), Set.of("user"), ACCOUNT), "bench", false);
+        exchange.setSecurityContext(sc);
+
+        this.request = MongoRequest.init(exchange, "/", "*");
+    }
+
+    @Benchmark
+    public BsonValue readFilter() {
+        return AclVarsInterpolator.interpolateBson(request, READ_FILTER);
+    }
+
+    @Benchmark
+    public BsonValue mergeRequest() {
+        return AclVarsInterpolator.interpolateBson(request, MERGE_REQUEST);
+    }
+
+    @Benchmark
+    public boolean interpolatedPredicate() throws ConfigurationException {
+        return AclVarsInterpolator.interpolatePredicate(request, PREDICATE, AclVarsInterpolatorBenchmark.class.getClassLoader()).resolve(request.getExchange());
+    }
+
+    @Benchmark
+    public boolean compiledPredicate() {
+        return compiledPredicate.test(request);
+    }
+}
@@ -0,0 +1,154 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import org.restheart.Bootstrapper;
+import org.restheart.configuration.ConfigurationException;
+import org.restheart.exchange.JsonRequest;
+import org.restheart.exchange.JsonResponse;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.JsonInterceptor;
+import org.restheart.plugins.JsonService;
+import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.plugins.RegisterPlugin;
+import org.restheart.plugins.Service;
+
+/**
+ * The plugins used by the benchmarks: a service with one interceptor at each
+ * intercept point of the request pipeline, plus an interceptor that does not
+ * apply to it.
+ *
+ * They are registered by the plugins scanning of a RESTHeart instance started
+ * with the standalone configuration, that also registers the interceptors
+ * of restheart-core, as in a real deployment.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BenchmarkPlugins {
+    public static final String URI = "/bench";
+
+    /**
+     * configuration overrides for the standalone configuration: an ephemeral
+     * port and less logging, so that the log does not mix with the results
+     */
+    private static final String CONF_OVERRIDES = """
+        /http-listener/port->0;
+        /logging/log-level->"WARN";
+        /logging/ansi-console->false;
+        """;
+
+    private BenchmarkPlugins() {
+    }
+
+    @RegisterPlugin(name = "benchService", description = "replies with a json object", blocking = false)
+    public static class BenchService implements JsonService {
+        @Override
+        public void handle(JsonRequest req, JsonResponse res) {
+            var content = new JsonObject();
+            content.addProperty("message", "Hello World!");
+            content.addProperty("path", req.getPath());
+            res.setContent(content);
+        }
+    }
+
+    @RegisterPlugin(name = "benchBeforeAuth", description = "reads a request header", interceptPoint = InterceptPoint.REQUEST_BEFORE_AUTH)
+    public static class BeforeAuthInterceptor implements JsonInterceptor {
+        @Override
+        public void handle(JsonRequest req, JsonResponse res) {
+            req.getHeaders().getFirst("X-Bench");
+        }
+
+        @Override
+        public boolean resolve(JsonRequest req, JsonResponse res) {
+            return req.isGet();
+        }
+    }
+
+    @RegisterPlugin(name = "benchAfterAuth", description = "reads a query parameter", interceptPoint = InterceptPoint.REQUEST_AFTER_AUTH)
+    public static class AfterAuthInterceptor implements JsonInterceptor {
+        @Override
+        public void handle(JsonRequest req, JsonResponse res) {
+            req.getQueryParameters().get("bench");
+        }
+
+        @Override
+        public boolean resolve(JsonRequest req, JsonResponse res) {
+            return req.isGet();
+        }
+    }
+
+    @RegisterPlugin(name = "benchResponse", description = "adds a property to the response content", interceptPoint = InterceptPoint.RESPONSE)
+    public static class ResponseInterceptor implements JsonInterceptor {
+        @Override
+        public void handle(JsonRequest req, JsonResponse res) {
+            res.getContent().getAsJsonObject().addProperty("intercepted", true);
+        }
+
+        @Override
+        public boolean resolve(JsonRequest req, JsonResponse res) {
+            return res.getContent() != null && res.getContent().isJsonObject();
+        }
+    }
+
+    @RegisterPlugin(name = "benchOther", description = "a json interceptor that never applies", interceptPoint = InterceptPoint.RESPONSE)
+    public static class OtherInterceptor implements JsonInterceptor {
+        @Override
+        public void handle(JsonRequest req, JsonResponse res) {
+        }
+
+        @Override
+        public boolean resolve(JsonRequest req, JsonResponse res) {
+            return false;
+        }
+    }
+
+    /**
+     * starts RESTHeart, if not already started, and returns the record of the
+     * service
+     *
+     * @return the PluginRecord of BenchService
+     */
+    public static synchronized PluginRecord<Service<?, ?>> install() {
+        if (Bootstrapper.getConfiguration() == null) {
+            try {
+                var rho = Files.createTempFile("restheart-benchmarks", ".conf");
+                rho.toFile().deleteOnExit();
+                Files.writeString(rho, CONF_OVERRIDES);
+
+                Bootstrapper.main(new String[] { "--standalone", "-o", rho.toString() });
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("error starting RESTHeart", ioe);
+            } catch (ConfigurationException ce) {
+                throw new IllegalStateException("error starting RESTHeart", ce);
+            }
+        }
+
+        return PluginsRegistryImpl.getInstance().getServices().stream()
+            .filter(s -> s.getInstance() instanceof BenchService)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("the benchmark plugins were not found by the plugins scanning"));
+    }
+}
@@ -0,0 +1,112 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.json.JsonMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.bson.BsonValue;
+import org.restheart.utils.BsonUtils;
+
+/**
+ * Benchmarks of the BsonUtils methods used to parse the request content and
+ * to send the response content
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BsonUtilsBenchmark {
+    /**
+     * the number of documents, 1 is the content of a document request
+     * the others are pages of collection requests
+     */
+    @Param({ "1", "100" })
+    public int docs;
+
+    private String json;
+    private BsonValue bson;
+    private BsonValue escaped;
+    private BsonDocument document;
+
+    @Setup
+    public void setup() {
+        this.json = docs == 1 ? Fixtures.DOCUMENT : Fixtures.pageJson(docs);
+        this.bson = docs == 1 ? Fixtures.document() : Fixtures.page(docs);
+        this.escaped = BsonUtils.escapeKeys(this.bson, true);
+        this.document = Fixtures.document();
+    }
+
+    @Benchmark
+    public BsonValue parse() {
+        return BsonUtils.parse(json);
+    }
+
+    @Benchmark
+    public String toJsonRelaxed() {
+        return BsonUtils.toJson(bson, JsonMode.RELAXED);
+    }
+
+    @Benchmark
+    public String toJsonStrict() {
+        return BsonUtils.toJson(bson, JsonMode.EXTENDED);
+    }
+
+    @Benchmark
+    public BsonValue escapeKeys() {
+        return BsonUtils.escapeKeys(bson, true);
+    }
+
+    @Benchmark
+    public BsonValue unescapeKeys() {
+        return BsonUtils.unescapeKeys(escaped);
+    }
+
+    @Benchmark
+    public BsonDocument flatten() {
+        return BsonUtils.flatten(document, false);
+    }
+
+    @Benchmark
+    public BsonArray parseAndToJson() {
+        // the round trip of a bulk POST whose response echoes the content
+        var parsed = BsonUtils.parse(json);
+        var ret = parsed.isArray() ? parsed.asArray() : new BsonArray();
+        BsonUtils.toJson(parsed, JsonMode.RELAXED);
+        return ret;
+    }
+}
@@ -0,0 +1,124 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.ServerConnection;
+import io.undertow.util.Methods;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.xnio.OptionMap;
+
+/**
+ * Data shared by the benchmarks
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * the handlers only read the undertow options from the connection
+     */
+    private static final ServerConnection CONNECTION = mock(ServerConnection.class, withSettings().stubOnly());
+
+    static {
+        when(CONNECTION.getUndertowOptions()).thenReturn(OptionMap.EMPTY);
+    }
+
+    /**
+     * a document with nested documents and arrays, dots and dollars in keys,
+     * and the most common extended json types
+     */
+    public static final String DOCUMENT = """
+        {
+            "_id": { "$oid": "5d0b3e6a2b7e4b1f1c8e4a11" },
+            "_etag": { "$oid": "5d0b3e6a2b7e4b1f1c8e4a12" },
+            "name": "RESTHeart",
+            "rating": 4.8,
+            "downloads": { "$numberLong": "1234567890" },
+            "price": { "$numberDecimal": "19.90" },
+            "created": { "$date": 1561017450000 },
+            "active": true,
+            "tags": [ "mongodb", "rest", "graphql", "websocket" ],
+            "address": { "street": "Via del Corso", "number": 1, "city": "Rome", "geo": { "type": "Point", "coordinates": [ 12.48, 41.90 ] } },
+            "a.b": { "c.d": 1, "$e": [ { "f.g": "h" }, { "$i": "j" } ] },
+            "history": [
+                { "ts": { "$date": 1561017450000 }, "event": "created", "by": "admin", "details": { "ip": "10.0.0.1", "agent": "curl" } },
+                { "ts": { "$date": 1561017460000 }, "event": "updated", "by": "user", "details": { "ip": "10.0.0.2", "agent": "httpie" } },
+                { "ts": { "$date": 1561017470000 }, "event": "updated", "by": "user", "details": { "ip": "10.0.0.3", "agent": "browser" } }
+            ]
+        }
+        """;
+
+    /**
+     * @return the parsed DOCUMENT
+     */
+    public static BsonDocument document() {
+        return BsonDocument.parse(DOCUMENT);
+    }
+
+    /**
+     * @param size
+     * @return an array of size documents, like a page of GET /coll
+     */
+    public static BsonArray page(int size) {
+        var ret = new BsonArray();
+
+        for (var i = 0; i < size; i++) {
+            ret.add(document());
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param size
+     * @return the json of an array of size documents
+     */
+    public static String pageJson(int size) {
+        var sb = new StringBuilder("[");
+
+        for (var i = 0; i < size; i++) {
+            sb.append(i == 0 ? "" : ",").append(DOCUMENT);
+        }
+
+        return sb.append("]").toString();
+    }
+
+    /**
+     * @param path
+     * @return an exchange for a GET request of path, bound to a stub connection
+     */
+    public static HttpServerExchange exchange(String path) {
+        var exchange = new HttpServerExchange(CONNECTION);
+        exchange.setRequestMethod(Methods.GET);
+        exchange.setRequestPath(path);
+        exchange.setRelativePath(path);
+        exchange.setRequestURI(path);
+        return exchange;
+    }
+}
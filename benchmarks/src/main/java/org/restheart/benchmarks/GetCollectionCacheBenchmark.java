@@ -0,0 +1,119 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.mongodb.db.GetCollectionCache;
+import org.restheart.mongodb.db.GetCollectionCacheKey;
+import org.restheart.utils.Pair;
+
+/**
+ * Benchmarks the lookup of the GetCollectionCache for GET /db/coll?cache
+ * requests, with a given number of cached windows of the same query
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetCollectionCacheBenchmark {
+    private static final int WINDOW = 100;
+
+    private static final BsonDocument SORT = BsonDocument.parse("{ 'rating': -1 }");
+    private static final BsonDocument FILTER = BsonDocument.parse("{ 'tags': 'mongodb' }");
+
+    @Param({ "1", "10" })
+    public int windows;
+
+    private final GetCollectionCache cache = GetCollectionCache.getInstance();
+
+    private GetCollectionCacheKey hit;
+    private GetCollectionCacheKey miss;
+
+    // the entries expire after get-collection-cache-ttl, put them again at each iteration
+    @Setup(Level.Iteration)
+    public void setup() {
+        var coll = collection("bench", "coll" + windows);
+        var docs = List.of(Fixtures.document());
+
+        for (var w = 0; w < windows; w++) {
+            cache.put(key(coll, FILTER, w * WINDOW, (w + 1) * WINDOW, w + 1), docs);
+        }
+
+        // the last page of the last window
+        var from = windows * WINDOW - 10;
+        this.hit = key(coll, FILTER, from, from + 10, 0);
+        this.miss = key(coll, BsonDocument.parse("{ 'tags': 'rest' }"), from, from + 10, 0);
+    }
+
+    @Benchmark
+    public Pair<GetCollectionCacheKey, List<BsonDocument>> hit() {
+        return cache.find(hit);
+    }
+
+    @Benchmark
+    public Pair<GetCollectionCacheKey, List<BsonDocument>> miss() {
+        return cache.find(miss);
+    }
+
+    private static GetCollectionCacheKey key(MongoCollection<BsonDocument> coll, BsonDocument filter, int from, int to, long cursorId) {
+        return new GetCollectionCacheKey(Optional.empty(), coll, SORT, filter, null, null, from, to, cursorId, false);
+    }
+
+    /**
+     * the cache only needs the namespace of the collection
+     */
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<BsonDocument> collection(String db, String coll) {
+        var namespace = new MongoNamespace(db, coll);
+
+        return (MongoCollection<BsonDocument>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(),
+            new Class<?>[] { MongoCollection.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getNamespace" -> namespace;
+                case "hashCode" -> namespace.hashCode();
+                case "equals" -> proxy == args[0];
+                case "toString" -> namespace.toString();
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
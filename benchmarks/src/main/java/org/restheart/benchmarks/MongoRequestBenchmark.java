@@ -0,0 +1,74 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.exchange.MongoRequest;
+
+/**
+ * Benchmarks of the parsing of the filter and sort query parameters of
+ * GET /db/coll requests
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MongoRequestBenchmark {
+    private MongoRequest request;
+
+    @Setup
+    public void setup() {
+        this.request = MongoRequest.init(Fixtures.exchange("/db/coll"), "/", "*");
+
+        this.request.setFilter(new ArrayDeque<>(List.of(
+            "{ 'name': { '$regex': '^REST', '$options': 'i' }, 'rating': { '$gte': 4 } }",
+            "{ 'created': { '$gt': { '$date': 1561017450000 } }, 'tags': { '$in': [ 'mongodb', 'rest' ] } }")));
+
+        this.request.setSortBy(new ArrayDeque<>(List.of("-rating", "{ 'created': -1 }", "name")));
+    }
+
+    @Benchmark
+    public BsonDocument getFiltersDocument() {
+        return request.getFiltersDocument();
+    }
+
+    @Benchmark
+    public BsonDocument getSortByDocument() {
+        return request.getSortByDocument();
+    }
+}
@@ -0,0 +1,109 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import static org.restheart.plugins.InterceptPoint.REQUEST_AFTER_AUTH;
+import static org.restheart.plugins.InterceptPoint.REQUEST_BEFORE_AUTH;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.exchange.PipelineInfo;
+import org.restheart.exchange.PipelineInfo.PIPELINE_TYPE;
+import org.restheart.handlers.BeforeExchangeInitInterceptorsExecutor;
+import org.restheart.handlers.CORSHandler;
+import org.restheart.handlers.PipelinedHandler;
+import org.restheart.handlers.PipelinedWrappingHandler;
+import org.restheart.handlers.QueryStringRebuilder;
+import org.restheart.handlers.RequestInterceptorsExecutor;
+import org.restheart.handlers.ResponseInterceptorsExecutor;
+import org.restheart.handlers.ServiceExchangeInitializer;
+import org.restheart.handlers.injectors.PipelineInfoInjector;
+import org.restheart.handlers.injectors.XPoweredByInjector;
+import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.plugins.RegisterPlugin.MATCH_POLICY;
+import org.restheart.plugins.Service;
+
+/**
+ * Benchmarks the pipeline of handlers that PluginsRegistryImpl.plugService()
+ * builds for a service, driven by exchanges bound to a stub connection.
+ *
+ * The SecurityHandler, the ConfigurableEncodingHandler and the ResponseSender
+ * are left out, since they require the configuration and a real connection.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    private PipelinedHandler pipeline;
+
+    @Setup
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setup() {
+        // the plugins must be registered before creating the handlers
+        var srv = BenchmarkPlugins.install();
+
+        this.pipeline = PipelinedHandler.pipe(new PipelineInfoInjector(),
+            new BeforeExchangeInitInterceptorsExecutor(),
+            new ServiceExchangeInitializer(),
+            new CORSHandler(),
+            new XPoweredByInjector(),
+            new RequestInterceptorsExecutor(REQUEST_BEFORE_AUTH),
+            new QueryStringRebuilder(),
+            new RequestInterceptorsExecutor(REQUEST_AFTER_AUTH),
+            new QueryStringRebuilder(),
+            PipelinedWrappingHandler.wrap((Service) srv.getInstance()),
+            new ResponseInterceptorsExecutor());
+
+        PluginsRegistryImpl.getInstance().plugPipeline(BenchmarkPlugins.URI, pipeline,
+            new PipelineInfo(PIPELINE_TYPE.SERVICE, BenchmarkPlugins.URI, MATCH_POLICY.PREFIX, srv.getName(), srv));
+    }
+
+    /**
+     * the exchange is created by the benchmark, since the handlers attach the
+     * request and the response to it
+     */
+    @Benchmark
+    public HttpServerExchange get() throws Exception {
+        var exchange = Fixtures.exchange(BenchmarkPlugins.URI + "/foo");
+        exchange.getRequestHeaders().put(HttpString.tryFromString("X-Bench"), "true");
+        exchange.addQueryParam("bench", "true");
+
+        pipeline.handleRequest(exchange);
+
+        return exchange;
+    }
+}
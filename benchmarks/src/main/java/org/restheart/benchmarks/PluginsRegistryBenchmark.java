@@ -0,0 +1,71 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
+import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.plugins.Service;
+
+/**
+ * Benchmarks the lookup of the interceptors of a service, executed several
+ * times for each request
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PluginsRegistryBenchmark {
+    private final PluginsRegistryImpl registry = PluginsRegistryImpl.getInstance();
+
+    private Service<?, ?> service;
+
+    @Setup
+    public void setup() {
+        this.service = BenchmarkPlugins.install().getInstance();
+    }
+
+    @Benchmark
+    public List<Interceptor<?, ?>> getServiceInterceptors() {
+        return registry.getServiceInterceptors(service, InterceptPoint.RESPONSE);
+    }
+
+    @Benchmark
+    public List<Interceptor<?, ?>> getServiceInterceptorsRequiringContent() {
+        return registry.getServiceInterceptorsRequiringContent(service, InterceptPoint.REQUEST_AFTER_AUTH);
+    }
+}
@@ -0,0 +1,74 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.configuration;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.restheart.configuration.Utils.getOrDefault;
+import static org.restheart.configuration.Utils.asMap;
+
+/**
+ * the compression of the responses
+ *
+ * @param minSize the responses with a smaller Content-Length are not compressed
+ * @param mimeTypes only the responses whose Content-Type starts with one of them are compressed, all if empty
+ * text/event-stream is not compressed unless explicitly listed
+ * @param level the compression level of gzip and deflate, -1 for the default level
+ * @param brotli true to offer the br encoding
+ * @param brotliQuality the brotli quality, from 0 to 11
+ */
+public record Compression(int minSize,
+    List<String> mimeTypes,
+    int level,
+    boolean brotli,
+    int brotliQuality) {
+    public static final String COMPRESSION_KEY = "compression";
+    public static final String MIN_SIZE_KEY = "min-size";
+    public static final String MIME_TYPES_KEY = "mime-types";
+    public static final String LEVEL_KEY = "level";
+    public static final String BROTLI_KEY = "brotli";
+    public static final String BROTLI_QUALITY_KEY = "brotli-quality";
+
+    private static final List<String> DEFAULT_MIME_TYPES = List.of("application/json", "application/hal+json",
+        "application/graphql-response+json", "application/javascript", "application/xml", "text/", "image/svg+xml");
+
+    private static final Compression DEFAULT_COMPRESSION = new Compression(1024, DEFAULT_MIME_TYPES, -1, true, 4);
+
+    public Compression(Map<String, Object> conf, boolean silent) {
+        this(
+            // following are optional, so get them always in silent mode
+            getOrDefault(conf, MIN_SIZE_KEY, DEFAULT_COMPRESSION.minSize(), true),
+            getOrDefault(conf, MIME_TYPES_KEY, DEFAULT_COMPRESSION.mimeTypes(), true),
+            getOrDefault(conf, LEVEL_KEY, DEFAULT_COMPRESSION.level(), true),
+            getOrDefault(conf, BROTLI_KEY, DEFAULT_COMPRESSION.brotli(), true),
+            getOrDefault(conf, BROTLI_QUALITY_KEY, DEFAULT_COMPRESSION.brotliQuality(), true));
+    }
+
+    public static Compression build(Map<String, Object> conf, boolean silent) {
+        var compression = asMap(conf, COMPRESSION_KEY, null, true);
+
+        if (compression != null) {
+            return new Compression(compression, silent);
+        } else {
+            return DEFAULT_COMPRESSION;
+        }
+    }
+}
@@ -95,6 +95,7 @@ public class Configuration {
     private final List<StaticResource> staticResources;
     private final CoreModule coreModule;
     private final Logging logging;
+    private final Compression compression;
     private final Map<String, Object> connectionOptions;
 
     private Map<String, Object> conf;
@@ -139,6 +140,8 @@ public class Configuration {
 
         logging = Logging.build(conf, silent);
 
+        compression = Compression.build(conf, silent);
+
         connectionOptions = asMap(conf, CONNECTION_OPTIONS_KEY, null, silent);
     }
 
@@ -223,6 +226,10 @@ public class Configuration {
         return logging;
     }
 
+    public Compression compression() {
+        return compression;
+    }
+
     /**
      * @return the connectionOptions
      */
@@ -32,7 +32,9 @@ public record CoreModule(String name,
         int bufferSize,
         boolean directBuffers,
         boolean forceGzipEncoding,
-        boolean allowUnescapedCharsInUrl) {
+        boolean allowUnescapedCharsInUrl,
+        boolean virtualWorkerThreads,
+        boolean tracePinnedThreads) {
 
     public static final String CORE_KEY = "core";
     public static final String INSTANCE_NAME_KEY = "name";
@@ -45,8 +47,10 @@ public record CoreModule(String name,
     public static final String DIRECT_BUFFERS_KEY = "direct-buffers";
     public static final String FORCE_GZIP_ENCODING_KEY = "force-gzip-encoding";
     public static final String ALLOW_UNESCAPED_CHARS_IN_ULR_KEY = "allow-unescaped-characters-in-url";
+    public static final String TRACE_PINNED_THREADS_KEY = "trace-pinned-threads";
+    public static final String VIRTUAL_WORKER_THREADS = "virtual";
 
-    private static final CoreModule DEFAULT_CORE_MODULE = new CoreModule("default", "plugins", null, 0, -1, 1000, 16364, true, false, true);
+    private static final CoreModule DEFAULT_CORE_MODULE = new CoreModule("default", "plugins", null, 0, -1, 1000, 16364, true, false, true, false, false);
 
     public CoreModule(Map<String, Object> conf, boolean silent) {
         this(
@@ -55,7 +59,7 @@ public record CoreModule(String name,
                 // following is optional, so get it always in silent mode
                 getOrDefault(conf, BASE_URL_KEY, DEFAULT_CORE_MODULE.baseUrl(), true),
                 getOrDefault(conf, IO_THREADS_KEY, DEFAULT_CORE_MODULE.ioThreads(), silent),
-                getOrDefault(conf, WORKER_THREADS_KEY, DEFAULT_CORE_MODULE.workerThreads(), silent),
+                isVirtualWorkerThreads(conf) ? -1 : getOrDefault(conf, WORKER_THREADS_KEY, DEFAULT_CORE_MODULE.workerThreads(), silent),
                 getOrDefault(conf, REQUESTS_LIMIT_KEY, DEFAULT_CORE_MODULE.requestsLimit(), silent),
                 getOrDefault(conf, BUFFER_SIZE_KEY, DEFAULT_CORE_MODULE.bufferSize(), silent),
                 getOrDefault(conf, DIRECT_BUFFERS_KEY, DEFAULT_CORE_MODULE.directBuffers(), silent),
@@ -63,7 +67,19 @@ public record CoreModule(String name,
                 getOrDefault(conf, FORCE_GZIP_ENCODING_KEY, DEFAULT_CORE_MODULE.forceGzipEncoding(), true),
                 // following is optional, so get it always in silent mode
                 getOrDefault(conf, ALLOW_UNESCAPED_CHARS_IN_ULR_KEY, DEFAULT_CORE_MODULE.allowUnescapedCharsInUrl(),
-                        true));
+                        true),
+                isVirtualWorkerThreads(conf),
+                // following is optional, so get it always in silent mode
+                getOrDefault(conf, TRACE_PINNED_THREADS_KEY, DEFAULT_CORE_MODULE.tracePinnedThreads(), true));
+    }
+
+    /**
+     * worker-threads: virtual executes the blocking services on virtual threads
+     */
+    private static boolean isVirtualWorkerThreads(Map<String, Object> conf) {
+        return conf != null
+            && conf.get(WORKER_THREADS_KEY) instanceof String value
+            && VIRTUAL_WORKER_THREADS.equalsIgnoreCase(value.strip());
     }
 
     public static CoreModule build(Map<String, Object> conf, boolean silent) {
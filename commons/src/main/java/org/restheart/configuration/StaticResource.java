@@ -26,19 +26,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public record StaticResource(String what, String where, String welcomeFile, boolean embedded) {
+public record StaticResource(String what, String where, String welcomeFile, boolean embedded, boolean precompressed) {
     public static final String STATIC_RESOURCES_MOUNTS_KEY = "static-resources";
     public static final String STATIC_RESOURCES_MOUNT_WHAT_KEY = "what";
     public static final String STATIC_RESOURCES_MOUNT_WHERE_KEY = "where";
     public static final String STATIC_RESOURCES_MOUNT_WELCOME_FILE_KEY = "welcome-file";
     public static final String STATIC_RESOURCES_MOUNT_EMBEDDED_KEY = "embedded";
+    public static final String STATIC_RESOURCES_MOUNT_PRECOMPRESSED_KEY = "precompressed";
 
     public StaticResource(Map<String, Object> conf, boolean silent) {
         this(getOrDefault(conf, STATIC_RESOURCES_MOUNT_WHAT_KEY, null, silent),
             getOrDefault(conf, STATIC_RESOURCES_MOUNT_WHERE_KEY, null, silent),
             // following are optional paramenter, so get them always in silent mode
             getOrDefault(conf, STATIC_RESOURCES_MOUNT_WELCOME_FILE_KEY, "index.html", true),
-            getOrDefault(conf, STATIC_RESOURCES_MOUNT_EMBEDDED_KEY, false, true));
+            getOrDefault(conf, STATIC_RESOURCES_MOUNT_EMBEDDED_KEY, false, true),
+            getOrDefault(conf, STATIC_RESOURCES_MOUNT_PRECOMPRESSED_KEY, false, true));
     }
 
     public static List<StaticResource> build(Map<String, Object> conf, boolean silent) {
@@ -20,8 +20,14 @@
 package org.restheart.exchange;
 
 import io.undertow.server.HttpServerExchange;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import org.bson.BsonString;
 import org.bson.BsonValue;
+import org.bson.json.JsonMode;
 import static org.restheart.utils.BsonUtils.ArrayBuilder;
 import static org.restheart.utils.BsonUtils.DocumentBuilder;
 import static org.restheart.utils.BsonUtils.document;
@@ -55,6 +61,53 @@ public class BsonResponse extends ServiceResponse<BsonValue> {
         }
     }
 
+    /**
+     * Writes the content as json to the OutputStream. Differently from
+     * readContent(), the json is encoded chunk by chunk while it is written,
+     * without building the intermediate String. This method is used by
+     * ResponseSender when the exchange is in blocking mode.
+     *
+     * @param os the OutputStream to write the content to
+     * @return true if the content was written, false if there is no content to send
+     * @throws IOException
+     */
+    public boolean writeContent(OutputStream os) throws IOException {
+        return writeJson(content, null, os);
+    }
+
+    /**
+     * @param content the content to write
+     * @param mode the JsonMode, can be null
+     * @param os the OutputStream to write the content to
+     * @return true if the content was written, false if content is null
+     * @throws IOException
+     */
+    protected static boolean writeJson(BsonValue content, JsonMode mode, OutputStream os) throws IOException {
+        if (content == null) {
+            return false;
+        }
+
+        // flushing the writer only moves the encoded bytes to os; flushing the
+        // exchange OutputStream would commit the response, so that it would be
+        // sent chunked; closing it instead sets the Content-Length if the
+        // content fits its buffer
+        var writer = new OutputStreamWriter(new FilterOutputStream(os) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+        }, StandardCharsets.UTF_8);
+
+        toJson(content, mode, writer);
+        writer.flush();
+
+        return true;
+    }
+
     public void setContent(ArrayBuilder builder) {
         setContent(builder.get());
     }
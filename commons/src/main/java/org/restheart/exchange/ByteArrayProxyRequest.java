@@ -77,15 +77,17 @@ public class ByteArrayProxyRequest extends ProxyRequest<byte[]>{
         if (content == null) {
             setBuffer(null);
         } else {
-            PooledByteBuffer[] dest;
-            if (isContentAvailable()) {
-                dest = getBuffer();
-            } else {
-                dest = new PooledByteBuffer[MAX_BUFFERS];
+            var src = ByteBuffer.wrap(content);
+            var dest = isContentAvailable() ? getBuffer() : null;
+            var count = BuffersUtils.buffersCount(src.remaining(), wrapped);
+
+            if (dest == null || dest.length < count) {
+                // the buffers are sized to the content
+                dest = new PooledByteBuffer[count];
                 setBuffer(dest);
             }
 
-            int copied = BuffersUtils.transfer(ByteBuffer.wrap(content), dest, wrapped);
+            int copied = BuffersUtils.transfer(src, dest, wrapped);
 
             // updated request content length
             // this is not needed in Response.writeContent() since done
@@ -80,15 +80,17 @@ public class ByteArrayProxyResponse extends ProxyResponse<byte[]> {
         if (content == null) {
             setBuffer(null);
         } else {
-            PooledByteBuffer[] dest;
-            if (isContentAvailable()) {
-                dest = getBuffer();
-            } else {
-                dest = new PooledByteBuffer[MAX_BUFFERS];
+            var src = ByteBuffer.wrap(content);
+            var dest = isContentAvailable() ? getBuffer() : null;
+            var count = BuffersUtils.buffersCount(src.remaining(), wrapped);
+
+            if (dest == null || dest.length < count) {
+                // the buffers are sized to the content
+                dest = new PooledByteBuffer[count];
                 setBuffer(dest);
             }
 
-            BuffersUtils.transfer(ByteBuffer.wrap(content), dest, wrapped);
+            BuffersUtils.transfer(src, dest, wrapped);
         }
     }
 
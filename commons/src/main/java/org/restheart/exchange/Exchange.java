@@ -47,6 +47,11 @@ public abstract class Exchange<T> {
      */
     public static final String JSON_MEDIA_TYPE = "application/json";
 
+    /**
+     * Content type of newline delimited JSON
+     */
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
     /**
      *
      */
@@ -151,6 +151,11 @@ public interface ExchangeKeys {
      */
     public static final String READ_PREFERENCE_QPARAM_KEY = "readPreference";
 
+    /**
+     *
+     */
+    public static final String STREAM_QPARAM_KEY = "stream";
+
     // matadata
 
     /**
@@ -605,6 +610,22 @@ public interface ExchangeKeys {
         C
     }
 
+    /**
+     *
+     */
+    public enum STREAM_MODE {
+
+        /**
+         * newline delimited json, one document per line
+         */
+        NDJSON,
+
+        /**
+         * json array, sent with chunked transfer encoding
+         */
+        ARRAY
+    }
+
     /**
      *
      */
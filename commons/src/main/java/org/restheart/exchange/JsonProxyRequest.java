@@ -87,15 +87,17 @@ public class JsonProxyRequest extends ProxyRequest<JsonElement> {
             setBuffer(null);
             getHeaders().remove(Headers.CONTENT_LENGTH);
         } else {
-            PooledByteBuffer[] dest;
-            if (isContentAvailable()) {
-                dest = getBuffer();
-            } else {
-                dest = new PooledByteBuffer[MAX_BUFFERS];
+            var src = ByteBuffer.wrap(content.toString().getBytes());
+            var dest = isContentAvailable() ? getBuffer() : null;
+            var count = BuffersUtils.buffersCount(src.remaining(), wrapped);
+
+            if (dest == null || dest.length < count) {
+                // the buffers are sized to the content
+                dest = new PooledByteBuffer[count];
                 setBuffer(dest);
             }
 
-            int copied = BuffersUtils.transfer(ByteBuffer.wrap(content.toString().getBytes()), dest, wrapped);
+            int copied = BuffersUtils.transfer(src, dest, wrapped);
 
             // updated request content length
             // this is not needed in Response.writeContent() since done
@@ -87,15 +87,17 @@ public class JsonProxyResponse extends ProxyResponse<JsonElement> {
         if (content == null) {
             setBuffer(null);
         } else {
-            PooledByteBuffer[] dest;
-            if (isContentAvailable()) {
-                dest = getBuffer();
-            } else {
-                dest = new PooledByteBuffer[MAX_BUFFERS];
+            var src = ByteBuffer.wrap(content.toString().getBytes());
+            var dest = isContentAvailable() ? getBuffer() : null;
+            var count = BuffersUtils.buffersCount(src.remaining(), wrapped);
+
+            if (dest == null || dest.length < count) {
+                // the buffers are sized to the content
+                dest = new PooledByteBuffer[count];
                 setBuffer(dest);
             }
 
-            BuffersUtils.transfer(ByteBuffer.wrap(content.toString().getBytes()), dest, wrapped);
+            BuffersUtils.transfer(src, dest, wrapped);
         }
     }
 
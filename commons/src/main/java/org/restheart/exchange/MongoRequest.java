@@ -30,19 +30,16 @@ import java.util.Deque;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import org.bson.BsonArray;
 import org.bson.BsonDocument;
-import org.bson.BsonInt32;
-import org.bson.BsonInvalidOperationException;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonParseException;
 import static org.restheart.exchange.ExchangeKeys.*;
-import static org.restheart.utils.BsonUtils.document;
 import org.restheart.exchange.ExchangeKeys.DOC_ID_TYPE;
 import org.restheart.exchange.ExchangeKeys.HAL_MODE;
 import org.restheart.exchange.ExchangeKeys.REPRESENTATION_FORMAT;
+import org.restheart.exchange.ExchangeKeys.STREAM_MODE;
 import org.restheart.exchange.ExchangeKeys.TYPE;
 import org.restheart.mongodb.RSOps;
 import org.restheart.mongodb.db.sessions.ClientSessionImpl;
@@ -84,6 +81,10 @@ public class MongoRequest extends BsonRequest {
     private Deque<String> keys = null;
     private Deque<String> sortBy = null;
     private Deque<String> hint = null;
+    private final ParsedQueries.Memo filtersDocument = new ParsedQueries.Memo(ParsedQueries::filter);
+    private final ParsedQueries.Memo sortByDocument = new ParsedQueries.Memo(ParsedQueries::sort);
+    private final ParsedQueries.Memo hintDocument = new ParsedQueries.Memo(ParsedQueries::hint);
+    private final ParsedQueries.Memo projectionDocument = new ParsedQueries.Memo(ParsedQueries::keys);
     private DOC_ID_TYPE docIdType = DOC_ID_TYPE.STRING_OID;
     private final TYPE type;
 
@@ -121,6 +122,11 @@ public class MongoRequest extends BsonRequest {
      */
     private final JsonMode jsonMode;
 
+    /**
+     * the stream mode, e.g.: ?stream=ndjson
+     */
+    private STREAM_MODE streamMode;
+
     /**
      * noCache switch, e.g.: ?nocache=true
      */
@@ -186,6 +192,24 @@ public class MongoRequest extends BsonRequest {
 
         this.noCache = exchange.getQueryParameters().get(NO_CACHE_QPARAM_KEY) != null;
 
+        var _streamMode = exchange.getQueryParameters().containsKey(STREAM_QPARAM_KEY)
+            ? exchange.getQueryParameters().get(STREAM_QPARAM_KEY).getFirst().toUpperCase()
+            : null;
+
+        if (_streamMode != null) {
+            STREAM_MODE mode;
+
+            try {
+                mode = STREAM_MODE.valueOf(_streamMode);
+            } catch (IllegalArgumentException iae) {
+                mode = null;
+            }
+
+            this.streamMode = mode;
+        } else {
+            this.streamMode = null;
+        }
+
         // writeMode
         var _writeMode = exchange.getQueryParameters().containsKey(WRITE_MODE_QPARAM_KEY)
             ? exchange.getQueryParameters().get(WRITE_MODE_QPARAM_KEY).getFirst().toUpperCase()
@@ -793,112 +817,45 @@ public class MongoRequest extends BsonRequest {
     }
 
     /**
+     * The filter qparam values are parsed once per request and the returned
+     * document is immutable, use clone() to get a modifiable copy
      *
      * @return the $and composed filter qparam values
      */
     public BsonDocument getFiltersDocument() throws JsonParseException {
-        final var filterQuery = new BsonDocument();
-
-        if (filter != null) {
-            if (filter.size() > 1) {
-                var _filters = new BsonArray();
-
-                filter.stream().forEach(f -> _filters.add(BsonDocument.parse(f)));
-
-                filterQuery.put("$and", _filters);
-            } else if (filter.size() == 1) {
-                filterQuery.putAll(BsonDocument.parse(filter.getFirst()));  // this can throw JsonParseException for invalid filter parameters
-            } else {
-                return filterQuery;
-            }
-        }
-
-        return filterQuery;
+        // this can throw JsonParseException for invalid filter parameters
+        return filtersDocument.get(filter);
     }
 
     /**
+     * The sort_by qparam values are parsed once per request and the returned
+     * document is immutable, use clone() to get a modifiable copy
      *
      * @return @throws JsonParseException
      */
     public BsonDocument getSortByDocument() throws JsonParseException {
-        if (sortBy == null) {
-            return document().put("_id", -1).get();
-        } else {
-            var ret = document();
-
-            sortBy.stream().map(String::trim).forEach((s) -> {
-                // manage the case where sort_by is a json object
-                try {
-                    var _s = BsonDocument.parse(s);
-                    ret.putAll(_s.asDocument());
-                } catch (JsonParseException e) {
-                    // if we cannot parse it as a document,
-                    // assume it as a string property name
-                    // unless it starts with {
-                    if (s.startsWith("{")) {
-                        throw new JsonParseException("Invalid sort parameter", e);
-                    } else if (s.startsWith("-")) {
-                        ret.put(s.substring(1), -1);
-                    } else if (s.startsWith("+")) {
-                        ret.put(s.substring(1), 1);
-                    } else {
-                        ret.put(s, 1);
-                    }
-                } catch(BsonInvalidOperationException biop) {
-                    throw new JsonParseException("Invalid sort parameter", biop);
-                }
-            });
-
-            return ret.get();
-        }
+        return sortByDocument.get(sortBy);
     }
 
     /**
+     * The hint qparam values are parsed once per request and the returned
+     * document is immutable, use clone() to get a modifiable copy
      *
      * @return @throws JsonParseException
      */
     public BsonDocument getHintDocument() throws JsonParseException {
-        if (hint == null || hint.isEmpty()) {
-            return null;
-        } else {
-            var ret = new BsonDocument();
-            hint.stream().forEach(s -> {
-                var _s = s.trim(); // the + sign is decoded into a space, in case remove it
-
-                // manage the case where hint is a json object
-                try {
-                    var _hint = BsonDocument.parse(_s);
-
-                    ret.putAll(_hint);
-                } catch (JsonParseException e) {
-                    // ret is just a string, i.e. an index name
-                    if (_s.startsWith("-")) {
-                        ret.put(_s.substring(1), new BsonInt32(-1));
-                    } else if (_s.startsWith("+")) {
-                        ret.put(_s.substring(1), new BsonInt32(11));
-                    } else {
-                        ret.put(_s, new BsonInt32(1));
-                    }
-                }
-            });
-
-            return ret;
-        }
+        return hintDocument.get(hint);
     }
 
     /**
+     * The keys qparam values are parsed once per request and the returned
+     * document is immutable, use clone() to get a modifiable copy
      *
      * @return @throws JsonParseException
      */
     public BsonDocument getProjectionDocument() throws JsonParseException {
-        if (keys == null || keys.isEmpty()) {
-            return null;
-        } else {
-            final var projection = new BsonDocument();
-            // this can throw JsonParseException for invalid keys parameters
-            keys.stream().forEach(f -> projection.putAll(BsonDocument.parse(f)));
-            return projection;
-        }
+        // this can throw JsonParseException for invalid keys parameters
+        return projectionDocument.get(keys);
     }
 
     /**
@@ -1071,6 +1028,21 @@ public class MongoRequest extends BsonRequest {
         return jsonMode;
     }
 
+    /**
+     * @return the streamMode as specified by stream query paramter, null if
+     * the response content is not streamed
+     */
+    public STREAM_MODE getStreamMode() {
+        return streamMode;
+    }
+
+    /**
+     * @param streamMode the streamMode to set, null to disable streaming
+     */
+    public void setStreamMode(STREAM_MODE streamMode) {
+        this.streamMode = streamMode;
+    }
+
     /**
      * @return the filePath
      */
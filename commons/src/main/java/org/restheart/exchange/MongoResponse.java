@@ -32,6 +32,8 @@ import org.restheart.mongodb.db.OperationResult;
 import org.restheart.utils.BsonUtils;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
@@ -43,6 +45,7 @@ import org.bson.BsonDocument;
 import org.bson.BsonInt32;
 import org.bson.BsonString;
 import org.bson.BsonValue;
+import org.bson.json.JsonMode;
 
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
@@ -81,26 +84,40 @@ public class MongoResponse extends BsonResponse {
 
     @Override
     public String readContent() {
-        var request = Request.of(wrapped);
-        BsonValue tosend;
+        var tosend = contentToSend();
 
-        if (!request.isGet() && (content == null || content.isDocument())) {
-            tosend = addWarnings(content == null ? null : content.asDocument());
+        if (tosend != null) {
+            return BsonUtils.toJson(tosend, jsonMode());
         } else {
-            tosend = content;
+            return null;
         }
+    }
 
-        if (tosend != null) {
-            if (request instanceof MongoRequest) {
-                return BsonUtils.toJson(tosend, ((MongoRequest) request).getJsonMode());
-            } else {
-                return BsonUtils.toJson(tosend);
-            }
+    @Override
+    public boolean writeContent(OutputStream os) throws IOException {
+        return writeJson(contentToSend(), jsonMode(), os);
+    }
+
+    /**
+     * @return the content with the warnings, if any
+     */
+    private BsonValue contentToSend() {
+        var request = Request.of(wrapped);
+
+        if (!request.isGet() && (content == null || content.isDocument())) {
+            return addWarnings(content == null ? null : content.asDocument());
         } else {
-            return null;
+            return content;
         }
     }
 
+    /**
+     * @return the JsonMode specified by the MongoRequest, or null
+     */
+    private JsonMode jsonMode() {
+        return Request.of(wrapped) instanceof MongoRequest mrequest ? mrequest.getJsonMode() : null;
+    }
+
     private BsonDocument addWarnings(BsonDocument content) {
         if (content != null) {
             if (warnings != null && !warnings.isEmpty() && content.isDocument()) {
@@ -331,7 +348,7 @@ public class MongoResponse extends BsonResponse {
 
         } else {
             // document was created, delete it
-            var newId = getDbOperationResult().getNewData().get("_id");
+            var newId = getDbOperationResult().getNewId();
 
             coll.deleteOne(and(eq("_id", newId), eq("_etag", newEtag)));
 
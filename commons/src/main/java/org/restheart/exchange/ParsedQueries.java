@@ -0,0 +1,398 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.exchange;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonValue;
+import org.bson.json.JsonParseException;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.cache.LoadingCache;
+
+/**
+ * Parses the filter, sort, hint and keys query parameters of MongoRequest.
+ *
+ * The parsed values of the query parameters are kept in a process-wide
+ * bounded cache keyed by the raw string, since clients usually send the
+ * same few queries over and over. The cached documents are immutable, so
+ * that they can be shared by concurrent requests: modifying them throws
+ * UnsupportedOperationException, use clone() to get a modifiable copy.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+final class ParsedQueries {
+    private static final long CACHE_SIZE = 1_000;
+
+    static final BsonDocument EMPTY = new ImmutableDocument(new BsonDocument());
+    static final BsonDocument DEFAULT_SORT = new ImmutableDocument(new BsonDocument("_id", new BsonInt32(-1)));
+
+    private enum KIND { FILTER, SORT, HINT, KEYS }
+
+    private record Key(KIND kind, String raw) {
+    }
+
+    private static final LoadingCache<Key, BsonDocument> CACHE = CacheFactory.createLocalLoadingCache(CACHE_SIZE, Cache.EXPIRE_POLICY.NEVER, -1, ParsedQueries::parse);
+
+    private ParsedQueries() {
+    }
+
+    /**
+     * @param filter the filter query parameters
+     * @return the filter query parameters composed with $and
+     * @throws JsonParseException
+     */
+    static BsonDocument filter(Deque<String> filter) throws JsonParseException {
+        if (filter == null || filter.isEmpty()) {
+            return EMPTY;
+        } else if (filter.size() == 1) {
+            return get(KIND.FILTER, filter.getFirst());
+        } else {
+            var and = new BsonArray(filter.size());
+            filter.forEach(f -> and.add(get(KIND.FILTER, f)));
+            return new ImmutableDocument(new BsonDocument("$and", and));
+        }
+    }
+
+    /**
+     * @param sortBy the sort_by query parameters
+     * @return the sort document, {_id: -1} if sortBy is null
+     * @throws JsonParseException
+     */
+    static BsonDocument sort(Deque<String> sortBy) throws JsonParseException {
+        return sortBy == null ? DEFAULT_SORT : merge(KIND.SORT, sortBy, EMPTY);
+    }
+
+    /**
+     * @param hint the hint query parameters
+     * @return the hint document, null if hint is null or empty
+     * @throws JsonParseException
+     */
+    static BsonDocument hint(Deque<String> hint) throws JsonParseException {
+        return merge(KIND.HINT, hint, null);
+    }
+
+    /**
+     * @param keys the keys query parameters
+     * @return the projection document, null if keys is null or empty
+     * @throws JsonParseException
+     */
+    static BsonDocument keys(Deque<String> keys) throws JsonParseException {
+        return merge(KIND.KEYS, keys, null);
+    }
+
+    private static BsonDocument merge(KIND kind, Deque<String> values, BsonDocument ifEmpty) {
+        if (values == null || values.isEmpty()) {
+            return ifEmpty;
+        } else if (values.size() == 1) {
+            return get(kind, values.getFirst());
+        } else {
+            var ret = new BsonDocument();
+            values.forEach(v -> ret.putAll(get(kind, v)));
+            return new ImmutableDocument(ret);
+        }
+    }
+
+    private static BsonDocument get(KIND kind, String raw) {
+        // the loader exceptions are propagated and the value is not cached
+        return CACHE.getLoading(new Key(kind, raw)).get();
+    }
+
+    private static BsonDocument parse(Key key) {
+        return switch (key.kind()) {
+            case FILTER, KEYS -> new ImmutableDocument(BsonDocument.parse(key.raw()));
+            case SORT -> new ImmutableDocument(parseSort(key.raw().trim()));
+            case HINT -> new ImmutableDocument(parseHint(key.raw().trim()));
+        };
+    }
+
+    private static BsonDocument parseSort(String s) {
+        // manage the case where sort_by is a json object
+        try {
+            return BsonDocument.parse(s);
+        } catch (JsonParseException e) {
+            // if we cannot parse it as a document,
+            // assume it as a string property name
+            // unless it starts with {
+            if (s.startsWith("{")) {
+                throw new JsonParseException("Invalid sort parameter", e);
+            } else if (s.startsWith("-")) {
+                return new BsonDocument(s.substring(1), new BsonInt32(-1));
+            } else if (s.startsWith("+")) {
+                return new BsonDocument(s.substring(1), new BsonInt32(1));
+            } else {
+                return new BsonDocument(s, new BsonInt32(1));
+            }
+        } catch (BsonInvalidOperationException biop) {
+            throw new JsonParseException("Invalid sort parameter", biop);
+        }
+    }
+
+    private static BsonDocument parseHint(String s) {
+        // manage the case where hint is a json object
+        try {
+            return BsonDocument.parse(s);
+        } catch (JsonParseException e) {
+            // s is just a string, i.e. an index name
+            if (s.startsWith("-")) {
+                return new BsonDocument(s.substring(1), new BsonInt32(-1));
+            } else if (s.startsWith("+")) {
+                return new BsonDocument(s.substring(1), new BsonInt32(1));
+            } else {
+                return new BsonDocument(s, new BsonInt32(1));
+            }
+        }
+    }
+
+    /**
+     * Memoizes the document parsed from the values of a query parameter for
+     * the lifetime of a request. The values are compared at each access,
+     * since the query parameters can be modified, e.g. by interceptors.
+     */
+    static final class Memo {
+        private final Function<Deque<String>, BsonDocument> parser;
+        private String[] raw = null;
+        private BsonDocument value = null;
+        private boolean parsed = false;
+
+        Memo(Function<Deque<String>, BsonDocument> parser) {
+            this.parser = parser;
+        }
+
+        BsonDocument get(Deque<String> values) throws JsonParseException {
+            if (!parsed || !matches(values)) {
+                this.value = parser.apply(values);
+                this.raw = values == null ? null : values.toArray(String[]::new);
+                this.parsed = true;
+            }
+
+            return this.value;
+        }
+
+        private boolean matches(Deque<String> values) {
+            if (values == null || raw == null) {
+                return values == null && raw == null;
+            } else if (values.size() != raw.length) {
+                return false;
+            }
+
+            var i = 0;
+            for (var v : values) {
+                if (!v.equals(raw[i++])) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static BsonValue immutable(BsonValue value) {
+        if (value instanceof ImmutableDocument || value instanceof ImmutableArray) {
+            return value;
+        } else if (value.isDocument()) {
+            return new ImmutableDocument(value.asDocument());
+        } else if (value.isArray()) {
+            return new ImmutableArray(value.asArray());
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * A BsonDocument that cannot be modified, nested documents and arrays
+     * included
+     */
+    private static final class ImmutableDocument extends BsonDocument {
+        private static final long serialVersionUID = 1L;
+
+        private int hash = 0;
+
+        // Collections.unmodifiableSet(super.entrySet()) would allow Entry.setValue()
+        private final transient Map<String, BsonValue> view = Collections.unmodifiableMap(new AbstractMap<>() {
+            @Override
+            public Set<Map.Entry<String, BsonValue>> entrySet() {
+                return ImmutableDocument.super.entrySet();
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return ImmutableDocument.super.containsKey(key);
+            }
+
+            @Override
+            public BsonValue get(Object key) {
+                return ImmutableDocument.super.get(key);
+            }
+        });
+
+        ImmutableDocument(BsonDocument doc) {
+            super(doc.size());
+            doc.forEach((k, v) -> super.put(k, immutable(v)));
+        }
+
+        @Override
+        public BsonValue put(String key, BsonValue value) {
+            throw new UnsupportedOperationException("immutable document");
+        }
+
+        @Override
+        public BsonValue remove(Object key) {
+            throw new UnsupportedOperationException("immutable document");
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends BsonValue> m) {
+            throw new UnsupportedOperationException("immutable document");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("immutable document");
+        }
+
+        @Override
+        public BsonDocument append(String key, BsonValue value) {
+            throw new UnsupportedOperationException("immutable document");
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return view.keySet();
+        }
+
+        @Override
+        public Collection<BsonValue> values() {
+            return view.values();
+        }
+
+        @Override
+        public Set<Map.Entry<String, BsonValue>> entrySet() {
+            return view.entrySet();
+        }
+
+        /**
+         * the documents are used as keys, e.g. by GetCollectionCache
+         */
+        @Override
+        public int hashCode() {
+            var h = hash;
+
+            if (h == 0) {
+                h = super.hashCode();
+                hash = h;
+            }
+
+            return h;
+        }
+    }
+
+    /**
+     * A BsonArray that cannot be modified, nested documents and arrays
+     * included
+     */
+    private static final class ImmutableArray extends BsonArray {
+        ImmutableArray(BsonArray array) {
+            super(array.stream().map(ParsedQueries::immutable).toList());
+        }
+
+        @Override
+        public boolean add(BsonValue value) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public void add(int index, BsonValue element) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends BsonValue> c) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends BsonValue> c) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public BsonValue set(int index, BsonValue element) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public BsonValue remove(int index) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("immutable array");
+        }
+
+        @Override
+        public Iterator<BsonValue> iterator() {
+            return getValues().iterator();
+        }
+
+        @Override
+        public ListIterator<BsonValue> listIterator() {
+            return getValues().listIterator();
+        }
+
+        @Override
+        public ListIterator<BsonValue> listIterator(int index) {
+            return getValues().listIterator(index);
+        }
+
+        @Override
+        public List<BsonValue> subList(int fromIndex, int toIndex) {
+            return getValues().subList(fromIndex, toIndex);
+        }
+    }
+}
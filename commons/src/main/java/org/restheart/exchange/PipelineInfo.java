@@ -21,6 +21,8 @@ package org.restheart.exchange;
 
 import java.util.Objects;
 
+import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.Service;
 import org.restheart.plugins.RegisterPlugin.MATCH_POLICY;
 import org.restheart.utils.URLUtils;
 
@@ -41,8 +43,22 @@ public class PipelineInfo {
     private final String uri;
     private final MATCH_POLICY matchPolicy;
     private final String name;
+    private final PluginRecord<Service<?, ?>> service;
 
     public PipelineInfo(PIPELINE_TYPE type, String uri, MATCH_POLICY matchPolicy, String name) {
+        this(type, uri, matchPolicy, name, null);
+    }
+
+    /**
+     *
+     * @param type
+     * @param uri
+     * @param matchPolicy
+     * @param name
+     * @param service the record of the service handling the pipeline, avoids
+     * looking it up by name on each request
+     */
+    public PipelineInfo(PIPELINE_TYPE type, String uri, MATCH_POLICY matchPolicy, String name, PluginRecord<Service<?, ?>> service) {
         Objects.requireNonNull(type, "argument 'branch' cannot be null");
         Objects.requireNonNull(uri, "argument 'uri' cannot be null");
 
@@ -50,6 +66,7 @@ public class PipelineInfo {
         this.uri = URLUtils.removeTrailingSlashes(uri);
         this.matchPolicy = matchPolicy;
         this.name = name;
+        this.service = service;
     }
 
     public PipelineInfo(PIPELINE_TYPE type, String uri, String name) {
@@ -60,6 +77,7 @@ public class PipelineInfo {
         this.uri = URLUtils.removeTrailingSlashes(uri);
         this.matchPolicy = MATCH_POLICY.PREFIX;
         this.name = name;
+        this.service = null;
     }
 
     @Override
@@ -97,4 +115,12 @@ public class PipelineInfo {
     public String getName() {
         return name;
     }
+
+    /**
+     * @return the record of the service handling the pipeline, null if the
+     * pipeline is not of type SERVICE or the record was not given
+     */
+    public PluginRecord<Service<?, ?>> getService() {
+        return service;
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.restheart.mongodb.db;
 
+import java.util.function.Supplier;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 
@@ -29,7 +30,9 @@ import org.bson.BsonValue;
 public class OperationResult {
     private final int httpCode;
     private final Object etag;
-    private final BsonDocument newData;
+    private volatile BsonDocument newData;
+    // not null until the lazily read newData is read
+    private volatile Supplier<BsonDocument> newDataReader = null;
     private final BsonDocument oldData;
     private final BsonValue newId;
     private final Throwable cause;
@@ -139,6 +142,28 @@ public class OperationResult {
         this.cause = cause;
     }
 
+    /**
+     * newData is read with newDataReader only if and when getNewData() is
+     * invoked, to avoid reading the new version of the document when nobody
+     * uses it
+     *
+     * @param httpCode
+     * @param etag
+     * @param oldData
+     * @param newId
+     * @param newDataReader
+     * @param cause
+     */
+    public OperationResult(int httpCode, Object etag, BsonDocument oldData, BsonValue newId, Supplier<BsonDocument> newDataReader, Throwable cause) {
+        this.httpCode = httpCode;
+        this.etag = etag;
+        this.newData = null;
+        this.newDataReader = newDataReader;
+        this.oldData = oldData;
+        this.newId = newId;
+        this.cause = cause;
+    }
+
     /**
      * @return the httpCode
      */
@@ -157,6 +182,14 @@ public class OperationResult {
      * @return the newData
      */
     public BsonDocument getNewData() {
+        // concurrent invocations might read newData twice, that is harmless
+        var reader = this.newDataReader;
+
+        if (reader != null) {
+            this.newData = reader.get();
+            this.newDataReader = null;
+        }
+
         return newData;
     }
 
@@ -36,6 +36,7 @@ import org.restheart.plugins.security.Authenticator;
 import org.restheart.plugins.security.Authorizer;
 import org.restheart.plugins.security.TokenManager;
 import org.restheart.security.BaseAclPermissionTransformer;
+import org.restheart.utils.PluginUtils;
 
 /**
  *
@@ -117,6 +118,25 @@ public interface PluginsRegistry {
      */
     public List<Interceptor<?, ?>> getProxyInterceptors(InterceptPoint interceptPoint);
 
+    /**
+     * @return the interceptors of the service srv that require the content
+     * @param srv
+     * @param interceptPoint
+     *
+     */
+    public default List<Interceptor<?, ?>> getServiceInterceptorsRequiringContent(Service<?, ?> srv, InterceptPoint interceptPoint) {
+        return getServiceInterceptors(srv, interceptPoint).stream().filter(PluginUtils::requiresContent).toList();
+    }
+
+    /**
+     * @return the interceptors of the proxy that require the content
+     * @param interceptPoint
+     *
+     */
+    public default List<Interceptor<?, ?>> getProxyInterceptorsRequiringContent(InterceptPoint interceptPoint) {
+        return getProxyInterceptors(interceptPoint).stream().filter(PluginUtils::requiresContent).toList();
+    }
+
     /**
      * global security predicates must all resolve to true to allow the request
      *
@@ -0,0 +1,240 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.configuration.ConfigurationException;
+import org.restheart.exchange.Request;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.predicate.PredicateParser;
+
+/**
+ * The request predicate of an ACL permission, compiled once.
+ *
+ * The predicate text is split at construction time in literal segments and
+ * '@user.x' variable slots. A predicate without variables is parsed once
+ * and reused for all requests. Otherwise, on each request the slots are
+ * bound looking up the variables in the account document and the predicate
+ * is parsed only when the bound values are new; the parsed predicates are
+ * cached by bound values, so that requests from the same account, or from
+ * accounts with the same values, reuse it.
+ *
+ * Variables are interpolated as AclVarsInterpolator.interpolatePredicate()
+ * does: primitive values are quoted, arrays of primitive values become
+ * '{"a","b"}' and unbound variables are replaced by a random token that
+ * cannot match. Variables within quotes are not interpolated.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AclPredicate implements java.util.function.Predicate<Request<?>> {
+    private static final String PREFIX = "@user.";
+
+    private static final long CACHE_SIZE = 1_000;
+    private static final long CACHE_TTL = 10 * 60 * 1_000; // 10 minutes
+
+    private final String predicate;
+    private final ClassLoader classLoader;
+
+    // the predicate parsed without interpolation
+    private final Predicate raw;
+
+    // segments.length == slots.length + 1
+    private final String[] segments;
+    private final String[][] slots;
+
+    // the random tokens that replace the unbound slots
+    private final String[] unbound;
+
+    private final Cache<List<String>, Predicate> bound;
+
+    /**
+     *
+     * @param predicate the predicate, possibly containing '@user.x' variables
+     * @param classLoader the classloader to resolve the predicates, see java.util.ServiceLoader
+     * @throws ConfigurationException if the predicate is invalid
+     */
+    public AclPredicate(String predicate, ClassLoader classLoader) throws ConfigurationException {
+        this.predicate = predicate;
+        this.classLoader = classLoader;
+        this.raw = parse(predicate, classLoader);
+
+        var _segments = new ArrayList<String>();
+        var _slots = new ArrayList<String[]>();
+        compile(predicate, _segments, _slots);
+
+        this.segments = _segments.toArray(String[]::new);
+        this.slots = _slots.toArray(String[][]::new);
+        this.unbound = new String[this.slots.length];
+
+        for (int i = 0; i < this.unbound.length; i++) {
+            this.unbound[i] = AclVarsInterpolator.nextToken();
+        }
+
+        this.bound = this.slots.length > 0
+            ? CacheFactory.createLocalCache(CACHE_SIZE, Cache.EXPIRE_POLICY.AFTER_READ, CACHE_TTL)
+            : null;
+    }
+
+    @Override
+    public boolean test(Request<?> request) {
+        return resolve(request).resolve(request.getExchange());
+    }
+
+    /**
+     *
+     * @param request
+     * @return the predicate with the variables bound to the values of the account of the request
+     * @throws ConfigurationException if the interpolated predicate is invalid
+     */
+    Predicate resolve(Request<?> request) {
+        if (this.slots.length == 0) {
+            return this.raw;
+        }
+
+        var account = AclVarsInterpolator.getAccountDocument(request);
+
+        if (account == null || account.isEmpty()) {
+            return this.raw;
+        }
+
+        var values = new String[this.slots.length];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(account, this.slots[i]);
+        }
+
+        var key = Arrays.asList(values);
+        var cached = this.bound.get(key);
+
+        if (cached != null && cached.isPresent()) {
+            return cached.get();
+        }
+
+        var sb = new StringBuilder(this.segments[0]);
+
+        for (int i = 0; i < values.length; i++) {
+            sb.append(values[i] == null ? this.unbound[i] : values[i]).append(this.segments[i + 1]);
+        }
+
+        var ret = parse(sb.toString(), this.classLoader);
+        this.bound.put(key, ret);
+        return ret;
+    }
+
+    /**
+     *
+     * @return the predicate text
+     */
+    public String getPredicate() {
+        return this.predicate;
+    }
+
+    /**
+     * splits the predicate in literal segments and variable slots, skipping
+     * the string literals delimited by quotes
+     */
+    private static void compile(String predicate, List<String> segments, List<String[]> slots) {
+        var len = predicate.length();
+        var start = 0;
+        var idx = 0;
+        char quote = 0;
+
+        while (idx < len) {
+            var c = predicate.charAt(idx);
+
+            if (c == '\\') {
+                // escaped char
+                idx += 2;
+            } else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                idx++;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                idx++;
+            } else if (predicate.startsWith(PREFIX, idx)) {
+                // the variable goes on until , ) } ] | ^ or a whitespace
+                var end = idx + PREFIX.length();
+                while (end < len && ",)}]|^".indexOf(predicate.charAt(end)) < 0 && !Character.isWhitespace(predicate.charAt(end))) {
+                    end++;
+                }
+
+                var name = predicate.substring(idx + PREFIX.length(), end);
+
+                segments.add(predicate.substring(start, idx));
+                slots.add(name.isEmpty() ? new String[0] : name.split("\\."));
+
+                start = end;
+                idx = end;
+            } else {
+                idx++;
+            }
+        }
+
+        segments.add(predicate.substring(start));
+    }
+
+    /**
+     *
+     * @return the interpolated value of the property at path, or null if not bound
+     */
+    private static String value(BsonDocument account, String[] path) {
+        if (path.length == 0) {
+            return null;
+        }
+
+        BsonValue value = account;
+
+        for (var key : path) {
+            if (value == null || !value.isDocument()) {
+                return null;
+            }
+
+            value = value.asDocument().get(key);
+        }
+
+        if (value == null) {
+            return null;
+        } else if (AclVarsInterpolator.isJsonPrimitive(value)) {
+            return AclVarsInterpolator.quote(AclVarsInterpolator.jsonPrimitiveValue(value));
+        } else if (value.isArray()) {
+            return AclVarsInterpolator.jsonArrayValue(value.asArray());
+        } else {
+            return null;
+        }
+    }
+
+    private static Predicate parse(String predicate, ClassLoader classLoader) throws ConfigurationException {
+        try {
+            return PredicateParser.parse(predicate, classLoader);
+        } catch (Throwable t) {
+            throw new ConfigurationException("Wrong permission: invalid predicate " + predicate, t);
+        }
+    }
+}
@@ -137,7 +137,7 @@ public class AclVarsInterpolator {
             } else if (request.getAuthenticatedAccount() instanceof FileRealmAccount faccount) {
                 return toBson(faccount.getAccountProperties());
             } else if (request.getAuthenticatedAccount() instanceof JwtAccount jwtAccount) {
-                return BsonUtils.parse(jwtAccount.getJwtPayload());
+                return jwtAccount.getJwtPayloadAsBson();
             } else {
                 return BsonNull.VALUE;
             }
@@ -220,7 +220,7 @@ public class AclVarsInterpolator {
             } else if (request.getAuthenticatedAccount() instanceof FileRealmAccount faccount) {
                 return fromProperties(faccount.getAccountProperties(), value.substring(6));
             } else if (request.getAuthenticatedAccount() instanceof JwtAccount jwtAccount) {
-                var jwpPayload = BsonUtils.parse(jwtAccount.getJwtPayload());
+                var jwpPayload = jwtAccount.getJwtPayloadAsBson();
 
                 if (jwpPayload instanceof BsonDocument bsonPayload) {
                     var prop = value.substring(6);
@@ -260,6 +260,7 @@ public class AclVarsInterpolator {
      * @param request   the request
      * @param classLoader the classloader to resolve the predicates, see java.util.ServiceLoader
      * @return the interpolated predicate
+     * @see AclPredicate that compiles the predicate once and caches the interpolated ones
      */
     public static Predicate interpolatePredicate(Request<?> request, String predicate, ClassLoader classLoader) throws ConfigurationException {
         var a = getAccountDocument(request);
@@ -276,13 +277,13 @@ public class AclVarsInterpolator {
         }
     }
 
-    private static BsonDocument getAccountDocument(Request<?> request) {
+    static BsonDocument getAccountDocument(Request<?> request) {
         if (request.getAuthenticatedAccount() instanceof MongoRealmAccount maccount) {
             return maccount.getAccountDocument();
         } else if (request.getAuthenticatedAccount() instanceof FileRealmAccount faccount) {
             return toBson(faccount.getAccountProperties()).asDocument();
         } else if (request.getAuthenticatedAccount() instanceof JwtAccount jwtAccount) {
-            var payload = BsonUtils.parse(jwtAccount.getJwtPayload());
+            var payload = jwtAccount.getJwtPayloadAsBson();
 
             if (payload instanceof BsonDocument bsonPayload) {
                 return bsonPayload;
@@ -330,7 +331,7 @@ public class AclVarsInterpolator {
         return ret[0];
     }
 
-    private static boolean isJsonPrimitive(BsonValue value) {
+    static boolean isJsonPrimitive(BsonValue value) {
         return value.isNull() || value.isBoolean() || value.isNumber() || value.isString() || value.isObjectId()
                 || value.isTimestamp() || value.isDateTime();
     }
@@ -339,7 +340,7 @@ public class AclVarsInterpolator {
         return value.isArray();
     }
 
-    private static String jsonPrimitiveValue(BsonValue value) {
+    static String jsonPrimitiveValue(BsonValue value) {
         switch (value.getBsonType()) {
             case NULL:
                 return "null";
@@ -364,7 +365,7 @@ public class AclVarsInterpolator {
         }
     }
 
-    private static String jsonArrayValue(BsonArray array) {
+    static String jsonArrayValue(BsonArray array) {
         var sb = new StringBuilder();
         sb.append("{");
         sb.append(array.stream().filter(e -> isJsonPrimitive(e)).map(e -> quote(jsonPrimitiveValue(e))).collect(Collectors.joining(",")));
@@ -373,7 +374,7 @@ public class AclVarsInterpolator {
         return sb.toString();
     }
 
-    private static String quote(String s) {
+    static String quote(String s) {
         return "\"".concat(s).concat("\"");
     }
 
@@ -381,7 +382,7 @@ public class AclVarsInterpolator {
 
     private static final Random RND_GENERATOR = new Random();
 
-    private static String nextToken() {
+    static String nextToken() {
         return new BigInteger(256, RND_GENERATOR).toString(Character.MAX_RADIX);
     }
 
@@ -21,6 +21,8 @@ package org.restheart.security;
 
 import java.util.Set;
 
+import org.bson.BsonValue;
+import org.restheart.utils.BsonUtils;
 
 /**
  * Jwt Account
@@ -34,6 +36,9 @@ public class JwtAccount extends BaseAccount {
     private static final long serialVersionUID = -2405615782892727187L;
     final private String jwtPayload;
 
+    // the parsed jwtPayload, lazily computed
+    private transient BsonValue jwtPayloadBson = null;
+
     /**
      *
      * @param name
@@ -53,6 +58,20 @@ public class JwtAccount extends BaseAccount {
         return jwtPayload;
     }
 
+    /**
+     * The payload is parsed on first invocation and the parsed value is
+     * then reused; callers must not modify it
+     *
+     * @return the jwtPayload parsed as BsonValue
+     */
+    public BsonValue getJwtPayloadAsBson() {
+        if (jwtPayloadBson == null) {
+            jwtPayloadBson = BsonUtils.parse(jwtPayload);
+        }
+
+        return jwtPayloadBson;
+    }
+
     @Override
     public String toString() {
         return super.toString()
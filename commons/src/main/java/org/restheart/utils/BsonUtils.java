@@ -22,11 +22,15 @@ package org.restheart.utils;
 
 import com.google.common.collect.Sets;
 import com.mongodb.MongoClientSettings;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -52,18 +56,19 @@ import org.bson.BsonMinKey;
 import org.bson.BsonNull;
 import org.bson.BsonObjectId;
 import org.bson.BsonString;
+import org.bson.BsonType;
 import org.bson.BsonValue;
 import org.bson.Document;
-import org.bson.codecs.BsonArrayCodec;
-import org.bson.codecs.BsonValueCodecProvider;
+import org.bson.codecs.BsonValueCodec;
 import org.bson.codecs.DecoderContext;
 import org.bson.codecs.DocumentCodec;
-import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.json.Converter;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonParseException;
 import org.bson.json.JsonReader;
+import org.bson.json.JsonWriter;
 import org.bson.json.JsonWriterSettings;
 import org.bson.json.StrictJsonWriter;
 import org.bson.types.Decimal128;
@@ -79,10 +84,6 @@ public class BsonUtils {
 
     static final Logger LOGGER = LoggerFactory.getLogger(BsonUtils.class);
 
-    private static final BsonArrayCodec BSON_ARRAY_CODEC = new BsonArrayCodec(CodecRegistries.fromProviders(new BsonValueCodecProvider()));
-
-    private static final String ESCAPED_DOLLAR = "_$";
-    private static final String ESCAPED_DOT = "::";
     private static final String DOLLAR = "$";
 
     /**
@@ -99,56 +100,7 @@ public class BsonUtils {
      * with the corresponding keys
      */
     public static BsonValue unescapeKeys(BsonValue json) {
-        if (json == null) {
-            return null;
-        }
-
-        if (json.isDocument()) {
-            var ret = new BsonDocument();
-
-            json.asDocument().keySet().stream().forEach(k -> {
-                var newKey = k.startsWith(ESCAPED_DOLLAR) ? k.substring(1) : k;
-                newKey = newKey.replaceAll(ESCAPED_DOT, ".");
-
-                var value = json.asDocument().get(k);
-
-                if (value.isDocument()) {
-                    ret.put(newKey, unescapeKeys(value));
-                } else if (value.isArray()) {
-                    var newList = new BsonArray();
-
-                    value.asArray().stream().forEach(v -> newList.add(unescapeKeys(v)));
-
-                    ret.put(newKey, newList);
-                } else {
-                    ret.put(newKey, unescapeKeys(value));
-                }
-
-            });
-
-            return ret;
-        } else if (json.isArray()) {
-            var ret = new BsonArray();
-
-            json.asArray().stream().forEach(value -> {
-                if (value.isDocument()) {
-                    ret.add(unescapeKeys(value));
-                } else if (value.isArray()) {
-                    var newList = new BsonArray();
-                    value.asArray().stream().forEach(v -> newList.add(unescapeKeys(v)));
-                    ret.add(newList);
-                } else {
-                    ret.add(unescapeKeys(value));
-                }
-
-            });
-
-            return ret;
-        } else if (json.isString()) {
-            return json.asString().getValue().startsWith(ESCAPED_DOLLAR) ? new BsonString(json.asString().getValue().substring(1)) : json;
-        } else {
-            return json;
-        }
+        return KeysRewriter.unescape(json);
     }
 
     /**
@@ -183,60 +135,7 @@ public class BsonUtils {
      * with the corresponding keys
      */
     public static BsonValue escapeKeys(BsonValue json, boolean escapeDots, boolean dontEscapeDotsInRootKeys) {
-        if (json == null) {
-            return null;
-        }
-
-        if (json.isDocument()) {
-            var ret = new BsonDocument();
-
-            boolean root[] = { true };
-
-            json.asDocument().keySet().stream().forEach(k -> {
-                var newKey = k.startsWith(DOLLAR) ? "_" + k : k;
-
-                if (escapeDots && !(dontEscapeDotsInRootKeys && root[0])) {
-                    newKey = newKey.replaceAll("\\.", ESCAPED_DOT);
-                }
-
-                root[0] = false;
-
-                var value = json.asDocument().get(k);
-
-                if (value.isDocument()) {
-                    ret.put(newKey, escapeKeys(value, escapeDots, false));
-                } else if (value.isArray()) {
-                    var newList = new BsonArray();
-                    value.asArray().stream().forEach(v -> newList.add(escapeKeys(v, escapeDots, false)));
-                    ret.put(newKey, newList);
-                } else {
-                    ret.put(newKey, value);
-                }
-
-            });
-
-            return ret;
-        } else if (json.isArray()) {
-            var ret = array();
-
-            json.asArray().stream().forEach(value -> {
-                if (value.isDocument()) {
-                    ret.add(escapeKeys(value, escapeDots, dontEscapeDotsInRootKeys));
-                } else if (value.isArray()) {
-                    var newList = new BsonArray();
-                    value.asArray().stream().forEach(v -> newList.add(escapeKeys(v, escapeDots, false)));
-                    ret.add(newList);
-                } else {
-                    ret.add(value);
-                }
-            });
-
-            return ret.get();
-        } else if (json.isString()) {
-            return json.asString().getValue().startsWith(DOLLAR) ? new BsonString("_" + json.asString().getValue()) : json;
-        } else {
-            return json;
-        }
+        return KeysRewriter.escape(json, escapeDots, dontEscapeDotsInRootKeys);
     }
 
     /**
@@ -613,27 +512,42 @@ public class BsonUtils {
             return null;
         }
 
-        final var fnws = firstNonWhitespace(json);
+        return parse(new JsonReader(json));
+    }
 
-        return switch(fnws) {
-            case Character.MIN_VALUE -> null;
-            case '{' -> {
-                try {
-                    yield BsonDocument.parse(json);
-                } catch (BsonInvalidOperationException ex) {
-                    // this can happen parsing a bson type, e.g.
-                    // {"$oid": "xxxxxxxx" }
-                    // the string starts with { but is not a document
-                    yield getBsonValue(json);
-                }
+    /**
+     * Parses the json read from the Reader, without reading it in a String
+     *
+     * @param json
+     * @return either a BsonDocument, a BsonArray or a scalar value, null if
+     * the json is empty
+     * @throws JsonParseException
+     */
+    public static BsonValue parse(Reader json) throws JsonParseException {
+        if (json == null) {
+            return null;
+        }
+
+        return parse(new JsonReader(json));
+    }
+
+    private static BsonValue parse(JsonReader reader) throws JsonParseException {
+        try (reader) {
+            // the type of the top level value, e.g. OBJECT_ID for {"$oid": "xxxxxxxx" }
+            if (reader.readBsonType() == BsonType.END_OF_DOCUMENT) {
+                // no value, i.e. empty or only whitespaces
+                return null;
             }
-            case '[' -> {
-                try (var jr = new JsonReader(json)) {
-                    yield BSON_ARRAY_CODEC.decode(jr, DecoderContext.builder().build());
-                }
+
+            var ret = BSON_VALUE_CODEC.decode(reader, DECODER_CONTEXT);
+
+            // only whitespaces can follow the value
+            if (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                throw new JsonParseException("JSON reader was expecting the end of input but found more content after the value");
             }
-            default -> getBsonValue(json);
-        };
+
+            return ret;
+        }
     }
 
     /**
@@ -645,16 +559,15 @@ public class BsonUtils {
             return Character.MIN_VALUE;
         }
 
-        var f = s.chars()
-            .filter(c -> !Character.isWhitespace(c))
-            .mapToObj(c -> (char) c)
-            .findFirst();
+        for (var i = 0; i < s.length(); i++) {
+            var c = s.charAt(i);
 
-        return f.isPresent() ? f.get() : Character.MIN_VALUE;
-    }
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+        }
 
-    private static BsonValue getBsonValue(String json) {
-        return BsonDocument.parse("{'x':".concat(json).concat("}")).get("x");
+        return Character.MIN_VALUE;
     }
 
     /**
@@ -668,6 +581,10 @@ public class BsonUtils {
     }
 
     /**
+     * The json is written compact while the value gets encoded, so that no
+     * minify pass is needed; documents and arrays are written directly,
+     * without wrapping them
+     *
      * @param bson either a BsonDocument or a BsonArray
      * @param mode
      * @return the minified string representation of the bson value
@@ -679,45 +596,96 @@ public class BsonUtils {
             return null;
         }
 
-        var settings = mode != null
-            ? JsonWriterSettings.builder()
-                .outputMode(mode)
-                .indent(false)
-                .build()
-            : JsonWriterSettings.builder()
-                .indent(false)
-                .dateTimeConverter(new Converter<Long>() {
-                    @Override
-                    public void convert(Long t, StrictJsonWriter writer) {
-                        writer.writeRaw("{\"$date\": " + t + " }");
-                    }
-                }).build();
-
-        if (bson.isDocument()) {
-            return minify(bson.asDocument().toJson(settings));
-        } else if (bson.isArray()) {
-            var _array = bson.asArray();
-            var wrappedArray = new BsonDocument("wrapped", _array);
-            var json = wrappedArray.toJson(settings);
+        var sb = new StringBuilder();
+        var topLevel = write(bson, mode, sb);
 
-            json = json.substring(0, json.length() - 1); // removes closing }
-            json = json.replaceFirst("\\{", "");
-            json = json.replaceFirst("\"wrapped\"", "");
-            json = json.replaceFirst(":", "");
+        return topLevel ? sb.toString() : sb.substring(1, sb.length() - 1);
+    }
 
-            return minify(json);
+    /**
+     * Writes the json representation of the bson value to the Writer.
+     *
+     * The json is written while the value gets encoded, without building the
+     * intermediate String and without the minify pass; the output is the same
+     * returned by toJson(bson, mode)
+     *
+     * The Writer is not flushed, so that writing to the exchange OutputStream
+     * does not commit the response; flushing or closing it is up to the caller
+     *
+     * @param bson the bson value to write, can be a document, an array or a scalar
+     * @param mode the JsonMode, if null the default settings of toJson(bson) are used
+     * @param out the Writer to write the json to
+     * @throws IOException
+     */
+    public static void toJson(BsonValue bson, JsonMode mode, Writer out) throws IOException {
+        Objects.requireNonNull(bson);
+        Objects.requireNonNull(out);
+
+        if (bson.isDocument() || bson.isArray()) {
+            var cw = new CompactJsonWriter(out);
+            new TopLevelJsonWriter(cw, jsonWriterSettings(mode)).writeTopLevel(bson);
+            cw.drain();
         } else {
-            var doc = new BsonDocument("x", bson);
+            var sb = new StringBuilder();
+            write(bson, mode, sb);
+            out.append(sb, 1, sb.length() - 1);
+        }
+    }
+
+    /**
+     * the json writer does not allow scalars at top level, they are written
+     * as [scalar]
+     *
+     * @return false if the scalar was written as [scalar]
+     */
+    private static boolean write(BsonValue bson, JsonMode mode, StringBuilder sb) {
+        var topLevel = bson.isDocument() || bson.isArray();
 
-            String ret = doc.toJson(settings);
+        new TopLevelJsonWriter(new CompactJsonWriter(sb), jsonWriterSettings(mode))
+            .writeTopLevel(topLevel ? bson : new BsonArray(List.of(bson)));
 
-            ret = ret.replaceFirst("\\{", "");
-            ret = ret.replaceFirst("\"x\"", "");
-            ret = ret.replaceFirst(":", "");
-            int index = ret.lastIndexOf('}');
-            ret = ret.substring(0, index);
+        return topLevel;
+    }
+
+    private static final JsonWriterSettings DEFAULT_JSON_WRITER_SETTINGS = JsonWriterSettings.builder()
+        .indent(false)
+        .dateTimeConverter(new Converter<Long>() {
+            @Override
+            public void convert(Long t, StrictJsonWriter writer) {
+                writer.writeRaw("{\"$date\": " + t + " }");
+            }
+        }).build();
+
+    // JsonWriterSettings is immutable, build them once for each mode
+    private static final Map<JsonMode, JsonWriterSettings> JSON_WRITER_SETTINGS = Arrays.stream(JsonMode.values())
+        .collect(Collectors.toMap(mode -> mode,
+            mode -> JsonWriterSettings.builder().outputMode(mode).indent(false).build(),
+            (a, b) -> a,
+            () -> new EnumMap<>(JsonMode.class)));
+
+    private static JsonWriterSettings jsonWriterSettings(JsonMode mode) {
+        return mode != null ? JSON_WRITER_SETTINGS.get(mode) : DEFAULT_JSON_WRITER_SETTINGS;
+    }
+
+    private static final BsonValueCodec BSON_VALUE_CODEC = new BsonValueCodec();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    /**
+     * JsonWriter only accepts documents at top level; this allows writing
+     * arrays as well, without wrapping them in a document
+     */
+    private static class TopLevelJsonWriter extends JsonWriter {
+        TopLevelJsonWriter(Writer writer, JsonWriterSettings settings) {
+            super(writer, settings);
+        }
+
+        void writeTopLevel(BsonValue value) {
+            if (value.isArray()) {
+                setState(State.VALUE);
+            }
 
-            return minify(ret);
+            BSON_VALUE_CODEC.encode(this, value, ENCODER_CONTEXT);
         }
     }
 
@@ -737,7 +705,7 @@ public class BsonUtils {
         } else if (id.isObjectId()) {
             return id.asObjectId().getValue().toString();
         } else {
-            return minify(BsonUtils.toJson(id).replace("\"", "'"));
+            return BsonUtils.toJson(id).replace("\"", "'");
         }
     }
 
@@ -22,8 +22,12 @@ package org.restheart.utils;
 import io.undertow.connector.PooledByteBuffer;
 import io.undertow.server.HttpServerExchange;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+import static org.restheart.exchange.Exchange.MAX_BUFFERS;
 import static org.restheart.exchange.Exchange.MAX_CONTENT_SIZE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,48 +43,89 @@ public class BuffersUtils {
 
     /**
      * @param srcs
-     * @return
-     * @throws IOException
+     * @return a heap ByteBuffer with the content of the buffers, sized to it
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
      */
     public static ByteBuffer toByteBuffer(final PooledByteBuffer[] srcs) throws IOException {
+        var content = toByteArray(srcs);
+
+        return content == null ? null : ByteBuffer.wrap(content);
+    }
+
+    /**
+     * @param srcs
+     * @return the content of the buffers; the buffers are not consumed
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static byte[] toByteArray(final PooledByteBuffer[] srcs) throws IOException {
         if (srcs == null) {
             return null;
         }
 
-        ByteBuffer dst = ByteBuffer.allocate(MAX_CONTENT_SIZE);
+        var ret = new byte[size(srcs)];
+        var pos = 0;
 
-        for (int i = 0; i < srcs.length; i++) {
-            PooledByteBuffer src = srcs[i];
+        for (var src: srcs) {
             if (src != null) {
-                final ByteBuffer srcBuffer = src.getBuffer();
+                var srcBuffer = src.getBuffer().duplicate();
+                var len = srcBuffer.remaining();
+                srcBuffer.get(ret, pos, len);
+                pos += len;
+            }
+        }
 
-                if (srcBuffer.remaining() > dst.remaining()) {
-                    LOGGER.error("Request content exceeeded {} bytes limit",
-                            MAX_CONTENT_SIZE);
-                    throw new IOException("Request content exceeeded "
-                            + MAX_CONTENT_SIZE + " bytes limit");
-                }
+        return ret;
+    }
 
-                if (srcBuffer.hasRemaining()) {
-                    Buffers.copy(dst, srcBuffer);
+    /**
+     * @param srcs
+     * @return the number of bytes in the buffers
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    private static int size(final PooledByteBuffer[] srcs) throws IOException {
+        long size = 0;
 
-                    // very important, I lost a day for this!
-                    srcBuffer.flip();
-                }
+        for (var src: srcs) {
+            if (src != null) {
+                size += src.getBuffer().remaining();
             }
         }
 
-        return dst.flip();
+        if (size > MAX_CONTENT_SIZE) {
+            LOGGER.error("Request content exceeeded {} bytes limit", MAX_CONTENT_SIZE);
+            throw new IOException("Request content exceeeded " + MAX_CONTENT_SIZE + " bytes limit");
+        }
+
+        return (int) size;
     }
 
-    public static byte[] toByteArray(final PooledByteBuffer[] srcs) throws IOException {
-        ByteBuffer content = toByteBuffer(srcs);
+    /**
+     * @param size
+     * @param exchange
+     * @return the number of pooled buffers needed to store size bytes, at most MAX_BUFFERS
+     */
+    public static int buffersCount(long size, HttpServerExchange exchange) {
+        var bufferSize = exchange.getConnection().getByteBufferPool().getBufferSize();
 
-        byte[] ret = new byte[content.limit()];
+        return (int) Math.max(1, Math.min(MAX_BUFFERS, (size + bufferSize - 1) / bufferSize));
+    }
 
-        content.get(ret);
+    /**
+     * @param srcs
+     * @return a Reader of the UTF-8 chars of the buffers; the buffers are
+     * neither copied nor consumed
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static Reader reader(final PooledByteBuffer[] srcs) throws IOException {
+        if (srcs == null) {
+            return null;
+        }
 
-        return ret;
+        size(srcs);
+
+        var it = Arrays.stream(srcs).filter(Objects::nonNull).map(src -> src.getBuffer().duplicate()).iterator();
+
+        return new ByteBuffersReader(() -> it.hasNext() ? it.next() : null, null);
     }
 
     public static String toString(final PooledByteBuffer[] srcs, Charset cs) throws IOException {
@@ -0,0 +1,158 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Reader that decodes UTF-8 chars from a sequence of ByteBuffers, as they
+ * come, e.g., from the request channel or from the pooled buffers of the
+ * request content, without copying the bytes in an intermediate array.
+ *
+ * Unlike InputStreamReader, read() does not synchronize: the JsonReader
+ * reads one char at a time
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class ByteBuffersReader extends Reader {
+    private static final int CHARS_SIZE = 4096;
+
+    /**
+     * the sequence of ByteBuffers to decode
+     */
+    @FunctionalInterface
+    interface Source {
+        /**
+         * @return the next buffer, ready to be read, or null when there are no more bytes
+         * @throws IOException
+         */
+        ByteBuffer next() throws IOException;
+    }
+
+    private final Source source;
+    private final Runnable onClose;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final CharBuffer chars = CharBuffer.allocate(CHARS_SIZE).flip();
+
+    // the bytes of a char split between two buffers
+    private final ByteBuffer carry = ByteBuffer.allocate(8);
+
+    private ByteBuffer in = null;
+    private boolean eof = false;
+
+    /**
+     * @param source the sequence of buffers
+     * @param onClose invoked by close(), e.g. to release a pooled buffer
+     */
+    ByteBuffersReader(Source source, Runnable onClose) {
+        this.source = source;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        return chars.get();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        var n = Math.min(len, chars.remaining());
+        chars.get(cbuf, off, n);
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (onClose != null) {
+            onClose.run();
+        }
+    }
+
+    /**
+     * decodes the next chars, as many as the current buffer holds; the next
+     * buffer is requested only if no char has been decoded yet, since it can
+     * block waiting for the bytes
+     *
+     * @return false if there are no more chars
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+
+        while (!eof) {
+            if (in == null || !in.hasRemaining()) {
+                if (chars.position() > 0) {
+                    break;
+                }
+
+                in = source.next();
+
+                if (in == null) {
+                    eof = true;
+                    carry.flip();
+                    decoder.decode(carry, chars, true);
+                    decoder.flush(chars);
+                    break;
+                }
+            }
+
+            if (carry.position() > 0) {
+                // complete the split char with the first bytes of this buffer, then decode from it
+                while (carry.position() > 0 && in.hasRemaining()) {
+                    carry.put(in.get());
+                    carry.flip();
+                    decoder.decode(carry, chars, false);
+                    carry.compact();
+                }
+            } else if (decoder.decode(in, chars, false).isOverflow()) {
+                break;
+            } else if (in.hasRemaining()) {
+                // underflow, the last char continues in the next buffer
+                carry.put(in);
+            }
+        }
+
+        chars.flip();
+
+        return chars.hasRemaining();
+    }
+}
@@ -22,8 +22,11 @@ package org.restheart.utils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import org.bson.BsonValue;
+import org.bson.json.JsonParseException;
 import org.xnio.channels.Channels;
 
 import io.undertow.server.HttpServerExchange;
@@ -60,8 +63,8 @@ public class ChannelReader {
             return null;
         }
 
-        try (var os = new ByteArrayOutputStream(CAPACITY)) {
-            var pooledByteBuffer = exchange.getConnection().getByteBufferPool().getArrayBackedPool().allocate();
+        try (var os = new ByteArrayOutputStream(CAPACITY);
+            var pooledByteBuffer = exchange.getConnection().getByteBufferPool().getArrayBackedPool().allocate()) {
             var buffer = pooledByteBuffer.getBuffer();
 
             while (Channels.readBlocking(channel, buffer) != -1) {
@@ -73,4 +76,56 @@ public class ChannelReader {
             return os.toByteArray();
         }
     }
+
+    /**
+     * Parses the json content of the request as it is read from the channel:
+     * the bytes are decoded from a pooled buffer and never copied in a
+     * byte array or in a String
+     *
+     * @param exchange
+     * @return either a BsonDocument, a BsonArray or a scalar value, null if
+     * the content is empty
+     * @throws IOException
+     * @throws JsonParseException
+     */
+    public static BsonValue readBson(HttpServerExchange exchange) throws IOException, JsonParseException {
+        try (var reader = reader(exchange)) {
+            return BsonUtils.parse(reader);
+        } catch (JsonParseException jpe) {
+            // JsonReader wraps the IOException of the Reader
+            if (jpe.getCause() instanceof IOException ioe) {
+                throw ioe;
+            } else {
+                throw jpe;
+            }
+        }
+    }
+
+    /**
+     *
+     * @param exchange
+     * @return a Reader of the UTF-8 chars read from the request channel, null
+     * if the request channel is not available. The Reader must be closed to
+     * release the pooled buffer
+     */
+    public static Reader reader(HttpServerExchange exchange) {
+        var channel = exchange.getRequestChannel();
+
+        if (channel == null) {
+            return null;
+        }
+
+        var pooledByteBuffer = exchange.getConnection().getByteBufferPool().getArrayBackedPool().allocate();
+        var buffer = pooledByteBuffer.getBuffer();
+
+        return new ByteBuffersReader(() -> {
+            buffer.clear();
+
+            if (Channels.readBlocking(channel, buffer) == -1) {
+                return null;
+            }
+
+            return buffer.flip();
+        }, pooledByteBuffer::close);
+    }
 }
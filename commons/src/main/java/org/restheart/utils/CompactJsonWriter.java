@@ -0,0 +1,169 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A Writer that drops the insignificant whitespaces from the json text
+ * produced by org.bson.json.JsonWriter before passing it to the wrapped Writer.
+ *
+ * The output is the same that Minify produces from the complete json string,
+ * but it is computed on the fly, char by char, without any intermediate copy
+ * of the text. String and regular expression literals are copied verbatim and
+ * a single space is kept between two alphanumeric chars, as in
+ * {@code new Date(1)} written by JsonMode.SHELL
+ *
+ * When created with a StringBuilder, the chars are appended to it directly,
+ * without buffering
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class CompactJsonWriter extends Writer {
+    private static final int BUFFER_SIZE = 1024;
+
+    private final Writer out;
+    private final StringBuilder sb;
+    private final char[] buffer;
+    private int pos = 0;
+
+    // the quote char of the string literal being written, 0 if not in a string
+    private char quote = 0;
+    private boolean regex = false;
+    private boolean escaped = false;
+    private boolean pendingSpace = false;
+    private char last = 0;
+
+    CompactJsonWriter(Writer out) {
+        this.out = out;
+        this.sb = null;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    CompactJsonWriter(StringBuilder sb) {
+        this.out = null;
+        this.sb = sb;
+        this.buffer = null;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        put((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            put(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            put(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            drain();
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            drain();
+            out.close();
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (quote != 0 || regex) {
+            // string and regex literals are copied verbatim
+            emit(c);
+
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (regex && c == '/') {
+                regex = false;
+            } else if (!regex && c == quote) {
+                quote = 0;
+            }
+        } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            pendingSpace = true;
+            return;
+        } else {
+            if (pendingSpace && isAlphanum(last) && isAlphanum(c)) {
+                emit(' ');
+            }
+
+            pendingSpace = false;
+
+            if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '/' && (last == '(' || last == ',' || last == '=' || last == ':')) {
+                regex = true;
+            }
+
+            emit(c);
+        }
+
+        last = c;
+    }
+
+    private void emit(char c) throws IOException {
+        if (sb != null) {
+            sb.append(c);
+            return;
+        }
+
+        if (pos == buffer.length) {
+            drain();
+        }
+
+        buffer[pos++] = c;
+    }
+
+    /**
+     * writes the buffered chars to the underlying Writer, without flushing it
+     */
+    void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+
+    /**
+     * same definition used by Minify
+     */
+    private static boolean isAlphanum(char c) {
+        return ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z')
+                || c == '_' || c == '$' || c == '\\' || c > 126);
+    }
+}
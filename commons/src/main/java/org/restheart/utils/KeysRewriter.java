@@ -0,0 +1,235 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+/**
+ * Escapes and unescapes the keys of a json tree for BsonUtils.escapeKeys()
+ * and BsonUtils.unescapeKeys()
+ *
+ * The tree is walked with an explicit stack, so that deeply nested documents
+ * cannot overflow the thread stack, and it is copied on write: the documents
+ * and arrays with nothing to rewrite are returned as they are, only the
+ * containers along the path of a rewritten key or string are copied
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class KeysRewriter {
+    static final String ESCAPED_DOLLAR = "_$";
+    static final String ESCAPED_DOT = "::";
+    static final String DOLLAR = "$";
+    static final String DOT = ".";
+
+    private final boolean escape;
+    private final boolean escapeDots;
+    private final boolean dontEscapeDotsInRootKeys;
+
+    private KeysRewriter(boolean escape, boolean escapeDots, boolean dontEscapeDotsInRootKeys) {
+        this.escape = escape;
+        this.escapeDots = escapeDots;
+        this.dontEscapeDotsInRootKeys = dontEscapeDotsInRootKeys;
+    }
+
+    private static final KeysRewriter UNESCAPER = new KeysRewriter(false, false, false);
+
+    static BsonValue escape(BsonValue json, boolean escapeDots, boolean dontEscapeDotsInRootKeys) {
+        return new KeysRewriter(true, escapeDots, dontEscapeDotsInRootKeys).rewrite(json);
+    }
+
+    static BsonValue unescape(BsonValue json) {
+        return UNESCAPER.rewrite(json);
+    }
+
+    /**
+     * a document or an array being rewritten
+     */
+    private static class Frame {
+        final BsonValue source;
+        final Iterator<Map.Entry<String, BsonValue>> entries;
+        final Iterator<BsonValue> elements;
+
+        // for documents, its keys are root keys; for arrays, the keys of its documents are
+        final boolean root;
+
+        // the strings at the level of this container are rewritten, see rewrite()
+        final boolean strings;
+
+        // the number of children already rewritten
+        int count = 0;
+        String key = null;
+        BsonValue value = null;
+
+        // the copy of source, allocated when the first child changes
+        BsonValue copy = null;
+
+        Frame(BsonValue source, boolean root, boolean strings) {
+            this.source = source;
+            this.root = root;
+            this.strings = strings;
+
+            if (source.isDocument()) {
+                this.entries = source.asDocument().entrySet().iterator();
+                this.elements = null;
+            } else {
+                this.entries = null;
+                this.elements = source.asArray().iterator();
+            }
+        }
+
+        boolean isDocument() {
+            return entries != null;
+        }
+
+        boolean next() {
+            if (isDocument() && entries.hasNext()) {
+                var e = entries.next();
+                this.key = e.getKey();
+                this.value = e.getValue();
+                return true;
+            } else if (!isDocument() && elements.hasNext()) {
+                this.value = elements.next();
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        /**
+         * sets the rewritten current child, copying the source on first change
+         */
+        void set(String newKey, BsonValue newValue) {
+            if (copy == null && (newValue != value || (isDocument() && !newKey.equals(key)))) {
+                copy = copy(source, count);
+            }
+
+            if (copy != null) {
+                if (isDocument()) {
+                    copy.asDocument().put(newKey, newValue);
+                } else {
+                    copy.asArray().add(newValue);
+                }
+            }
+
+            count++;
+        }
+
+        BsonValue result() {
+            return copy == null ? source : copy;
+        }
+
+        /**
+         * @return a copy of the first n children of source
+         */
+        private static BsonValue copy(BsonValue source, int n) {
+            if (source.isDocument()) {
+                var ret = new BsonDocument();
+                var it = source.asDocument().entrySet().iterator();
+
+                for (var i = 0; i < n; i++) {
+                    var e = it.next();
+                    ret.put(e.getKey(), e.getValue());
+                }
+
+                return ret;
+            } else {
+                var ret = new BsonArray(source.asArray().size());
+                ret.addAll(source.asArray().subList(0, n));
+                return ret;
+            }
+        }
+    }
+
+    private BsonValue rewrite(BsonValue json) {
+        if (json == null) {
+            return null;
+        } else if (!json.isDocument() && !json.isArray()) {
+            return rewriteString(json, true);
+        }
+
+        var stack = new ArrayDeque<Frame>();
+        stack.push(new Frame(json, dontEscapeDotsInRootKeys, true));
+
+        while (true) {
+            var frame = stack.peek();
+
+            if (frame.next()) {
+                var child = frame.value;
+
+                // escapeKeys() only rewrites the strings in arrays, alternating the levels
+                // of nested arrays; unescapeKeys() rewrites all of them
+                var strings = !escape || (!frame.isDocument() && !frame.strings);
+
+                if (child.isDocument() || child.isArray()) {
+                    stack.push(new Frame(child, frame.root && !frame.isDocument() && child.isDocument(), strings));
+                } else {
+                    frame.set(rewriteKey(frame), rewriteString(child, strings));
+                }
+            } else {
+                stack.pop();
+
+                var parent = stack.peek();
+
+                if (parent == null) {
+                    return frame.result();
+                } else {
+                    parent.set(rewriteKey(parent), frame.result());
+                }
+            }
+        }
+    }
+
+    private String rewriteKey(Frame frame) {
+        if (!frame.isDocument()) {
+            return null;
+        }
+
+        var key = frame.key;
+
+        if (escape) {
+            var ret = key.startsWith(DOLLAR) ? "_".concat(key) : key;
+            return escapeDots && !frame.root ? ret.replace(DOT, ESCAPED_DOT) : ret;
+        } else {
+            var ret = key.startsWith(ESCAPED_DOLLAR) ? key.substring(1) : key;
+            return ret.replace(ESCAPED_DOT, DOT);
+        }
+    }
+
+    private BsonValue rewriteString(BsonValue value, boolean strings) {
+        if (!strings || !value.isString()) {
+            return value;
+        }
+
+        var s = value.asString().getValue();
+
+        if (escape) {
+            return s.startsWith(DOLLAR) ? new BsonString("_".concat(s)) : value;
+        } else {
+            return s.startsWith(ESCAPED_DOLLAR) ? new BsonString(s.substring(1)) : value;
+        }
+    }
+}
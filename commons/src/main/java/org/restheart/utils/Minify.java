@@ -109,7 +109,7 @@ public class Minify {
             return null;
         }
 
-        return bout.toString();
+        return bout.toString(StandardCharsets.UTF_8);
     }
 
     /**
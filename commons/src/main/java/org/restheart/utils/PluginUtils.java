@@ -290,6 +290,10 @@ public class PluginUtils {
         var pi = Request.getPipelineInfo(exchange);
 
         if (pi != null && pi.getType() == SERVICE) {
+            if (pi.getService() != null) {
+                return pi.getService();
+            }
+
             var srvName = pi.getName();
 
             if (srvName != null) {
@@ -0,0 +1,55 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.bson.BsonDocument;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonResponseTest {
+    @Test
+    public void testWriteJsonDoesNotFlushTheStream() throws Exception {
+        var flushes = new int[] { 0 };
+
+        var os = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        assertTrue(BsonResponse.writeJson(BsonDocument.parse("{ 'a': 'àè' }"), null, os));
+        assertFalse(BsonResponse.writeJson(null, null, os));
+
+        assertEquals("{\"a\":\"àè\"}", os.toString(StandardCharsets.UTF_8));
+        // flushing the exchange OutputStream would commit the response
+        assertEquals(0, flushes[0]);
+    }
+}
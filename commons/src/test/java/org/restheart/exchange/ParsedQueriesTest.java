@@ -0,0 +1,109 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+
+package org.restheart.exchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.json.JsonParseException;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ParsedQueriesTest {
+    @Test
+    public void testFilter() {
+        assertEquals(new BsonDocument(), ParsedQueries.filter(null));
+
+        var one = ParsedQueries.filter(new ArrayDeque<>(List.of("{'a':1}")));
+        assertEquals(BsonDocument.parse("{'a':1}"), one);
+
+        // the same raw string gives the cached document
+        assertSame(one, ParsedQueries.filter(new ArrayDeque<>(List.of("{'a':1}"))));
+
+        assertEquals(BsonDocument.parse("{'$and':[{'a':1},{'b':{'$gt':2}}]}"), ParsedQueries.filter(new ArrayDeque<>(List.of("{'a':1}", "{'b':{'$gt':2}}"))));
+
+        assertThrows(JsonParseException.class, () -> ParsedQueries.filter(new ArrayDeque<>(List.of("{'a':"))));
+    }
+
+    @Test
+    public void testSortAndHint() {
+        assertEquals(BsonDocument.parse("{'_id':-1}"), ParsedQueries.sort(null));
+        assertEquals(BsonDocument.parse("{'a':-1,'b':1,'c':1,'d':-1}"), ParsedQueries.sort(new ArrayDeque<>(List.of("-a", "+b", " c ", "{'d':-1}"))));
+        assertThrows(JsonParseException.class, () -> ParsedQueries.sort(new ArrayDeque<>(List.of("{'a'"))));
+
+        assertNull(ParsedQueries.hint(new ArrayDeque<>()));
+        assertEquals(BsonDocument.parse("{'a':-1,'b':1}"), ParsedQueries.hint(new ArrayDeque<>(List.of("-a", "+b"))));
+    }
+
+    @Test
+    public void testImmutable() {
+        var doc = ParsedQueries.keys(new ArrayDeque<>(List.of("{'a':{'b':[{'c':1}]}}")));
+
+        assertThrows(UnsupportedOperationException.class, () -> doc.put("x", new BsonInt32(1)));
+        assertThrows(UnsupportedOperationException.class, () -> doc.getDocument("a").remove("b"));
+        assertThrows(UnsupportedOperationException.class, () -> doc.getDocument("a").getArray("b").add(new BsonInt32(1)));
+        assertThrows(UnsupportedOperationException.class, () -> doc.getDocument("a").getArray("b").get(0).asDocument().clear());
+        assertThrows(UnsupportedOperationException.class, () -> doc.entrySet().iterator().next().setValue(new BsonInt32(1)));
+
+        // clone() gives a modifiable copy
+        var copy = doc.clone();
+        copy.getDocument("a").getArray("b").add(new BsonInt32(1));
+        assertEquals(2, copy.getDocument("a").getArray("b").size());
+        assertEquals(1, doc.getDocument("a").getArray("b").size());
+    }
+
+    @Test
+    public void testMemo() {
+        var memo = new ParsedQueries.Memo(ParsedQueries::filter);
+        var filter = new ArrayDeque<>(List.of("{'a':1}"));
+
+        var first = memo.get(filter);
+        assertSame(first, memo.get(filter));
+
+        // the query parameter is modified, e.g. by an interceptor
+        filter.add("{'b':1}");
+        assertEquals(BsonDocument.parse("{'$and':[{'a':1},{'b':1}]}"), memo.get(filter));
+
+        assertEquals(new BsonDocument(), memo.get(null));
+    }
+
+    @Test
+    public void testMemoIsShared() {
+        var filter = new ArrayDeque<>(List.of("{'a':{'b':1}}"));
+
+        // the requests with the same query share the immutable document
+        var doc = new ParsedQueries.Memo(ParsedQueries::filter).get(filter);
+        assertSame(doc, new ParsedQueries.Memo(ParsedQueries::filter).get(filter));
+        assertThrows(UnsupportedOperationException.class, () -> doc.put("x", new BsonInt32(1)));
+
+        var sort = new ParsedQueries.Memo(ParsedQueries::sort).get(null);
+        assertThrows(UnsupportedOperationException.class, () -> sort.put("x", new BsonInt32(1)));
+    }
+}
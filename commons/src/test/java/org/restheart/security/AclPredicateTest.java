@@ -0,0 +1,129 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.junit.Test;
+import org.restheart.exchange.Request;
+
+import io.undertow.security.idm.Account;
+import io.undertow.server.HttpServerExchange;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AclPredicateTest {
+    private static final ClassLoader CL = AclPredicateTest.class.getClassLoader();
+
+    @Test
+    public void testInterpolation() {
+        var p = new AclPredicate("path-template('/{tenant}/coll') and equals(@user.tenant, ${tenant})", CL);
+
+        assertTrue(p.test(request("/softinstigate/coll", mongoAccount("{ 'tenant': 'softinstigate' }"))));
+        assertFalse(p.test(request("/foo/coll", mongoAccount("{ 'tenant': 'softinstigate' }"))));
+        assertTrue(p.test(request("/foo/coll", jwtAccount("{ \"tenant\": \"foo\" }"))));
+    }
+
+    @Test
+    public void testNestedAndArrays() {
+        var p = new AclPredicate("path-template('/{tenant}/*') and contains(value=${tenant}, search=@user.profile.tenants ) and equals(@user.profile.level, 1)", CL);
+        var account = mongoAccount("{ 'profile': { 'tenants': [ 'a', 'b' ], 'level': 1 } }");
+
+        assertTrue(p.test(request("/a/coll", account)));
+        assertTrue(p.test(request("/b/coll", account)));
+        assertFalse(p.test(request("/c/coll", account)));
+    }
+
+    @Test
+    public void testArrayLiteral() {
+        var p = new AclPredicate("contains(value=%R, search={@user.a, @user.b})", CL);
+        var account = mongoAccount("{ 'a': 'x', 'b': 'y' }");
+
+        assertTrue(p.test(request("x", account)));
+        assertTrue(p.test(request("y", account)));
+        assertFalse(p.test(request("z", account)));
+
+        var noSpaces = new AclPredicate("contains(value=%R, search={@user.a,@user.b})", CL);
+
+        assertTrue(noSpaces.test(request("y", account)));
+        assertFalse(noSpaces.test(request("z", account)));
+    }
+
+    @Test
+    public void testUnboundVariables() {
+        var p = new AclPredicate("equals(@user.a, @user.b)", CL);
+
+        assertFalse(p.test(request("/coll", mongoAccount("{ 'c': 1 }"))));
+        assertTrue(p.test(request("/coll", mongoAccount("{ 'a': 1, 'b': 1 }"))));
+        // a variable is not interpolated with the value of a prefix of its name
+        assertFalse(p.test(request("/coll", mongoAccount("{ 'a': 1, 'bb': 1 }"))));
+    }
+
+    @Test
+    public void testQuotedVariablesAreNotInterpolated() {
+        var p = new AclPredicate("equals('@user.a', %R)", CL);
+        var req = request("/@user.a", mongoAccount("{ 'a': 'x' }"));
+        req.getExchange().setRelativePath("@user.a");
+
+        assertTrue(p.test(req));
+    }
+
+    @Test
+    public void testCache() {
+        var p = new AclPredicate("equals(@user.tenant, 'x')", CL);
+
+        var first = p.resolve(request("/coll", mongoAccount("{ 'tenant': 'x', 'n': 1 }")));
+        var second = p.resolve(request("/coll", mongoAccount("{ 'tenant': 'x', 'n': 2 }")));
+
+        assertSame(first, second);
+
+        var noVars = new AclPredicate("method(GET)", CL);
+
+        assertSame(noVars.resolve(request("/coll", mongoAccount("{ 'n': 1 }"))), noVars.resolve(request("/coll", null)));
+    }
+
+    private static Request<?> request(String path, Account account) {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath(path);
+        exchange.setRelativePath(path);
+
+        var ret = mock(Request.class);
+        when(ret.getExchange()).thenReturn(exchange);
+        when(ret.getAuthenticatedAccount()).thenReturn(account);
+        return ret;
+    }
+
+    private static Account mongoAccount(String doc) {
+        return new MongoRealmAccount("user", "secret".toCharArray(), Set.of("user"), BsonDocument.parse(doc));
+    }
+
+    private static Account jwtAccount(String payload) {
+        return new JwtAccount("user", Set.of("user"), payload);
+    }
+}
@@ -20,6 +20,7 @@
 
 package org.restheart.utils;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.bson.BsonInt32;
 import org.bson.BsonNull;
 import org.bson.BsonString;
 import org.bson.BsonValue;
+import org.bson.json.JsonMode;
 import org.bson.types.ObjectId;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -49,6 +51,7 @@ import org.slf4j.LoggerFactory;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.restheart.utils.BsonUtils.array;
 import static org.restheart.utils.BsonUtils.document;
 
@@ -159,7 +162,7 @@ public class BsonUtilsTest {
         Assert.assertTrue(checkGetPropsFromPath(json1, "$.a.c", "{d:{\"$oid\": \"550c6e62c2e62b5640673e93\"}, e:3}"));
         Assert.assertTrue(checkGetPropsFromPath(json1, "$.*.*", "1", "{d:{\"$oid\": \"550c6e62c2e62b5640673e93\"}, e:3}", null));
 
-        Assert.assertTrue(checkGetPropsFromPath(json1, "$.a", "{b:1, c: {d:{\"$oid\": \"550c6e62c2e62b5640673e93\"},e:3}}, f: null}"));
+        Assert.assertTrue(checkGetPropsFromPath(json1, "$.a", "{b:1, c: {d:{\"$oid\": \"550c6e62c2e62b5640673e93\"},e:3}}"));
         Assert.assertTrue(checkType(json1, "$.a", "object"));
 
         Assert.assertTrue(checkGetPropsFromPath(json1, "$.a.b", "1"));
@@ -1002,4 +1005,129 @@ public class BsonUtilsTest {
         assertFalse(BsonUtils.get(doc, "array[100].idx").isPresent());
         assertFalse(BsonUtils.get(doc, "not.exists").isPresent());
     }
+
+    @Test
+    public void testToJsonWriter() throws Exception {
+        var doc = BsonUtils.parse("""
+        {
+            "_id": { "$oid": "550c6e62c2e62b5640673e93" },
+            "int": 1,
+            "long": { "$numberLong": "12345678901" },
+            "double": 1.5,
+            "decimal": { "$numberDecimal": "1.01" },
+            "date": { "$date": 1565097600000 },
+            "timestamp": { "$timestamp": { "t": 1, "i": 2 } },
+            "binary": { "$binary": { "base64": "AQID", "subType": "00" } },
+            "regex": { "$regex": "a b/c", "$options": "i" },
+            "null": null,
+            "boolean": true,
+            "minKey": { "$minKey": 1 },
+            "maxKey": { "$maxKey": 1 },
+            "string": "a string with   spaces, \\\"quotes\\\", : and { } [ ]",
+            "unicode": "àèìòù 日本",
+            "doc": { "a": [ 1, -2, { "b": "c" } ], "d": { } },
+            "array": [ [ ], [ 1, 2 ], "x" ]
+        }
+        """).asDocument();
+
+        var values = new ArrayList<BsonValue>();
+        values.add(doc);
+        values.add(new BsonArray(List.of(doc, doc)));
+        values.add(new BsonArray());
+        values.add(new BsonDocument());
+        values.addAll(doc.values());
+
+        var modes = new ArrayList<JsonMode>(Arrays.asList(JsonMode.values()));
+        modes.add(null);
+
+        for (var mode: modes) {
+            for (var value: values) {
+                var sw = new StringWriter();
+                BsonUtils.toJson(value, mode, sw);
+
+                assertEquals("json mode " + mode, BsonUtils.toJson(value, mode), sw.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testToJsonWriterIsNotFlushed() throws Exception {
+        var flushes = new int[] { 0 };
+
+        var sw = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        BsonUtils.toJson(BsonUtils.parse("{'a': [1, 2, {'b': 'c'}]}"), null, sw);
+        BsonUtils.toJson(new BsonString("x"), null, sw);
+
+        assertEquals("{\"a\":[1,2,{\"b\":\"c\"}]}\"x\"", sw.toString());
+        assertEquals(0, flushes[0]);
+    }
+
+    @Test
+    public void testToJsonCompact() {
+        var doc = BsonUtils.parse("{'_id':{'$oid':'550c6e62c2e62b5640673e93'},'long':{'$numberLong':'12345678901'},'double':1.5,'date':{'$date':1565097600000},'regex':{'$regex':'a b/c','$options':'i'},'s':'a  b, \\\"q\\\" : { }','arr':[[],[1,2],{'x':null}]}").asDocument();
+
+        assertEquals("{\"_id\":{\"$oid\":\"550c6e62c2e62b5640673e93\"},\"long\":12345678901,\"double\":1.5,\"date\":{\"$date\":1565097600000},\"regex\":{\"$regularExpression\":{\"pattern\":\"a b/c\",\"options\":\"i\"}},\"s\":\"a  b, \\\"q\\\" : { }\",\"arr\":[[],[1,2],{\"x\":null}]}",
+            BsonUtils.toJson(doc));
+
+        assertEquals("{\"_id\":ObjectId(\"550c6e62c2e62b5640673e93\"),\"long\":NumberLong(\"12345678901\"),\"double\":1.5,\"date\":ISODate(\"2019-08-06T13:20:00.000Z\"),\"regex\":/a b\\/c/i,\"s\":\"a  b, \\\"q\\\" : { }\",\"arr\":[[],[1,2],{\"x\":null}]}",
+            BsonUtils.toJson(doc, JsonMode.SHELL));
+
+        assertEquals("[[],[{\"$numberInt\":\"1\"},{\"$numberInt\":\"2\"}],{\"x\":null}]", BsonUtils.toJson(doc.get("arr"), JsonMode.EXTENDED));
+        assertEquals("[]", BsonUtils.toJson(new BsonArray()));
+        assertEquals("{}", BsonUtils.toJson(new BsonDocument()));
+
+        // scalars
+        assertEquals("{\"$oid\":\"550c6e62c2e62b5640673e93\"}", BsonUtils.toJson(doc.get("_id")));
+        assertEquals("12345678901", BsonUtils.toJson(doc.get("long"), JsonMode.RELAXED));
+        assertEquals("{\"$numberDouble\":\"1.5\"}", BsonUtils.toJson(doc.get("double"), JsonMode.EXTENDED));
+        assertEquals("{\"$date\":{\"$numberLong\":\"1565097600000\"}}", BsonUtils.toJson(doc.get("date"), JsonMode.EXTENDED));
+        assertEquals("{\"$date\":\"2019-08-06T13:20:00Z\"}", BsonUtils.toJson(doc.get("date"), JsonMode.RELAXED));
+        assertEquals("\"a  b, \\\"q\\\" : { }\"", BsonUtils.toJson(doc.get("s")));
+        assertEquals("null", BsonUtils.toJson(BsonNull.VALUE));
+    }
+
+    @Test
+    public void testEscapeKeys() {
+        var doc = BsonUtils.parse("{'$match': {'a.b': {'$in': ['$x', 1]}}, 'c.d': {'$exists': true}, 's': '$s'}");
+
+        var escaped = BsonUtils.escapeKeys(doc, true);
+        assertEquals(BsonUtils.parse("{'_$match': {'a::b': {'_$in': ['_$x', 1]}}, 'c::d': {'_$exists': true}, 's': '$s'}"), escaped);
+        assertEquals(doc, BsonUtils.unescapeKeys(escaped));
+
+        // the dots in all the root keys are not escaped
+        assertEquals(BsonUtils.parse("{'_$match': {'a::b': {'_$in': ['_$x', 1]}}, 'c.d': {'_$exists': true}, 's': '$s'}"),
+            BsonUtils.escapeKeys(doc, true, true));
+
+        // the subtrees with nothing to escape are not copied
+        var nothing = BsonUtils.parse("{'a': {'b': [1, {'c': 'd'}]}, 'e': 'f'}");
+        assertTrue(nothing == BsonUtils.escapeKeys(nothing, true));
+        assertTrue(nothing == BsonUtils.unescapeKeys(nothing));
+
+        var some = BsonUtils.parse("{'a': {'b': [1, {'c': 'd'}]}, 'e': {'$f': 1}}").asDocument();
+        var someEscaped = BsonUtils.escapeKeys(some, true).asDocument();
+        assertTrue(some.get("a") == someEscaped.get("a"));
+        assertEquals(new BsonDocument("_$f", new BsonInt32(1)), someEscaped.get("e"));
+        assertEquals(new BsonDocument("$f", new BsonInt32(1)), some.get("e"));
+
+        // deep documents
+        BsonValue deep = new BsonString("$x");
+
+        for (var i = 0; i < 100_000; i++) {
+            deep = new BsonDocument("$k", new BsonArray(List.of(deep)));
+        }
+
+        var unescaped = BsonUtils.unescapeKeys(BsonUtils.escapeKeys(deep, true));
+
+        for (var i = 0; i < 100_000; i++) {
+            unescaped = unescaped.asDocument().get("$k").asArray().get(0);
+        }
+
+        assertEquals(new BsonString("$x"), unescaped);
+    }
 }
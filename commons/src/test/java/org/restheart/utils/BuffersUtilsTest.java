@@ -0,0 +1,68 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.server.DefaultByteBufferPool;
+import java.io.IOException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BuffersUtilsTest {
+    private final DefaultByteBufferPool pool = new DefaultByteBufferPool(false, 8);
+
+    /**
+     * @return the content in pooled buffers of 8 bytes
+     */
+    private PooledByteBuffer[] buffers(byte[] content, int slots) {
+        var ret = new PooledByteBuffer[slots];
+
+        for (int i = 0, pos = 0; pos < content.length; i++) {
+            ret[i] = pool.allocate();
+            var len = Math.min(8, content.length - pos);
+            ret[i].getBuffer().put(content, pos, len).flip();
+            pos += len;
+        }
+
+        return ret;
+    }
+
+    @Test
+    public void testToByteArray() throws IOException {
+        var content = "0123456789abcdefghij".getBytes();
+        var buffers = buffers(content, 5);
+
+        // the buffers are not consumed
+        assertArrayEquals(content, BuffersUtils.toByteArray(buffers));
+        assertArrayEquals(content, BuffersUtils.toByteArray(buffers));
+
+        // sized to the content
+        var bb = BuffersUtils.toByteBuffer(buffers);
+        assertEquals(content.length, bb.remaining());
+        assertEquals(content.length, bb.capacity());
+
+        assertArrayEquals(new byte[0], BuffersUtils.toByteArray(new PooledByteBuffer[2]));
+        assertNull(BuffersUtils.toByteArray(null));
+    }
+}
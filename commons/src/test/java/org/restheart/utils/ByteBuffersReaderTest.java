@@ -0,0 +1,121 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2022 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import org.bson.json.JsonParseException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ByteBuffersReaderTest {
+    private static final String JSON = "{\"a\": \"àèì€𝄞\", \"b\": [1, 2.5, {\"$oid\": \"5d0b7dcd0ee3b0a7cd4b4d2c\"}], \"c\": {\"$date\": 1}}";
+
+    /**
+     * @return a reader of the bytes of s, split in buffers of the given size
+     */
+    private static ByteBuffersReader reader(String s, int size) {
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        var buffers = new ArrayList<ByteBuffer>();
+
+        for (var i = 0; i < bytes.length; i += size) {
+            buffers.add(ByteBuffer.wrap(bytes, i, Math.min(size, bytes.length - i)).slice());
+        }
+
+        var it = buffers.iterator();
+
+        return new ByteBuffersReader(() -> it.hasNext() ? it.next() : null, null);
+    }
+
+    private static String readAll(ByteBuffersReader reader) throws IOException {
+        var sb = new StringBuilder();
+        var cbuf = new char[7];
+        int n;
+
+        while ((n = reader.read(cbuf, 0, cbuf.length)) != -1) {
+            sb.append(cbuf, 0, n);
+        }
+
+        return sb.toString();
+    }
+
+    @Test
+    public void testSplitChars() throws IOException {
+        // the multi-byte chars are split between buffers with any size
+        for (var size = 1; size < 16; size++) {
+            assertEquals("buffers of " + size + " bytes", JSON, readAll(reader(JSON, size)));
+        }
+    }
+
+    @Test
+    public void testCharsPerRead() throws IOException {
+        // 3-byte chars split between buffers of 1000 bytes
+        var cjk = "漢字仮名交じり文".repeat(500);
+        var reader = reader(cjk, 1000);
+        var cbuf = new char[8192];
+        var sb = new StringBuilder();
+        var reads = 0;
+        int n;
+
+        while ((n = reader.read(cbuf, 0, cbuf.length)) != -1) {
+            sb.append(cbuf, 0, n);
+            reads++;
+
+            // each read returns the chars of a whole buffer, not only the split one
+            if (sb.length() < cjk.length()) {
+                assertTrue("read " + reads + " returned " + n + " chars", n >= 1000 / 3 - 1);
+            }
+        }
+
+        assertEquals(cjk, sb.toString());
+    }
+
+    @Test
+    public void testTrailingContent() {
+        for (var json: new String[] { "{\"a\":1} garbage", "{\"a\":1}{\"b\":2}", "[1] 2", "1 2", "{\"$oid\": \"5d0b7dcd0ee3b0a7cd4b4d2c\"} x" }) {
+            assertThrows(json, JsonParseException.class, () -> BsonUtils.parse(json));
+            assertThrows(json, JsonParseException.class, () -> BsonUtils.parse(reader(json, 3)));
+        }
+
+        // trailing whitespaces are allowed
+        assertEquals(BsonUtils.parse("{\"a\":1}"), BsonUtils.parse(reader("{\"a\":1} \n ", 3)));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(-1, reader("", 8).read());
+        assertNull(BsonUtils.parse(reader(" \n ", 1)));
+    }
+
+    @Test
+    public void testParse() {
+        for (var json: new String[] { JSON, "[1, {\"a\": 2}]", "{\"$oid\": \"5d0b7dcd0ee3b0a7cd4b4d2c\"}", "\"àè\"", "1" }) {
+            assertEquals(json, BsonUtils.parse(json), BsonUtils.parse(reader(json, 3)));
+            assertEquals(json, BsonUtils.parse(json), BsonUtils.parse(new StringReader(json)));
+        }
+    }
+}
@@ -76,6 +76,7 @@ import org.restheart.exchange.Exchange;
 import org.restheart.exchange.ExchangeKeys;
 import org.restheart.exchange.PipelineInfo;
 import org.restheart.graal.NativeImageBuildTimeChecker;
+import org.restheart.handlers.BrotliEncodingProvider;
 import org.restheart.handlers.ConfigurableEncodingHandler;
 import org.restheart.handlers.ErrorHandler;
 import org.restheart.handlers.PipelinedHandler;
@@ -86,6 +87,7 @@ import org.restheart.handlers.RequestInterceptorsExecutor;
 import org.restheart.handlers.RequestLogger;
 import org.restheart.handlers.RequestNotManagedHandler;
 import org.restheart.handlers.TracingInstrumentationHandler;
+import org.restheart.handlers.WorkingThreadsPoolDispatcher;
 import org.restheart.handlers.injectors.AuthHeadersRemover;
 import org.restheart.handlers.injectors.ConduitInjector;
 import org.restheart.handlers.injectors.PipelineInfoInjector;
@@ -125,6 +127,8 @@ import io.undertow.server.handlers.RequestLimitingHandler;
 import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
 import io.undertow.server.handlers.proxy.ProxyHandler;
 import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.PreCompressedResourceSupplier;
+import io.undertow.server.handlers.resource.ResourceHandler;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import picocli.CommandLine;
@@ -578,6 +582,10 @@ public final class Bootstrapper {
 
         LOGGER.info("Available processors: {}, IO threads{}: {}, worker threads{}: {}, ", Runtime.getRuntime().availableProcessors(), autoConfigIoThreads ? " (auto detected)" : "", ioThreads, autoConfigWorkerThreads ? " (auto detected)" : "", workerThreads);
 
+        if (configuration.coreModule().virtualWorkerThreads() && WorkingThreadsPoolDispatcher.enableVirtualThreads(configuration.coreModule().tracePinnedThreads())) {
+            LOGGER.info("Blocking services executed on virtual threads{}", configuration.coreModule().tracePinnedThreads() ? ", tracing pinned threads" : "");
+        }
+
         builder = builder
             .setIoThreads(ioThreads)
             .setWorkerThreads(workerThreads)
@@ -901,7 +909,12 @@ public final class Bootstrapper {
                 }
 
                 if (file.exists()) {
-                    var handler = resource(new FileResourceManager(file, 3)).addWelcomeFiles(sr.welcomeFile()).setDirectoryListingEnabled(false);
+                    var resourceManager = new FileResourceManager(file, 3);
+
+                    // with precompressed, serve the .br or .gz sibling of the requested file, if it exists and the client accepts it
+                    var handler = (sr.precompressed()
+                        ? new ResourceHandler(new PreCompressedResourceSupplier(resourceManager).addEncoding(BrotliEncodingProvider.BR, ".br").addEncoding("gzip", ".gz"))
+                        : resource(resourceManager)).addWelcomeFiles(sr.welcomeFile()).setDirectoryListingEnabled(false);
 
                     var ph = PipelinedHandler.pipe(new PipelineInfoInjector(), new RequestLogger(), PipelinedWrappingHandler.wrap(handler));
 
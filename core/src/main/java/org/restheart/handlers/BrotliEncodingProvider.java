@@ -0,0 +1,72 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import io.undertow.server.ConduitWrapper;
+import io.undertow.server.handlers.encoding.ContentEncodingProvider;
+import io.undertow.util.Headers;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * Content encoding provider for br, compresses the response with brotli
+ *
+ * brotli is implemented by the native library bundled with brotli4j;
+ * isAvailable() is false on the platforms it does not support
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BrotliEncodingProvider implements ContentEncodingProvider {
+    public static final String BR = "br";
+
+    private final Encoder.Parameters parameters;
+
+    /**
+     * @param quality from 0 (fastest) to 11 (best compression)
+     */
+    public BrotliEncodingProvider(int quality) {
+        this.parameters = new Encoder.Parameters().setQuality(quality);
+    }
+
+    /**
+     * @return true if the brotli native library is available
+     */
+    public static boolean isAvailable() {
+        return Brotli4jLoader.isAvailable();
+    }
+
+    @Override
+    public ConduitWrapper<StreamSinkConduit> getResponseWrapper() {
+        return (factory, exchange) -> {
+            // must be removed before creating the next conduit
+            exchange.getResponseHeaders().remove(Headers.CONTENT_LENGTH);
+
+            try {
+                return new BrotliStreamSinkConduit(factory.create(), parameters);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        };
+    }
+}
@@ -0,0 +1,217 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.Conduits;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * A conduit that compresses the response content with brotli.
+ *
+ * The compressed bytes are collected in memory and written to the next
+ * conduit as it accepts them. write() returns 0 while the compressed bytes
+ * of the previous writes are pending and consumes at most BUFFER_SIZE bytes
+ * of the source at a time, so that the pending bytes stay bounded; flush()
+ * returns false until the compressed bytes are all written
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BrotliStreamSinkConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * a ByteArrayOutputStream that exposes its buffer
+     */
+    private static class Compressed extends ByteArrayOutputStream {
+        Compressed() {
+            super(BUFFER_SIZE);
+        }
+
+        ByteBuffer slice(int from) {
+            return ByteBuffer.wrap(buf, from, count - from);
+        }
+    }
+
+    private final Compressed compressed = new Compressed();
+    private final BrotliOutputStream encoder;
+
+    // the number of compressed bytes already written to next
+    private int written = 0;
+
+    // whether the encoder got bytes since the last flush
+    private boolean unflushed = false;
+
+    private boolean terminated = false;
+    private boolean nextTerminated = false;
+
+    /**
+     * @param next the delegate conduit, it must not expect a Content-Length
+     * @param parameters the encoder parameters
+     * @throws IOException
+     */
+    public BrotliStreamSinkConduit(StreamSinkConduit next, Encoder.Parameters parameters) throws IOException {
+        super(next);
+        this.encoder = new BrotliOutputStream(compressed, parameters, BUFFER_SIZE);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        // backpressure, the next conduit does not accept the compressed bytes yet
+        if (!drain()) {
+            return 0;
+        }
+
+        var len = Math.min(src.remaining(), BUFFER_SIZE);
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (src.hasArray()) {
+            encoder.write(src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.position() + len);
+        } else {
+            var bytes = new byte[len];
+            src.get(bytes);
+            encoder.write(bytes);
+        }
+
+        unflushed = true;
+
+        drain();
+
+        return len;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long ret = 0;
+
+        for (int i = offs; i < offs + len; ++i) {
+            while (srcs[i].hasRemaining()) {
+                var n = write(srcs[i]);
+
+                if (n == 0) {
+                    return ret;
+                }
+
+                ret += n;
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public long transferFrom(final FileChannel src, final long position, final long count) throws IOException {
+        return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public long transferFrom(final StreamSourceChannel source, final long count, final ByteBuffer throughBuffer) throws IOException {
+        return IoUtils.transfer(source, count, throughBuffer, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+        return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return Conduits.writeFinalBasic(this, srcs, offset, length);
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        if (!drain()) {
+            return false;
+        }
+
+        if (!terminated && unflushed) {
+            unflushed = false;
+            encoder.flush();
+
+            if (!drain()) {
+                return false;
+            }
+        }
+
+        if (terminated && !nextTerminated) {
+            nextTerminated = true;
+            next.terminateWrites();
+        }
+
+        return next.flush();
+    }
+
+    @Override
+    public void terminateWrites() throws IOException {
+        if (!terminated) {
+            terminated = true;
+            // writes the last compressed block
+            encoder.close();
+        }
+
+        if (drain() && !nextTerminated) {
+            nextTerminated = true;
+            next.terminateWrites();
+        }
+    }
+
+    @Override
+    public void truncateWrites() throws IOException {
+        IoUtils.safeClose(encoder);
+        next.truncateWrites();
+    }
+
+    /**
+     * writes the compressed bytes to next
+     *
+     * @return true if all the compressed bytes have been written
+     */
+    private boolean drain() throws IOException {
+        while (written < compressed.size()) {
+            var n = next.write(compressed.slice(written));
+
+            if (n == 0) {
+                return false;
+            }
+
+            written += n;
+        }
+
+        compressed.reset();
+        written = 0;
+
+        return true;
+    }
+}
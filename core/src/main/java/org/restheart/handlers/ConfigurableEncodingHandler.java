@@ -26,19 +26,35 @@ import io.undertow.server.handlers.encoding.ContentEncodingRepository;
 import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
 import io.undertow.server.handlers.encoding.EncodingHandler;
 import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.predicate.Predicate;
 import io.undertow.util.Headers;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.restheart.Bootstrapper;
+import org.restheart.configuration.Compression;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.Exchange;
 import org.restheart.utils.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Compresses the responses with br, gzip or deflate, as accepted by the
+ * client and in this order of preference for the same quality.
+ *
+ * The responses smaller than compression.min-size or with a Content-Type not
+ * in compression.mime-types are not compressed, as well as the server-sent
+ * events unless text/event-stream is listed in compression.mime-types
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class ConfigurableEncodingHandler extends EncodingHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurableEncodingHandler.class);
+
+    private static final AtomicBoolean BROTLI_UNAVAILABLE_LOGGED = new AtomicBoolean(false);
 
     private final ResponseSender sender = new ResponseSender(null);
 
@@ -48,33 +64,91 @@ public class ConfigurableEncodingHandler extends EncodingHandler {
      * Creates a new instance of ConfigurableEncodingHandler
      *
      * if Configuration().isForceGzipEncoding() is true
-     * requests without gzip or deflate encodingin Accept-Encoding header
+     * requests without br, gzip or deflate encoding in Accept-Encoding header
      * will be rejected
      *
      * @param next
      */
     public ConfigurableEncodingHandler(HttpHandler next) {
-        super(next, new ContentEncodingRepository()
-                .addEncodingHandler("gzip", new GzipEncodingProvider(), 60)
-                .addEncodingHandler("deflate", new DeflateEncodingProvider(), 50));
+        super(next, repository(Bootstrapper.getConfiguration().compression()));
 
         this.forceCompression = Bootstrapper.getConfiguration().coreModule().forceGzipEncoding();
     }
 
+    private static ContentEncodingRepository repository(Compression conf) {
+        var compressible = compressible(conf);
+        var ret = new ContentEncodingRepository();
+
+        if (conf.brotli()) {
+            if (BrotliEncodingProvider.isAvailable()) {
+                ret.addEncodingHandler(BrotliEncodingProvider.BR, new BrotliEncodingProvider(conf.brotliQuality()), 70, compressible);
+            } else if (!BROTLI_UNAVAILABLE_LOGGED.getAndSet(true)) {
+                LOGGER.warn("brotli compression is not available on this platform");
+            }
+        }
+
+        return ret
+            .addEncodingHandler("gzip", new GzipEncodingProvider(conf.level()), 60, compressible)
+            .addEncodingHandler("deflate", new DeflateEncodingProvider(conf.level()), 50, compressible);
+    }
+
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    /**
+     * @return the predicate that allows compressing the response, evaluated
+     * when the response starts
+     */
+    static Predicate compressible(Compression conf) {
+        return exchange -> compressible(conf, exchange.getResponseContentLength(), exchange.getResponseHeaders().getFirst(Headers.CONTENT_TYPE));
+    }
+
+    /**
+     * server-sent events are not compressed, unless text/event-stream is
+     * explicitly listed in compression.mime-types: the compressor and the
+     * proxies could buffer the events, that must be delivered as they are
+     * written
+     *
+     * @param conf the compression configuration
+     * @param length the Content-Length of the response, -1 if unknown
+     * @param contentType the Content-Type of the response, can be null
+     * @return true if the response can be compressed
+     */
+    static boolean compressible(Compression conf, long length, String contentType) {
+        if (length >= 0 && length < conf.minSize()) {
+            return false;
+        }
+
+        var _contentType = contentType == null ? null : contentType.toLowerCase(Locale.ROOT);
+
+        if (_contentType != null && _contentType.startsWith(EVENT_STREAM) && (conf.mimeTypes() == null || conf.mimeTypes().stream().noneMatch(mt -> mt.toLowerCase(Locale.ROOT).startsWith(EVENT_STREAM)))) {
+            return false;
+        }
+
+        if (conf.mimeTypes() == null || conf.mimeTypes().isEmpty()) {
+            return true;
+        }
+
+        if (_contentType == null) {
+            return false;
+        }
+
+        return conf.mimeTypes().stream().anyMatch(_contentType::startsWith);
+    }
+
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
         if (forceCompression) {
             var acceptedEncodings = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING_STRING);
 
-            for (String values : acceptedEncodings) {
-                if (Arrays.stream(values.split(",")).anyMatch((v) -> Headers.GZIP.toString().equals(v) || Headers.DEFLATE.toString().equals(v))) {
+            for (String values : acceptedEncodings == null ? List.<String>of() : acceptedEncodings) {
+                if (Arrays.stream(values.split(",")).map(v -> v.split(";")[0].strip()).anyMatch((v) -> BrotliEncodingProvider.BR.equals(v) || Headers.GZIP.toString().equals(v) || Headers.DEFLATE.toString().equals(v))) {
                     super.handleRequest(exchange);
                     return;
                 }
             }
 
             Exchange.setInError(exchange);
-            ByteArrayProxyResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, "Accept-Encoding header must include gzip or deflate");
+            ByteArrayProxyResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, "Accept-Encoding header must include br, gzip or deflate");
 
             sender.handleRequest(exchange);
         } else {
@@ -25,15 +25,18 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.server.protocol.http.ServerFixedLengthStreamSinkConduit;
 import io.undertow.util.Headers;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import static org.restheart.exchange.Exchange.MAX_BUFFERS;
+import static org.restheart.exchange.Exchange.MAX_CONTENT_SIZE;
 import org.restheart.exchange.ProxyResponse;
-import org.restheart.utils.BuffersUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.Buffers;
 import org.xnio.IoUtils;
 import org.xnio.channels.StreamSourceChannel;
 import org.xnio.conduits.AbstractStreamSinkConduit;
@@ -47,16 +50,26 @@ import org.xnio.conduits.StreamSinkConduit;
  * It is also responsible of executing response interceptors. terminateWrites()
  * is called
  *
+ * The content is buffered in a chain of pooled buffers that grows with it,
+ * up to MAX_BUFFERS buffers
+ *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class ModifiableContentSinkConduit extends AbstractStreamSinkConduit<StreamSinkConduit> {
 
     static final Logger LOGGER = LoggerFactory.getLogger(ModifiableContentSinkConduit.class);
 
+    private static final int INITIAL_BUFFERS = 4;
+
+    private static final MethodHandle RESET = resetMethodHandle();
+
     private final HttpServerExchange exchange;
 
     private final ResponseInterceptorsExecutor interceptorsExecutor;
 
+    // the number of buffers in use
+    private int count = 0;
+
     /**
      * Construct a new instance.
      *
@@ -72,7 +85,21 @@ public class ModifiableContentSinkConduit extends AbstractStreamSinkConduit<Stre
     }
 
     /**
-     * init buffers pool with a single, empty buffer.
+     * ServerFixedLengthStreamSinkConduit.reset() is not public, it is looked up once
+     */
+    private static MethodHandle resetMethodHandle() {
+        try {
+            var m = ServerFixedLengthStreamSinkConduit.class.getDeclaredMethod("reset", long.class, HttpServerExchange.class);
+            m.setAccessible(true);
+            return MethodHandles.lookup().unreflect(m);
+        } catch (NoSuchMethodException | SecurityException | IllegalAccessException ex) {
+            LOGGER.error("could not find ServerFixedLengthStreamSinkConduit.reset method", ex);
+            return null;
+        }
+    }
+
+    /**
+     * init buffers pool with a few empty slots.
      *
      * @param exchange
      * @return
@@ -87,22 +114,58 @@ public class ModifiableContentSinkConduit extends AbstractStreamSinkConduit<Stre
                 }
             }
         }
-        exchange.putAttachment(ProxyResponse.BUFFERED_RESPONSE_DATA_KEY, new PooledByteBuffer[MAX_BUFFERS]);
+        exchange.putAttachment(ProxyResponse.BUFFERED_RESPONSE_DATA_KEY, new PooledByteBuffer[Math.min(INITIAL_BUFFERS, MAX_BUFFERS)]);
+        this.count = 0;
     }
 
+    /**
+     * appends src to the last buffer, allocating a new one, and growing the
+     * chain, when it is full. The buffers are kept flipped, ready to be read
+     */
     @Override
     public int write(ByteBuffer src) throws IOException {
-        return BuffersUtils.append(src, exchange.getAttachment(ProxyResponse.BUFFERED_RESPONSE_DATA_KEY), exchange);
+        var buffers = exchange.getAttachment(ProxyResponse.BUFFERED_RESPONSE_DATA_KEY);
+        var written = 0;
+
+        while (src.hasRemaining()) {
+            var last = count > 0 ? buffers[count - 1].getBuffer() : null;
+
+            if (last == null || last.limit() == last.capacity()) {
+                if (count == buffers.length) {
+                    if (buffers.length >= MAX_BUFFERS) {
+                        LOGGER.error("Response content exceeeded {} bytes limit", MAX_CONTENT_SIZE);
+                        throw new IOException("Response content exceeeded " + MAX_CONTENT_SIZE + " bytes limit");
+                    }
+
+                    buffers = Arrays.copyOf(buffers, Math.min(buffers.length * 2, MAX_BUFFERS));
+                    exchange.putAttachment(ProxyResponse.BUFFERED_RESPONSE_DATA_KEY, buffers);
+                }
+
+                buffers[count++] = exchange.getConnection().getByteBufferPool().allocate();
+                last = buffers[count - 1].getBuffer().flip();
+            }
+
+            // reopen the free space after the content
+            var end = last.limit();
+            last.limit(last.capacity()).position(end);
+
+            written += Buffers.copy(last, src);
+
+            last.flip();
+        }
+
+        return written;
     }
 
     @Override
-    public long write(ByteBuffer[] dsts, int offs, int len) throws IOException {
-        for (int i = offs; i < len; ++i) {
-            if (dsts[i].hasRemaining()) {
-                return write(dsts[i]);
-            }
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long written = 0;
+
+        for (int i = offs; i < offs + len; ++i) {
+            written += write(srcs[i]);
         }
-        return 0;
+
+        return written;
     }
 
     @Override
@@ -151,7 +214,7 @@ public class ModifiableContentSinkConduit extends AbstractStreamSinkConduit<Stre
 
         for (PooledByteBuffer dest : dests) {
             if (dest != null) {
-                length += dest.getBuffer().limit();
+                length += dest.getBuffer().remaining();
             }
         }
 
@@ -159,21 +222,15 @@ public class ModifiableContentSinkConduit extends AbstractStreamSinkConduit<Stre
 
         // need also to update lenght of ServerFixedLengthStreamSinkConduit
         if (next instanceof ServerFixedLengthStreamSinkConduit) {
-            Method m;
-
-            try {
-                m = ServerFixedLengthStreamSinkConduit.class.getDeclaredMethod("reset", long.class, HttpServerExchange.class);
-                m.setAccessible(true);
-            } catch (NoSuchMethodException | SecurityException ex) {
-                LOGGER.error("could not find ServerFixedLengthStreamSinkConduit.reset method", ex);
-                throw new RuntimeException("could not find ServerFixedLengthStreamSinkConduit.reset method", ex);
+            if (RESET == null) {
+                throw new RuntimeException("could not find ServerFixedLengthStreamSinkConduit.reset method");
             }
 
             try {
-                m.invoke(next, length, exchange);
+                RESET.invoke(next, length, exchange);
             } catch (Throwable ex) {
-                LOGGER.error("could not access BUFFERED_REQUEST_DATA field", ex);
-                throw new RuntimeException("could not access BUFFERED_REQUEST_DATA field", ex);
+                LOGGER.error("could not invoke ServerFixedLengthStreamSinkConduit.reset method", ex);
+                throw new RuntimeException("could not invoke ServerFixedLengthStreamSinkConduit.reset method", ex);
             }
         } else {
             LOGGER.warn("updateContentLenght() next is {}", next.getClass().getSimpleName());
@@ -22,11 +22,14 @@ package org.restheart.handlers;
 
 import io.undertow.server.HttpServerExchange;
 import java.nio.ByteBuffer;
+import org.restheart.exchange.BsonResponse;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.PipelineInfo;
+import org.restheart.exchange.Request;
 import org.restheart.exchange.ServiceResponse;
 import org.restheart.plugins.PluginsRegistry;
 import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.utils.PluginUtils;
 
 /**
  *
@@ -59,17 +62,18 @@ public class ResponseSender extends PipelinedHandler {
     @Override
     @SuppressWarnings("rawtypes")
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        var path = exchange.getRequestPath();
+        // the PipelineInfo is attached by PipelineInfoInjector
+        var pi = Request.getPipelineInfo(exchange);
 
-        var pi = pluginsRegistry.getPipelineInfo(path);
+        if (pi == null) {
+            pi = pluginsRegistry.getPipelineInfo(exchange.getRequestPath());
+        }
 
         if (pi.getType() == PipelineInfo.PIPELINE_TYPE.SERVICE) {
-            var srv = pluginsRegistry.getServices().stream()
-                .filter(s -> s.getName().equals(pi.getName()))
-                .findAny();
+            var srv = PluginUtils.handlingServicePluginRecord(pluginsRegistry, exchange);
 
-            if (srv.isPresent()) {
-                var response = (ServiceResponse) srv.get().getInstance().response().apply(exchange);
+            if (srv != null) {
+                var response = (ServiceResponse) srv.getInstance().response().apply(exchange);
 
                 if (response.getStatusCode() > 0) {
                     exchange.setStatusCode(response.getStatusCode());
@@ -79,6 +83,14 @@ public class ResponseSender extends PipelinedHandler {
                 if (response.getCustomerSender() != null) {
                     // use the custom sender if it has been set
                     response.getCustomerSender().run();
+                } else if (response instanceof BsonResponse bresponse && exchange.isBlocking() && !exchange.isInIoThread()) {
+                    // stream the json content to the pooled buffers of the response channel
+                    // without building the intermediate String
+                    var os = exchange.getOutputStream();
+
+                    if (bresponse.writeContent(os)) {
+                        os.close();
+                    }
                 } else {
                     var content = response.readContent();
                     if (content != null) {
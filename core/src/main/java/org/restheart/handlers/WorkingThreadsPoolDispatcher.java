@@ -22,6 +22,10 @@ package org.restheart.handlers;
 
 import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.BlockingHandler;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -36,8 +40,16 @@ import io.undertow.server.handlers.BlockingHandler;
  *         the Working Thread Pool
  *         and executed directly by the IO Thread
  *
+ *         With worker-threads: virtual (requires Java 21+) the blocking
+ *         services are executed on virtual threads instead, one per request
+ *
  */
 public class WorkingThreadsPoolDispatcher extends PipelinedHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkingThreadsPoolDispatcher.class);
+
+    // not null when the blocking services are executed on virtual threads
+    private static Executor virtualThreadsExecutor = null;
+
     private final BlockingHandler blockingHandler = new BlockingHandler(this);
 
     /**
@@ -65,9 +77,51 @@ public class WorkingThreadsPoolDispatcher extends PipelinedHandler {
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
         if (exchange.isInIoThread()) {
-            blockingHandler.handleRequest(exchange);
+            if (virtualThreadsExecutor != null) {
+                // same as BlockingHandler, but dispatching to a virtual thread
+                exchange.startBlocking();
+                exchange.dispatch(virtualThreadsExecutor, this);
+            } else {
+                blockingHandler.handleRequest(exchange);
+            }
         } else {
             next(exchange);
         }
     }
+
+    /**
+     * Executes the blocking services on virtual threads. Requires Java 21+,
+     * with older versions it logs a warning and the Working Thread Pool
+     * keeps being used.
+     *
+     * To be invoked once at startup, before handling requests.
+     *
+     * @param tracePinnedThreads true to print the stack trace of the virtual
+     * threads that block while pinned to their carrier thread
+     * @return true if the virtual threads are enabled
+     */
+    public static boolean enableVirtualThreads(boolean tracePinnedThreads) {
+        if (tracePinnedThreads && System.getProperty("jdk.tracePinnedThreads") == null) {
+            // read when the first virtual thread is created
+            System.setProperty("jdk.tracePinnedThreads", "full");
+        }
+
+        try {
+            // compiled against Java 17, the factory method is looked up at runtime
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            virtualThreadsExecutor = (Executor) factory.invoke(null);
+            return true;
+        } catch (ReflectiveOperationException roe) {
+            LOGGER.warn("worker-threads: virtual requires Java 21+, running on Java {}. Using the worker thread pool", Runtime.version().feature());
+            return false;
+        }
+    }
+
+    /**
+     *
+     * @return true if the blocking services are executed on virtual threads
+     */
+    public static boolean isVirtualThreadsEnabled() {
+        return virtualThreadsExecutor != null;
+    }
 }
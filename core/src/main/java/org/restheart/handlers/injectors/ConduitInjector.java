@@ -25,6 +25,7 @@ import io.undertow.util.AttachmentKey;
 import io.undertow.util.ConduitFactory;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.Headers;
+import org.restheart.exchange.ByteArrayProxyRequest;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.handlers.ContentStreamSinkConduit;
 import org.restheart.handlers.ModifiableContentSinkConduit;
@@ -67,6 +68,9 @@ public class ConduitInjector extends PipelinedHandler {
     private final PluginsRegistry pluginsRegistry = PluginsRegistryImpl.getInstance();
 
     private final List<Interceptor<?, ?>> inteceptors = new ArrayList<>();
+
+    // the interceptors whose requiresResponseContent() returns true
+    private final List<Interceptor<?, ?>> inteceptorsRequiringContent = new ArrayList<>();
     /**
      *
      */
@@ -81,6 +85,31 @@ public class ConduitInjector extends PipelinedHandler {
         super(next);
         this.inteceptors.addAll(pluginsRegistry.getProxyInterceptors(RESPONSE));
         this.inteceptors.addAll(pluginsRegistry.getProxyInterceptors(RESPONSE_ASYNC));
+        this.inteceptors.stream().filter(ri -> requiresContent(ri)).forEachOrdered(this.inteceptorsRequiringContent::add);
+    }
+
+    /**
+     * @param exchange
+     * @return true if any interceptor that requires the response content
+     * resolves for the exchange
+     */
+    @SuppressWarnings({"rawtypes","unchecked"})
+    private boolean resolvedRequiringContent(HttpServerExchange exchange) {
+        if (this.inteceptorsRequiringContent.isEmpty()) {
+            return false;
+        }
+
+        var request = ByteArrayProxyRequest.of(exchange);
+        var response = ByteArrayProxyResponse.of(exchange);
+
+        return this.inteceptorsRequiringContent.stream().map(ri -> (Interceptor) ri).anyMatch(ri -> {
+            try {
+                return ri.resolve(request, response);
+            } catch (Exception e) {
+                // as in ResponseInterceptorsExecutor, it won't be executed
+                return false;
+            }
+        });
     }
 
     /**
@@ -91,7 +120,7 @@ public class ConduitInjector extends PipelinedHandler {
      * @param exchange
      */
     private void forceIdentityEncodingForInterceptors(HttpServerExchange exchange) {
-        if (this.inteceptors.stream().anyMatch(ri -> requiresContent(ri))) {
+        if (!this.inteceptorsRequiringContent.isEmpty()) {
             var before = new HeaderMap();
 
             if (exchange.getRequestHeaders().contains(Headers.ACCEPT_ENCODING)) {
@@ -128,7 +157,9 @@ public class ConduitInjector extends PipelinedHandler {
                 MDC.setContextMap(mdcCtx);
             }
 
-            if (this.inteceptors.stream().anyMatch(ri -> requiresContent(ri))) {
+            // the response is buffered only if an interceptor that
+            // requires the content resolves, otherwise it passes through
+            if (resolvedRequiringContent(cexchange)) {
                 var mcsc = new ModifiableContentSinkConduit(factory.create(), cexchange);
                 cexchange.putAttachment(MCSC_KEY, mcsc);
                 return mcsc;
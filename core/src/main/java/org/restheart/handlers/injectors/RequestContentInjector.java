@@ -41,7 +41,6 @@ import org.restheart.plugins.Interceptor;
 import org.restheart.plugins.PluginsRegistry;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.requiresContent;
 
 import java.util.List;
 
@@ -129,37 +128,44 @@ public class RequestContentInjector extends PipelinedHandler {
                 || (policy == ON_REQUIRES_CONTENT_BEFORE_AUTH && isContentRequired(exchange, InterceptPoint.REQUEST_BEFORE_AUTH)));
     }
 
+    /**
+     * Only the interceptors that require the content matter, the registry
+     * keeps them apart for each pipeline: when none is deployed, the content
+     * is not required without resolving any interceptor.
+     */
     @SuppressWarnings({"rawtypes","unchecked"})
     private boolean isContentRequired(HttpServerExchange exchange, InterceptPoint interceptPoint) {
-        Request<?> request;
-        Response<?> response;
-
         var handlingService = PluginUtils.handlingService(pluginsRegistry, exchange);
 
-        List<Interceptor<?, ?>> interceptors;
+        List<Interceptor<?, ?>> interceptors = handlingService != null
+            ? this.pluginsRegistry.getServiceInterceptorsRequiringContent(handlingService, interceptPoint)
+            : this.pluginsRegistry.getProxyInterceptorsRequiringContent(interceptPoint);
+
+        if (interceptors.isEmpty()) {
+            return false;
+        }
+
+        Request<?> request;
+        Response<?> response;
 
         if (handlingService != null) {
             request = ServiceRequest.of(exchange, ServiceRequest.class);
             response = ServiceResponse.of(exchange, ServiceResponse.class);
-            interceptors = this.pluginsRegistry.getServiceInterceptors(handlingService, interceptPoint);
         } else {
             request = ByteArrayProxyRequest.of(exchange);
             response = ByteArrayProxyResponse.of(exchange);
-            interceptors = this.pluginsRegistry.getProxyInterceptors(interceptPoint);
         }
 
         return interceptors.stream()
-            .filter(ri -> ri instanceof Interceptor)
             .map(ri -> (Interceptor) ri)
-            .filter(ri -> {
+            .anyMatch(ri -> {
                 try {
                     return ri.resolve(request, response);
                 } catch (Exception e) {
                     LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}", ri.getClass().getSimpleName(), exchange.getRequestPath(), interceptPoint, e);
                     return false;
                 }
-            })
-            .anyMatch(ri -> requiresContent(ri));
+            });
     }
 
     private void markInjected(HttpServerExchange exchange) {
@@ -22,11 +22,11 @@ package org.restheart.plugins;
 
 import static io.undertow.Handlers.path;
 
-import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -35,8 +35,6 @@ import java.util.Objects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
-import org.restheart.cache.CacheFactory;
-import org.restheart.cache.LoadingCache;
 import org.restheart.configuration.ConfigurationException;
 import org.restheart.exchange.ByteArrayProxyRequest;
 import org.restheart.exchange.ByteArrayProxyResponse;
@@ -259,25 +257,101 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     }
 
     @Override
-    public void addInterceptor(PluginRecord<Interceptor<?, ?>> i) {
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
-
+    public synchronized void addInterceptor(PluginRecord<Interceptor<?, ?>> i) {
         if (this.interceptors == null) {
             // avoid NPE if not already initialized
             getInterceptors();
         }
 
         this.interceptors.add(i);
+
+        invalidateInterceptorsTable();
     }
 
     @Override
-    public boolean removeInterceptorIf(java.util.function.Predicate<? super PluginRecord<Interceptor<?, ?>>> filter) {
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
-        return this.interceptors.removeIf(filter);
+    public synchronized boolean removeInterceptorIf(java.util.function.Predicate<? super PluginRecord<Interceptor<?, ?>>> filter) {
+        var ret = this.interceptors.removeIf(filter);
+
+        invalidateInterceptorsTable();
+
+        return ret;
+    }
+
+    /**
+     * the interceptors of each service and of the proxies for each intercept
+     * point. It is immutable, built on first use and discarded when the
+     * services or the interceptors change, so that the lookups on the request
+     * path neither lock nor allocate.
+     */
+    private volatile InterceptorsTable interceptorsTable = null;
+
+    private InterceptorsTable interceptorsTable() {
+        var ret = this.interceptorsTable;
+        return ret != null ? ret : buildInterceptorsTable();
+    }
+
+    private synchronized InterceptorsTable buildInterceptorsTable() {
+        if (this.interceptorsTable == null) {
+            var services = getServices().stream()
+                .map(PluginRecord::getName)
+                .collect(Collectors.toMap(name -> name, name -> chains(name), (a, b) -> a));
+
+            var proxy = chains(null);
+
+            this.interceptorsTable = new InterceptorsTable(Map.copyOf(services), proxy,
+                Map.copyOf(services.entrySet().stream().collect(Collectors.toMap(e -> e.getKey(), e -> requiringContent(e.getValue())))),
+                requiringContent(proxy));
+        }
+
+        return this.interceptorsTable;
+    }
+
+    private synchronized void invalidateInterceptorsTable() {
+        this.interceptorsTable = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Interceptor<?, ?>>[] chains(String serviceName) {
+        var ret = (List<Interceptor<?, ?>>[]) new List<?>[INTERCEPT_POINTS.length];
+
+        for (var ip : INTERCEPT_POINTS) {
+            ret[ip.ordinal()] = List.copyOf(__interceptors(serviceName, ip));
+        }
+
+        return ret;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Interceptor<?, ?>>[] requiringContent(List<Interceptor<?, ?>>[] chains) {
+        var ret = (List<Interceptor<?, ?>>[]) new List<?>[chains.length];
+
+        for (var i = 0; i < chains.length; i++) {
+            ret[i] = chains[i].stream().filter(PluginUtils::requiresContent).toList();
+        }
+
+        return ret;
     }
 
-    private LoadingCache<AbstractMap.SimpleEntry<String, InterceptPoint>, List<Interceptor<?, ?>>> SRV_INTERCEPTORS_CACHE = CacheFactory
-        .createHashMapLoadingCache((key) -> __interceptors(key.getKey(), key.getValue()));
+    private static final InterceptPoint[] INTERCEPT_POINTS = InterceptPoint.values();
+
+    private record InterceptorsTable(Map<String, List<Interceptor<?, ?>>[]> services,
+        List<Interceptor<?, ?>>[] proxy,
+        Map<String, List<Interceptor<?, ?>>[]> servicesRequiringContent,
+        List<Interceptor<?, ?>>[] proxyRequiringContent) {
+        List<Interceptor<?, ?>> get(String serviceName, InterceptPoint interceptPoint) {
+            return lookup(services, proxy, serviceName, interceptPoint);
+        }
+
+        List<Interceptor<?, ?>> getRequiringContent(String serviceName, InterceptPoint interceptPoint) {
+            return lookup(servicesRequiringContent, proxyRequiringContent, serviceName, interceptPoint);
+        }
+
+        private static List<Interceptor<?, ?>> lookup(Map<String, List<Interceptor<?, ?>>[]> services, List<Interceptor<?, ?>>[] proxy, String serviceName, InterceptPoint interceptPoint) {
+            var chains = serviceName == null ? null : services.get(serviceName);
+            // unknown services get the same interceptors of proxies, as __interceptors() does
+            return (chains == null ? proxy : chains)[interceptPoint.ordinal()];
+        }
+    }
 
     private List<Interceptor<?, ?>> __interceptors(String serviceName, InterceptPoint interceptPoint) {
         Optional<PluginRecord<Service<?, ?>>> _service = serviceName == null ? Optional.empty() : getServices().stream().filter(pr -> serviceName.equals(pr.getName())).findFirst();
@@ -326,11 +400,7 @@ public class PluginsRegistryImpl implements PluginsRegistry {
         Objects.requireNonNull(srv);
         Objects.requireNonNull(interceptPoint);
 
-        var serviceName = PluginUtils.name(srv);
-
-        var _ret =  SRV_INTERCEPTORS_CACHE.getLoading(new AbstractMap.SimpleEntry<String, InterceptPoint>(serviceName, interceptPoint));
-
-        return _ret.isPresent() ? _ret.get() : Lists.newArrayList();
+        return interceptorsTable().get(PluginUtils.name(srv), interceptPoint);
     }
 
     /**
@@ -340,9 +410,24 @@ public class PluginsRegistryImpl implements PluginsRegistry {
      */
     @Override
     public List<Interceptor<?, ?>> getProxyInterceptors(InterceptPoint interceptPoint) {
-        var _ret =  SRV_INTERCEPTORS_CACHE.getLoading(new AbstractMap.SimpleEntry<String, InterceptPoint>(null, interceptPoint));
+        Objects.requireNonNull(interceptPoint);
 
-        return _ret.isPresent() ? _ret.get() : Lists.newArrayList();
+        return interceptorsTable().get(null, interceptPoint);
+    }
+
+    @Override
+    public List<Interceptor<?, ?>> getServiceInterceptorsRequiringContent(Service<?, ?> srv, InterceptPoint interceptPoint) {
+        Objects.requireNonNull(srv);
+        Objects.requireNonNull(interceptPoint);
+
+        return interceptorsTable().getRequiringContent(PluginUtils.name(srv), interceptPoint);
+    }
+
+    @Override
+    public List<Interceptor<?, ?>> getProxyInterceptorsRequiringContent(InterceptPoint interceptPoint) {
+        Objects.requireNonNull(interceptPoint);
+
+        return interceptorsTable().getRequiringContent(null, interceptPoint);
     }
 
     /**
@@ -442,12 +527,14 @@ public class PluginsRegistryImpl implements PluginsRegistry {
                 new ResponseSender()
             );
 
-            plugPipeline(uri, _srv, new PipelineInfo(SERVICE, uri, mp, srv.getName()));
+            plugPipeline(uri, _srv, new PipelineInfo(SERVICE, uri, mp, srv.getName(), srv));
 
-            this.services.add(srv);
+            synchronized (this) {
+                this.services.add(srv);
 
-            // service list changed, invalidate cache
-            this.SRV_INTERCEPTORS_CACHE.invalidateAll();
+                // service list changed, invalidate cache
+                invalidateInterceptorsTable();
+            }
     }
 
     /**
@@ -459,7 +546,9 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     public void unplug(String uri, MATCH_POLICY mp) {
         var pi = getPipelineInfo(uri);
 
-        this.services.removeIf(s -> s.getName().equals(pi.getName()));
+        synchronized (this) {
+            this.services.removeIf(s -> s.getName().equals(pi.getName()));
+        }
 
         if (mp == MATCH_POLICY.PREFIX) {
             ROOT_PATH_HANDLER.removePrefixPath(uri);
@@ -470,6 +559,6 @@ public class PluginsRegistryImpl implements PluginsRegistry {
         }
 
         // service list changed, invalidate cache
-        this.SRV_INTERCEPTORS_CACHE.invalidateAll();
+        invalidateInterceptorsTable();
     }
 }
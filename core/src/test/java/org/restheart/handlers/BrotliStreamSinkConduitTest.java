@@ -0,0 +1,168 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
+import com.aayushatharva.brotli4j.decoder.DecoderJNI;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.xnio.conduits.StreamSinkConduit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BrotliStreamSinkConduitTest {
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    // the number of bytes the next conduit accepts at each write
+    private int accepts = Integer.MAX_VALUE;
+
+    private StreamSinkConduit next;
+
+    @Before
+    public void before() throws IOException {
+        Assume.assumeTrue("brotli is not available on this platform", BrotliEncodingProvider.isAvailable());
+
+        next = mock(StreamSinkConduit.class);
+
+        when(next.write(any(ByteBuffer.class))).thenAnswer(i -> {
+            var src = i.getArgument(0, ByteBuffer.class);
+            var n = Math.min(src.remaining(), accepts);
+            var bytes = new byte[n];
+            src.get(bytes);
+            sent.write(bytes);
+            return n;
+        });
+
+        when(next.flush()).thenReturn(true);
+    }
+
+    @Test
+    public void testCompress() throws IOException {
+        var conduit = new BrotliStreamSinkConduit(next, new Encoder.Parameters().setQuality(4));
+        var content = content(100_000);
+
+        var src = ByteBuffer.wrap(content);
+        while (src.hasRemaining()) {
+            conduit.write(src);
+        }
+
+        conduit.terminateWrites();
+        assertTrue(conduit.flush());
+
+        assertArrayEquals(content, decompress(sent.toByteArray()));
+    }
+
+    @Test
+    public void testBackpressure() throws IOException {
+        var conduit = new BrotliStreamSinkConduit(next, new Encoder.Parameters().setQuality(4));
+        var content = content(200_000);
+        var src = ByteBuffer.wrap(content);
+
+        // the next conduit accepts nothing
+        accepts = 0;
+
+        // at most BUFFER_SIZE bytes are consumed at a time
+        assertEquals(16 * 1024, conduit.write(src));
+
+        // the compressed bytes are pending
+        assertFalse(conduit.flush());
+
+        // the source is not consumed while the compressed bytes are pending
+        assertEquals(0, conduit.write(src));
+        assertEquals(0, conduit.write(new ByteBuffer[] { src }, 0, 1));
+        assertEquals(content.length - 16 * 1024, src.remaining());
+
+        // the next conduit accepts a few bytes at a time
+        accepts = 100;
+
+        while (src.hasRemaining()) {
+            conduit.write(src);
+            conduit.flush();
+        }
+
+        conduit.terminateWrites();
+        while (!conduit.flush()) {
+        }
+
+        assertArrayEquals(content, decompress(sent.toByteArray()));
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+        var conduit = new BrotliStreamSinkConduit(next, new Encoder.Parameters().setQuality(4));
+        var content = "{\"a\":1}".repeat(100).getBytes();
+
+        conduit.write(ByteBuffer.wrap(content));
+        assertTrue(conduit.flush());
+
+        // the flushed bytes can be decompressed before the end of the stream
+        var decoder = new DecoderJNI.Wrapper(1024);
+        var compressed = sent.toByteArray();
+        decoder.getInputBuffer().put(compressed);
+        decoder.push(compressed.length);
+
+        var decompressed = new ByteArrayOutputStream();
+        while (decoder.hasOutput()) {
+            var out = decoder.pull();
+            var bytes = new byte[out.remaining()];
+            out.get(bytes);
+            decompressed.write(bytes);
+        }
+
+        assertArrayEquals(content, decompressed.toByteArray());
+        decoder.destroy();
+
+        // nothing else is written by a flush without writes
+        var size = sent.size();
+        assertTrue(conduit.flush());
+        assertEquals(size, sent.size());
+    }
+
+    private static byte[] content(int size) {
+        // random bytes do not compress, so that the compressed bytes are many
+        var ret = new byte[size];
+        new Random(0).nextBytes(ret);
+        return ret;
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (var is = new BrotliInputStream(new ByteArrayInputStream(compressed))) {
+            return is.readAllBytes();
+        }
+    }
+}
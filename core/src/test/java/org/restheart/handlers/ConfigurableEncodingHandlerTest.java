@@ -0,0 +1,67 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.restheart.configuration.Compression;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ConfigurableEncodingHandlerTest {
+    private static final Compression DEFAULT = Compression.build(Map.of(), true);
+
+    @Test
+    public void testCompressible() {
+        assertTrue(ConfigurableEncodingHandler.compressible(DEFAULT, -1, "application/json"));
+        assertTrue(ConfigurableEncodingHandler.compressible(DEFAULT, 2048, "application/json; charset=utf-8"));
+        assertTrue(ConfigurableEncodingHandler.compressible(DEFAULT, -1, "Text/HTML"));
+
+        // smaller than min-size
+        assertFalse(ConfigurableEncodingHandler.compressible(DEFAULT, 100, "application/json"));
+
+        // not in mime-types
+        assertFalse(ConfigurableEncodingHandler.compressible(DEFAULT, -1, "image/png"));
+        assertFalse(ConfigurableEncodingHandler.compressible(DEFAULT, -1, null));
+    }
+
+    @Test
+    public void testEventStreamIsNotCompressed() {
+        // text/ is in the default mime-types
+        assertFalse(ConfigurableEncodingHandler.compressible(DEFAULT, -1, "text/event-stream"));
+        assertFalse(ConfigurableEncodingHandler.compressible(DEFAULT, -1, "text/event-stream; charset=utf-8"));
+
+        // all the mime-types
+        var all = new Compression(0, List.of(), -1, true, 4);
+        assertTrue(ConfigurableEncodingHandler.compressible(all, -1, "image/png"));
+        assertFalse(ConfigurableEncodingHandler.compressible(all, -1, "text/event-stream"));
+
+        // explicitly listed
+        var listed = new Compression(0, List.of("text/event-stream"), -1, true, 4);
+        assertTrue(ConfigurableEncodingHandler.compressible(listed, -1, "text/event-stream"));
+    }
+}
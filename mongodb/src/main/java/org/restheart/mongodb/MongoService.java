@@ -32,9 +32,11 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 import static org.fusesource.jansi.Ansi.Color.GREEN;
 import static org.fusesource.jansi.Ansi.ansi;
 
+import org.bson.BsonArray;
 import org.restheart.configuration.ConfigurationException;
 import org.restheart.exchange.BadRequestException;
 import org.restheart.exchange.MongoRequest;
@@ -53,7 +55,10 @@ import org.restheart.mongodb.handlers.injectors.ClientSessionInjector;
 import org.restheart.mongodb.handlers.injectors.ETagPolicyInjector;
 import org.restheart.mongodb.utils.MongoURLUtils;
 import org.restheart.plugins.Inject;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
 import org.restheart.plugins.OnInit;
+import org.restheart.plugins.PluginsRegistry;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.plugins.Service;
 import org.restheart.utils.MongoServiceAttachments;
@@ -85,6 +90,9 @@ public class MongoService implements Service<MongoRequest, MongoResponse> {
     @Inject("mclient")
     private MongoClient mclient;
 
+    @Inject("registry")
+    private PluginsRegistry registry;
+
     /**
      * PathMatcher is used by the root PathHandler to route the call. Here we
      * use the same logic to identify the correct MongoMount in order to
@@ -122,6 +130,16 @@ public class MongoService implements Service<MongoRequest, MongoResponse> {
 
         var mclient = RHMongoClients.mclient();
 
+        if (request.getStreamMode() != null && request.isGet() && request.isCollection() && responseInterceptorsApply(request, response)) {
+            // the response interceptors need the whole content, fall back to buffered mode
+            request.setStreamMode(null);
+
+            if (request.getPagesize() > MongoServiceConfiguration.get().getMaxPagesize()) {
+                response.setInError(HttpStatus.SC_BAD_REQUEST, "illegal pagesize parameter, the response cannot be streamed and pagesize must be <= " + MongoServiceConfiguration.get().getMaxPagesize());
+                return;
+            }
+        }
+
         if (mclient != null) {
             this.pipeline.handleRequest(request.getExchange());
         } else {
@@ -132,6 +150,39 @@ public class MongoService implements Service<MongoRequest, MongoResponse> {
         }
     }
 
+    /**
+     * The documents of a streamed response are written as they come off the
+     * cursor and never become the response content. This checks if any
+     * response interceptor applies to the request; since the documents are
+     * not available yet, the interceptors are resolved against an empty page.
+     *
+     * @param request
+     * @param response
+     * @return true if any response interceptor applies to the request
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private boolean responseInterceptorsApply(MongoRequest request, MongoResponse response) {
+        var content = response.getContent();
+
+        response.setContent(new BsonArray());
+
+        try {
+            return Stream.of(InterceptPoint.RESPONSE, InterceptPoint.RESPONSE_ASYNC)
+                .flatMap(ip -> this.registry.getServiceInterceptors(this, ip).stream())
+                .map(i -> (Interceptor) i)
+                .anyMatch(i -> {
+                    try {
+                        return i.resolve(request, response);
+                    } catch (Throwable t) {
+                        // cannot tell, better not to stream
+                        return true;
+                    }
+                });
+        } finally {
+            response.setContent(content);
+        }
+    }
+
     /**
      * getHandlersPipe
      *
@@ -67,12 +67,21 @@ public class MongoServiceConfiguration {
     private final Map<String, Map<String, Object>> pluginsArgs;
     private final boolean localCacheEnabled;
     private final long localCacheTtl;
+    private final long namespaceCatalogTtl;
     private final boolean schemaCacheEnabled;
     private final long schemaCacheTtl;
     private final int requestsLimit;
     private final int getCollectionCacheSize;
     private final int getCollectionCacheTTL;
     private final int getCollectionCacheDocs;
+    private final boolean getCollectionCachePrefetch;
+    private final boolean etagIndex;
+    private final boolean etagIndexWatch;
+    private final int etagIndexDocs;
+    private final int changeStreamsSendQueueSize;
+    private final CHANGE_STREAMS_OVERFLOW_POLICY changeStreamsSendQueueOverflow;
+    private final int changeStreamsReplayWindow;
+    private final int changeStreamsSseKeepAlive;
     private final ETAG_CHECK_POLICY dbEtagCheckPolicy;
     private final ETAG_CHECK_POLICY collEtagCheckPolicy;
     private final ETAG_CHECK_POLICY docEtagCheckPolicy;
@@ -83,6 +92,7 @@ public class MongoServiceConfiguration {
     private final int cursorBatchSize;
     private final int defaultPagesize;
     private final int maxPagesize;
+    private final int maxStreamPagesize;
     private final METRICS_GATHERING_LEVEL metricsGatheringLevel;
 
     public static MongoServiceConfiguration get() {
@@ -168,12 +178,34 @@ public class MongoServiceConfiguration {
         localCacheEnabled = asBoolean(conf, LOCAL_CACHE_ENABLED_KEY, true, silent);
         localCacheTtl = asLong(conf, LOCAL_CACHE_TTL_KEY, (long) 1000, silent);
 
+        namespaceCatalogTtl = asLong(conf, NAMESPACE_CATALOG_TTL_KEY, (long) 60_000, silent);
+
         schemaCacheEnabled = asBoolean(conf, SCHEMA_CACHE_ENABLED_KEY, true, silent);
         schemaCacheTtl = asLong(conf, SCHEMA_CACHE_TTL_KEY, (long) 1000, silent);
 
         getCollectionCacheSize = asInteger(conf, GET_COLLECTION_CACHE_SIZE_KEY, 100, silent);
         getCollectionCacheTTL = asInteger(conf, GET_COLLECTION_CACHE_TTL_KEY, 10_000, silent);
         getCollectionCacheDocs = asInteger(conf, GET_COLLECTION_CACHE_DOCS_KEY, 1_000, silent);
+        getCollectionCachePrefetch = asBoolean(conf, GET_COLLECTION_CACHE_PREFETCH_KEY, false, silent);
+
+        etagIndex = asBoolean(conf, ETAG_INDEX_KEY, false, silent);
+        etagIndexWatch = asBoolean(conf, ETAG_INDEX_WATCH_KEY, false, silent);
+        etagIndexDocs = asInteger(conf, ETAG_INDEX_DOCS_KEY, 10_000, silent);
+
+        changeStreamsSendQueueSize = asInteger(conf, CHANGE_STREAMS_SEND_QUEUE_SIZE_KEY, 1_000, silent);
+
+        CHANGE_STREAMS_OVERFLOW_POLICY overflowPolicy;
+        try {
+            var value = asString(conf, CHANGE_STREAMS_SEND_QUEUE_OVERFLOW_KEY, "disconnect", silent);
+            overflowPolicy = CHANGE_STREAMS_OVERFLOW_POLICY.valueOf(value.toUpperCase(Locale.getDefault()).replace('-', '_'));
+        } catch (IllegalArgumentException iae) {
+            LOGGER.warn("wrong value for parameter {} setting it to default value {}", CHANGE_STREAMS_SEND_QUEUE_OVERFLOW_KEY, "disconnect");
+            overflowPolicy = CHANGE_STREAMS_OVERFLOW_POLICY.DISCONNECT;
+        }
+        changeStreamsSendQueueOverflow = overflowPolicy;
+
+        changeStreamsReplayWindow = asInteger(conf, CHANGE_STREAMS_REPLAY_WINDOW_KEY, 100, silent);
+        changeStreamsSseKeepAlive = asInteger(conf, CHANGE_STREAMS_SSE_KEEP_ALIVE_KEY, 20, silent);
 
         Map<String, Object> etagCheckPolicies = asMap(conf, ETAG_CHECK_POLICY_KEY, null, silent);
 
@@ -231,6 +263,8 @@ public class MongoServiceConfiguration {
 
         maxPagesize = asInteger(conf, MAX_PAGESIZE_KEY, DEFAULT_MAX_PAGESIZE, silent);
 
+        maxStreamPagesize = asInteger(conf, MAX_STREAM_PAGESIZE_KEY, DEFAULT_MAX_STREAM_PAGESIZE, silent);
+
         METRICS_GATHERING_LEVEL mglevel;
         try {
             var value = asString(conf, METRICS_GATHERING_LEVEL_KEY, "ROOT", silent);
@@ -246,14 +280,18 @@ public class MongoServiceConfiguration {
         return "Configuration{instanceBaseURL=" + instanceBaseURL
                 + ", defaultRepresentationFromat=" + defaultRepresentationFormat + ", mongoUri=" + mongoUri
                 + ", mongoMounts=" + mongoMounts + ", pluginsArgs=" + getPluginsArgs() + ", localCacheEnabled="
-                + localCacheEnabled + ", localCacheTtl=" + localCacheTtl + ", schemaCacheEnabled=" + schemaCacheEnabled
+                + localCacheEnabled + ", localCacheTtl=" + localCacheTtl + ", namespaceCatalogTtl=" + namespaceCatalogTtl + ", schemaCacheEnabled=" + schemaCacheEnabled
                 + ", schemaCacheTtl=" + schemaCacheTtl + ", requestsLimit=" + requestsLimit + ", metricsGatheringLevel="
                 + metricsGatheringLevel + ", cacheSize=" + getCollectionCacheSize + ", cacheTTL" + getCollectionCacheTTL
+                + ", etagIndex=" + etagIndex + ", etagIndexWatch=" + etagIndexWatch + ", etagIndexDocs=" + etagIndexDocs
+                + ", changeStreamsSendQueueSize=" + changeStreamsSendQueueSize + ", changeStreamsSendQueueOverflow=" + changeStreamsSendQueueOverflow
+                + ", changeStreamsReplayWindow=" + changeStreamsReplayWindow + ", changeStreamsSseKeepAlive=" + changeStreamsSseKeepAlive
                 + ", dbEtagCheckPolicy=" + dbEtagCheckPolicy + ", collEtagCheckPolicy=" + collEtagCheckPolicy + ", docEtagCheckPolicy="
                 + docEtagCheckPolicy + ", connectionOptions=" + connectionOptions + ", queryTimeLimit=" + queryTimeLimit
                 + ", aggregationTimeLimit=" + aggregationTimeLimit + ", aggregationCheckOperators="
                 + aggregationCheckOperators + ", cursorBatchSize=" + cursorBatchSize + ", defaultPagesize="
-                + defaultPagesize + ", maxPagesize=" + maxPagesize + ", configurationFileMap=" + mongoSrvConfiguration
+                + defaultPagesize + ", maxPagesize=" + maxPagesize + ", maxStreamPagesize=" + maxStreamPagesize
+                + ", configurationFileMap=" + mongoSrvConfiguration
                 + '}';
     }
 
@@ -278,6 +316,13 @@ public class MongoServiceConfiguration {
         return localCacheTtl;
     }
 
+    /**
+     * @return the namespaceCatalogTtl
+     */
+    public long getNamespaceCatalogTtl() {
+        return namespaceCatalogTtl;
+    }
+
     /**
      * @return the requestsLimit
      */
@@ -327,6 +372,62 @@ public class MongoServiceConfiguration {
         return getCollectionCacheDocs;
     }
 
+    /**
+     * @return true if the next window of documents is prefetched in background
+     */
+    public boolean isGetCollectionCachePrefetch() {
+        return getCollectionCachePrefetch;
+    }
+
+    /**
+     * @return true if conditional GET requests are answered from the etag index
+     */
+    public boolean isEtagIndex() {
+        return etagIndex;
+    }
+
+    /**
+     * @return true if the etag index watches the changes made by other clients
+     */
+    public boolean isEtagIndexWatch() {
+        return etagIndexWatch;
+    }
+
+    /**
+     * @return the number of document etags kept by the etag index
+     */
+    public int getEtagIndexDocs() {
+        return etagIndexDocs;
+    }
+
+    /**
+     * @return the max number of change stream notifications queued for a websocket session
+     */
+    public int getChangeStreamsSendQueueSize() {
+        return changeStreamsSendQueueSize;
+    }
+
+    /**
+     * @return the policy applied when the send queue of a websocket session is full
+     */
+    public CHANGE_STREAMS_OVERFLOW_POLICY getChangeStreamsSendQueueOverflow() {
+        return changeStreamsSendQueueOverflow;
+    }
+
+    /**
+     * @return the number of recent events of each change stream kept to resume the streams
+     */
+    public int getChangeStreamsReplayWindow() {
+        return changeStreamsReplayWindow;
+    }
+
+    /**
+     * @return the interval in seconds of the keep-alive comments of the server-sent events sessions, 0 to disable them
+     */
+    public int getChangeStreamsSseKeepAlive() {
+        return changeStreamsSseKeepAlive;
+    }
+
     /**
      * @return the mongoUri
      */
@@ -418,6 +519,13 @@ public class MongoServiceConfiguration {
         return maxPagesize;
     }
 
+    /**
+     * @return the maxStreamPagesize
+     */
+    public int getMaxStreamPagesize() {
+        return maxStreamPagesize;
+    }
+
     /**
      * @return the defaultPagesize
      */
@@ -443,6 +551,26 @@ public class MongoServiceConfiguration {
         return getMetricsGatheringLevel().compareTo(level) >= 0;
     }
 
+    /**
+     * the policy applied when the send queue of a change stream websocket
+     * session is full
+     */
+    public enum CHANGE_STREAMS_OVERFLOW_POLICY {
+        /**
+         * drop the oldest queued notification
+         */
+        DROP_OLDEST,
+        /**
+         * drop the queued notification of the same document, or the oldest
+         * one if none
+         */
+        COALESCE,
+        /**
+         * close the websocket session
+         */
+        DISCONNECT
+    }
+
     /**
      *
      */
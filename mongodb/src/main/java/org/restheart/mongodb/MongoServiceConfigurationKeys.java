@@ -68,6 +68,11 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final int DEFAULT_MAX_PAGESIZE = 1000;
 
+    /**
+     * default value for max-stream-pagesize
+     */
+    public static final int DEFAULT_MAX_STREAM_PAGESIZE = 100_000;
+
     /**
      * default value for max-pagesize
      */
@@ -93,6 +98,11 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final String LOCAL_CACHE_TTL_KEY = "local-cache-ttl";
 
+    /**
+     * the key for the namespace-catalog-ttl property.
+     */
+    public static final String NAMESPACE_CATALOG_TTL_KEY = "namespace-catalog-ttl";
+
     /**
      * the key for the schema-cache-enabled property.
      */
@@ -179,6 +189,46 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final String GET_COLLECTION_CACHE_DOCS_KEY = "get-collection-cache-docs";
 
+    /**
+     * the key for the get-collection-cache-prefetch property.
+     */
+    public static final String GET_COLLECTION_CACHE_PREFETCH_KEY = "get-collection-cache-prefetch";
+
+    /**
+     * the key for the etag-index property.
+     */
+    public static final String ETAG_INDEX_KEY = "etag-index";
+
+    /**
+     * the key for the etag-index-watch property.
+     */
+    public static final String ETAG_INDEX_WATCH_KEY = "etag-index-watch";
+
+    /**
+     * the key for the etag-index-docs property.
+     */
+    public static final String ETAG_INDEX_DOCS_KEY = "etag-index-docs";
+
+    /**
+     * the key for the change-streams-send-queue-size property.
+     */
+    public static final String CHANGE_STREAMS_SEND_QUEUE_SIZE_KEY = "change-streams-send-queue-size";
+
+    /**
+     * the key for the change-streams-send-queue-overflow property.
+     */
+    public static final String CHANGE_STREAMS_SEND_QUEUE_OVERFLOW_KEY = "change-streams-send-queue-overflow";
+
+    /**
+     * the key for the change-streams-replay-window property.
+     */
+    public static final String CHANGE_STREAMS_REPLAY_WINDOW_KEY = "change-streams-replay-window";
+
+    /**
+     * the key for the change-streams-sse-keep-alive property.
+     */
+    public static final String CHANGE_STREAMS_SSE_KEEP_ALIVE_KEY = "change-streams-sse-keep-alive";
+
     /**
      * the key for the etag-check-policy property.
      */
@@ -212,6 +262,11 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final String MAX_PAGESIZE_KEY = "max-pagesize";
 
+    /**
+     * The key for specifying the max pagesize of streamed responses
+     */
+    public static final String MAX_STREAM_PAGESIZE_KEY = "max-stream-pagesize";
+
     /**
      * The key for specifying the default pagesize
      */
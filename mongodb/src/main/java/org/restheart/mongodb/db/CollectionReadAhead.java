@@ -0,0 +1,195 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import static org.fusesource.jansi.Ansi.Color.YELLOW;
+import static org.fusesource.jansi.Ansi.ansi;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import static org.restheart.mongodb.MongoServiceConfigurationKeys.DEFAULT_CURSOR_BATCH_SIZE;
+import org.restheart.utils.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the documents of GET /db/coll?cache requests through the
+ * GetCollectionCache.
+ *
+ * On a cache miss, it reads with its own cursor the window of
+ * get-collection-cache-docs documents starting from the requested page and
+ * caches it. When get-collection-cache-prefetch is enabled and a request
+ * reads the last page of a cached window, the next window is read in
+ * background, so that a client walking the pages sequentially usually finds
+ * the next page already cached.
+ *
+ * NOTE: this class is package-private and only meant to be used as a delagate
+ * within the Collections class.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class CollectionReadAhead {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CollectionReadAhead.class);
+
+    private static final int WINDOW = MongoServiceConfiguration.get() != null
+        ? MongoServiceConfiguration.get().getGetCollectionCacheDocs()
+        : DEFAULT_CURSOR_BATCH_SIZE;
+
+    private static final boolean PREFETCH = MongoServiceConfiguration.get() != null
+        && MongoServiceConfiguration.get().isGetCollectionCachePrefetch();
+
+    // prefetches are dropped rather than queued when the database is slower than the clients
+    private static final ThreadPoolExecutor PREFETCHER = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(16),
+        r -> {
+            var t = new Thread(r, "get-collection-cache-prefetcher");
+            t.setDaemon(true);
+            return t;
+        });
+
+    private final Collections collections;
+    private final GetCollectionCache cache = GetCollectionCache.getInstance();
+
+    // the windows being prefetched
+    private final Set<String> prefetching = ConcurrentHashMap.newKeySet();
+
+    CollectionReadAhead(Collections collections) {
+        this.collections = collections;
+    }
+
+    /**
+     *
+     * @param cs the client session
+     * @param coll the collection
+     * @param from the index of the first document of the page
+     * @param pagesize
+     * @param sortBy
+     * @param filters
+     * @param hint
+     * @param keys
+     * @return the documents of the page
+     */
+    BsonArray read(final Optional<ClientSession> cs,
+        final MongoCollection<BsonDocument> coll,
+        final int from,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys) {
+        var to = from + pagesize;
+
+        var window = cache.find(new GetCollectionCacheKey(cs, coll, sortBy, filters, keys, hint, from, to, 0, false));
+
+        if (window == null) {
+            window = fill(cs, coll, from, pagesize, sortBy, filters, hint, keys);
+        }
+
+        if (PREFETCH && cs.isEmpty() && !window.getKey().exhausted() && to + pagesize > window.getKey().to()) {
+            // the next page is not in this window
+            prefetch(coll, to, pagesize, sortBy, filters, hint, keys);
+        }
+
+        return page(window, from, pagesize);
+    }
+
+    private Pair<GetCollectionCacheKey, List<BsonDocument>> fill(final Optional<ClientSession> cs,
+        final MongoCollection<BsonDocument> coll,
+        final int from,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys) {
+        // the window must contain at least the requested page
+        var size = Math.max(WINDOW, pagesize);
+
+        var docs = new ArrayList<BsonDocument>();
+
+        try (var cursor = collections.findIterable(cs, coll, sortBy, filters, hint, keys, size).skip(from).limit(size).cursor()) {
+            while (cursor.hasNext()) {
+                docs.add(cursor.next());
+            }
+        }
+
+        var exhausted = docs.size() < size;
+        var key = new GetCollectionCacheKey(cs, coll, sortBy, filters, keys, hint, from, from + docs.size(), System.nanoTime(), exhausted);
+        LOGGER.debug("{} entry in collection cache: {}", ansi().fg(YELLOW).bold().a("new").reset().toString(), key);
+        cache.put(key, docs);
+
+        return new Pair<>(key, docs);
+    }
+
+    private void prefetch(final MongoCollection<BsonDocument> coll,
+        final int from,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys) {
+        var id = coll.getNamespace() + " " + filters + " " + sortBy + " " + keys + " " + hint + " " + from;
+
+        if (!prefetching.add(id)) {
+            return;
+        }
+
+        try {
+            PREFETCHER.execute(() -> {
+                try {
+                    if (cache.find(new GetCollectionCacheKey(Optional.empty(), coll, sortBy, filters, keys, hint, from, from + pagesize, 0, false)) == null) {
+                        fill(Optional.empty(), coll, from, pagesize, sortBy, filters, hint, keys);
+                    }
+                } catch (Throwable t) {
+                    LOGGER.debug("error prefetching documents of {}", coll.getNamespace(), t);
+                } finally {
+                    prefetching.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            prefetching.remove(id);
+        }
+    }
+
+    private static BsonArray page(Pair<GetCollectionCacheKey, List<BsonDocument>> window, int from, int pagesize) {
+        var ret = new BsonArray();
+
+        var maxToIndex = window.getKey().to() - window.getKey().from();
+        var fromIndex = from - window.getKey().from();
+
+        if (fromIndex < maxToIndex) {
+            var toIndex = Math.min(fromIndex + pagesize, maxToIndex);
+            ret.addAll(window.getValue().subList(fromIndex, toIndex));
+        }
+
+        return ret;
+    }
+}
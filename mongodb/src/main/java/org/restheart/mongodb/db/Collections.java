@@ -20,7 +20,6 @@
  */
 package org.restheart.mongodb.db;
 
-import com.google.common.collect.Lists;
 import com.mongodb.MongoCommandException;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
@@ -28,9 +27,10 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.internal.MongoBatchCursorAdapter;
 import static com.mongodb.client.model.Filters.eq;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -47,8 +47,6 @@ import static org.restheart.exchange.ExchangeKeys.COLL_META_DOCID_PREFIX;
 import org.restheart.exchange.ExchangeKeys.METHOD;
 import org.restheart.exchange.ExchangeKeys.WRITE_MODE;
 import static org.restheart.exchange.ExchangeKeys.META_COLLNAME;
-import static org.fusesource.jansi.Ansi.Color.YELLOW;
-import static org.fusesource.jansi.Ansi.ansi;
 import org.restheart.mongodb.RHMongoClients;
 import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.RSOps;
@@ -67,8 +65,8 @@ import org.slf4j.LoggerFactory;
  */
 class Collections {
 
-    private static final int GET_COLLECTION_CACHE_BATCH_SIZE = MongoServiceConfiguration.get() != null
-        ? MongoServiceConfiguration.get().getGetCollectionCacheDocs()
+    private static final int CURSOR_BATCH_SIZE = MongoServiceConfiguration.get() != null
+        ? MongoServiceConfiguration.get().getCursorBatchSize()
         : DEFAULT_CURSOR_BATCH_SIZE;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Collections.class);
@@ -80,10 +78,17 @@ class Collections {
         FIELDS_TO_RETURN.put("_etag", new BsonInt32(1));
     }
 
+    private static final long NAMESPACE_CATALOG_TTL = MongoServiceConfiguration.get() != null
+        ? MongoServiceConfiguration.get().getNamespaceCatalogTtl()
+        : 60_000;
+
     private final MongoClient client;
+    private final CollectionReadAhead readAhead = new CollectionReadAhead(this);
+    private final NamespaceCatalog catalog;
 
     private Collections() {
         this.client = RHMongoClients.mclient();
+        this.catalog = new NamespaceCatalog(this.client, NAMESPACE_CATALOG_TTL);
     }
 
     private static Collections INSTANCE = new Collections();
@@ -92,6 +97,10 @@ class Collections {
         return INSTANCE;
     }
 
+    NamespaceCatalog catalog() {
+        return catalog;
+    }
+
     /**
      * Returns the MongoCollection object for the collection in db dbName.
      *
@@ -190,7 +199,7 @@ class Collections {
      * @param filter
      * @param hint
      * @param keys
-     * @param cursorAllocationPolicy
+     * @param useCache true to read through the GetCollectionCache
      * @return the documents in the collection as a BsonArray
      */
     BsonArray getCollectionData(
@@ -207,85 +216,64 @@ class Collections {
         final boolean useCache)
         throws JsonParseException {
         var coll = collection(rsOps, dbName, collName);
-        var ret = new BsonArray();
 
-        if (!useCache) {
-            return getCollectionDataFromDb(cs, coll, rsOps, dbName, collName, page, pagesize, sortBy, filters, hint, keys, useCache);
+        if (useCache) {
+            return readAhead.read(cs, coll, pagesize * (page - 1), pagesize, sortBy, filters, hint, keys);
         } else {
-            var from = pagesize * (page - 1);
-            var to = from + pagesize;
-
-            var match = GetCollectionCache.getInstance().find(new GetCollectionCacheKey(cs, coll, sortBy, filters, hint, keys, from, to, 0, false));
-
-            if (match == null) {
-                return getCollectionDataFromDb(cs, coll, rsOps, dbName, collName, page, pagesize, sortBy, filters, hint, keys, useCache);
-            } else {
-                var maxToIndex = match.getKey().to() - match.getKey().from();
-                var fromIndex = from - match.getKey().from();
-
-                if (fromIndex >= maxToIndex) {
-                    return ret;
-                } else {
-                    var toIndex = Math.min(fromIndex + pagesize, maxToIndex);
-                    ret.addAll(match.getValue().subList(fromIndex, toIndex));
-                    return ret;
-                }
-            }
+            return getCollectionDataFromDb(cs, coll, page, pagesize, sortBy, filters, hint, keys);
         }
     }
 
-    // match from=40.900, to=41.080
-    // from 41.000 -> to 41.100
-    // fromIndex = 41.000-40.900=100
-    // toIndex = min(100+100, 41.080-40.900) => 180
-    // => subList(100,180)
-
-    private int cursorCount(MongoCursor<?> cursor) {
-        try {
-            var _batchCursor = MongoBatchCursorAdapter.class.getDeclaredField("batchCursor");
-            _batchCursor.setAccessible(true);
-            var batchCursor = _batchCursor.get(cursor);
-
-            var _count = batchCursor.getClass().getDeclaredField("count");
-            _count.setAccessible(true);
-            return (int) _count.get(batchCursor);
-        } catch(NoSuchFieldException | IllegalAccessException ex) {
-            LOGGER.warn("cannot access field Cursor.batchCursor.count ", ex);
-            return 0;
-        }
-    }
+    /**
+     * Opens the cursor over a page of documents of the collection. The caller
+     * is responsible of closing it.
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param page
+     * @param pagesize
+     * @param sortBy
+     * @param filters
+     * @param hint
+     * @param keys
+     * @return the cursor over the documents of the page
+     */
+    MongoCursor<BsonDocument> getCollectionDataCursor(
+        final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final String collName,
+        final int page,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys)
+        throws JsonParseException {
+        var coll = collection(rsOps, dbName, collName);
+        var from = pagesize * (page - 1);
+        var batchSize = Math.min(pagesize, CURSOR_BATCH_SIZE);
 
-    @SuppressWarnings("unchecked")
-    private List<BsonDocument> cursorDocs(MongoCursor<?> cursor) {
-        try {
-            var _batchCursor = MongoBatchCursorAdapter.class.getDeclaredField("curBatch");
-            _batchCursor.setAccessible(true);
-            var ret = (List<BsonDocument>) _batchCursor.get(cursor);
-            return ret == null ? Lists.newArrayList() : ret;
-        } catch(NoSuchFieldException | IllegalAccessException ex) {
-            LOGGER.warn("cannot access field Cursor.curBatch ", ex);
-            return Lists.newArrayList();
-        }
+        return findIterable(cs, coll, sortBy, filters, hint, keys, batchSize)
+            .skip(from)
+            .limit(pagesize)
+            .cursor();
     }
 
     private BsonArray getCollectionDataFromDb(final Optional<ClientSession> cs,
         final MongoCollection<BsonDocument> coll,
-        final Optional<RSOps> rsOps,
-        final String dbName,
-        final String collName,
         final int page,
         final int pagesize,
         final BsonDocument sortBy,
         final BsonDocument filters,
         final BsonDocument hint,
-        final BsonDocument keys,
-        final boolean useCache) {
+        final BsonDocument keys) {
         var ret = new BsonArray();
         int from = pagesize * (page - 1);
 
-        var batchSize = useCache ? GET_COLLECTION_CACHE_BATCH_SIZE : pagesize;
-
-        try (var cursor = findIterable(cs, coll, sortBy, filters, hint, keys, batchSize).skip(from).cursor()) {
+        try (var cursor = findIterable(cs, coll, sortBy, filters, hint, keys, pagesize).skip(from).cursor()) {
             int added = 0;
             while(added < pagesize) {
                 var next = cursor.tryNext();
@@ -296,16 +284,6 @@ class Collections {
                     added++;
                 }
             }
-
-            // cache the cursor
-            if (useCache) {
-                var count = cursorCount(cursor);
-                var to = from + count;
-                var exhausted = count < GET_COLLECTION_CACHE_BATCH_SIZE;
-                var newkey = new GetCollectionCacheKey(cs, coll, sortBy, filters, hint, keys, from, to, System.nanoTime(), exhausted);
-                LOGGER.debug("{} entry in collection cache: {}", ansi().fg(YELLOW).bold().a("new").reset().toString(), newkey);
-                GetCollectionCache.getInstance().put(newkey, cursorDocs(cursor));
-            }
         }
 
         return ret;
@@ -341,6 +319,50 @@ class Collections {
         return props;
     }
 
+    /**
+     * Returns the properties documents of the collections with a single query.
+     *
+     * The collections must exist, e.g. as listed by listCollectionNames(), since
+     * this does not check it: the ones without properties get {_id: collName}
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collNames the names of existing collections
+     * @return the collection properties documents by collection name
+     */
+    public Map<String, BsonDocument> getCollectionsProps(final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final List<String> collNames) {
+        var ret = new HashMap<String, BsonDocument>();
+
+        if (collNames.isEmpty()) {
+            return ret;
+        }
+
+        var propsColl = collection(rsOps, dbName, META_COLLNAME);
+
+        var ids = new BsonArray();
+        collNames.forEach(collName -> ids.add(new BsonString(COLL_META_DOCID_PREFIX.concat(collName))));
+
+        var query = new BsonDocument("_id", new BsonDocument("$in", ids));
+
+        var found = cs.isPresent()
+            ? propsColl.find(cs.get(), query)
+            : propsColl.find(query);
+
+        for (var props : found.batchSize(collNames.size())) {
+            var collName = props.getString("_id").getValue().substring(COLL_META_DOCID_PREFIX.length());
+            props.append("_id", new BsonString(collName));
+            ret.put(collName, props);
+        }
+
+        collNames.forEach(collName -> ret.computeIfAbsent(collName, n -> new BsonDocument("_id", new BsonString(n))));
+
+        return ret;
+    }
+
     /**
      * Returns true if the collection exists
      *
@@ -354,6 +376,11 @@ class Collections {
         final Optional<RSOps> rsOps,
         final String dbName,
         final String collName) {
+        // the catalog does not know the collections created in a transaction
+        if (cs.isEmpty() && catalog.isEnabled()) {
+            return catalog.collectionExists(dbName, collName);
+        }
+
         var db = db(rsOps, dbName);
         var dbCollections = cs.isPresent()
             ? db.listCollectionNames(cs.get())
@@ -402,6 +429,8 @@ class Collections {
                 } else {
                     db.createCollection(collName);
                 }
+
+                catalog.created(dbName, collName);
             } catch (MongoCommandException ex) {
                 // error 48 is NamespaceExists
                 // this can happen when a request A creates a collection
@@ -485,6 +514,7 @@ class Collections {
                         Optional.empty(),
                         dcontent);
 
+                    EtagIndex.get().written(mcoll.getNamespace().getDatabaseName(), collName);
                     yield new OperationResult(ret.getHttpCode() > 0 ? ret.getHttpCode() : HttpStatus.SC_OK, newEtag);
                 }
 
@@ -498,6 +528,8 @@ class Collections {
                         Optional.empty(),
                         Optional.empty(),
                         dcontent);
+
+                    EtagIndex.get().written(mcoll.getNamespace().getDatabaseName(), collName);
                     yield new OperationResult(ret.getHttpCode() > 0 ? ret.getHttpCode() : updating ? HttpStatus.SC_OK : HttpStatus.SC_CREATED, newEtag, ret.getOldData(), ret.getNewData());
                 }
 
@@ -555,6 +587,10 @@ class Collections {
             mcoll.deleteOne(query);
         }
 
+        catalog.deleted(dbName, collName);
+
+        EtagIndex.get().written(dbName, collName);
+
         return new OperationResult(HttpStatus.SC_NO_CONTENT, null, properties, null);
     }
 }
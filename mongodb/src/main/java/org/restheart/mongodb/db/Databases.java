@@ -24,9 +24,11 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import static com.mongodb.client.model.Filters.eq;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -113,6 +115,11 @@ public class Databases {
      * @return true if the db exists
      */
     public boolean doesDbExist(final Optional<ClientSession> cs, Optional<RSOps> rsOps, String dbName) {
+        // the catalog does not know the collections created in a transaction
+        if (cs.isEmpty() && collections.catalog().isEnabled()) {
+            return collections.catalog().dbExists(dbName);
+        }
+
         var db = db(rsOps, dbName);
         // at least one collection exists for an existing db
         return cs.isPresent()
@@ -229,28 +236,89 @@ public class Databases {
         // apply page and pagesize
         _colls = _colls.subList((page - 1) * pagesize, (page - 1) * pagesize + pagesize > _colls.size() ? _colls.size() : (page - 1) * pagesize + pagesize);
 
+        var useCache = MetadataCachesSingleton.isEnabled() && !noCache;
+
+        var collsProps = new HashMap<String, BsonDocument>();
+        var missing = new ArrayList<String>();
+
+        for (var collName : _colls) {
+            var cached = useCache ? MetadataCachesSingleton.getInstance().getCachedCollectionProperties(dbName, collName) : null;
+
+            if (cached != null) {
+                collsProps.put(collName, cached);
+            } else {
+                missing.add(collName);
+            }
+        }
+
+        // the properties not cached are read with a single query, the collections exist since listed
+        var found = collections.getCollectionsProps(cs, rsOps, dbName, missing);
+        collsProps.putAll(found);
+
+        if (useCache && cs.isEmpty()) {
+            found.forEach((collName, collProps) -> MetadataCachesSingleton.getInstance().putCollectionProperties(dbName, collName, collProps));
+        }
+
         var data = new BsonArray();
 
-        _colls.stream().map((collName) -> {
-            var properties= new BsonDocument("_id", new BsonString(collName));
+        _colls.forEach(collName -> {
+            var properties = new BsonDocument("_id", new BsonString(collName));
+            properties.putAll(collsProps.get(collName));
+            data.add(properties);
+        });
+
+        return data;
+    }
+
+    /**
+     * Returns the properties of the databases.
+     *
+     * The databases must exist, e.g. as listed by getDatabaseNames(), since this
+     * does not check it: the ones without properties get {_id: dbName}. The
+     * properties of each database are in its own _properties collection, so
+     * they cannot be read with a single query.
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbNames the names of existing databases
+     * @param noCache
+     * @return the properties of the databases
+     */
+    public BsonArray getDatabasesData(
+        final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final List<String> dbNames,
+        boolean noCache) {
+        var useCache = MetadataCachesSingleton.isEnabled() && !noCache;
+
+        var data = new BsonArray();
+
+        for (var dbName : dbNames) {
+            var cached = useCache ? MetadataCachesSingleton.getInstance().getCachedDBProperties(dbName) : null;
+
+            if (cached != null) {
+                data.add(cached);
+                continue;
+            }
 
-            BsonDocument collProperties;
+            var propsColl = collections.collection(rsOps, dbName, META_COLLNAME);
 
-            if (MetadataCachesSingleton.isEnabled() && !noCache) {
-                collProperties = MetadataCachesSingleton.getInstance().getCollectionProperties(dbName, collName);
+            var props = cs.isPresent()
+                ? propsColl.find(cs.get(), PROPS_QUERY).limit(1).first()
+                : propsColl.find(PROPS_QUERY).limit(1).first();
+
+            if (props != null) {
+                props.append("_id", new BsonString(dbName));
             } else {
-                collProperties = collections.getCollectionProps(cs, rsOps, dbName, collName);
+                props = new BsonDocument("_id", new BsonString(dbName));
             }
 
-            if (collProperties != null) {
-                properties.putAll(collProperties);
+            if (useCache && cs.isEmpty()) {
+                MetadataCachesSingleton.getInstance().putDBProperties(dbName, props);
             }
 
-            return properties;
+            data.add(props);
         }
-        ).forEach((item) -> {
-            data.add(item);
-        });
 
         return data;
     }
@@ -359,6 +427,10 @@ public class Databases {
             Optional.empty(),
             Optional.empty(),
             dcontent);
+
+        // the properties collection is created with the first write
+        collections.catalog().created(mcoll.getNamespace().getDatabaseName(), META_COLLNAME);
+
         return new OperationResult(ret.getHttpCode() > 0 ? ret.getHttpCode() : updating ? HttpStatus.SC_OK : HttpStatus.SC_CREATED, newEtag);
     }
 
@@ -405,6 +477,9 @@ public class Databases {
             db.drop();
         }
 
+        collections.catalog().deleted(dbName);
+        EtagIndex.get().invalidate(dbName);
+
         return new OperationResult(HttpStatus.SC_NO_CONTENT);
     }
 
@@ -496,6 +571,35 @@ public class Databases {
         return collections.getCollectionData(cs, rsOps, dbName, collName, page, pagesize, sortBy, filters, hint, keys, useCache);
     }
 
+    /**
+     *
+     * @param cs the client session
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName the collection name
+     * @param page
+     * @param pagesize
+     * @param sortBy
+     * @param filter
+     * @param hint
+     * @param keys
+     * @return the cursor over the documents of the page, to be closed by the caller
+     */
+    public MongoCursor<BsonDocument> getCollectionDataCursor(
+        final Optional<ClientSession> cs,
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final String collName,
+        final int page,
+        final int pagesize,
+        final BsonDocument sortBy,
+        final BsonDocument filters,
+        final BsonDocument hint,
+        final BsonDocument keys)
+        throws JsonParseException {
+        return collections.getCollectionDataCursor(cs, rsOps, dbName, collName, page, pagesize, sortBy, filters, hint, keys);
+    }
+
     /**
      *
      * @param cs the client session
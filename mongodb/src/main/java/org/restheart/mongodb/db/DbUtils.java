@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.bson.BsonArray;
 import org.bson.BsonBoolean;
@@ -127,6 +128,26 @@ public class DbUtils {
      */
     public final static BulkWriteOptions BWO_NOT_ORDERED = new BulkWriteOptions().ordered(false);
 
+    /**
+     *
+     */
+    public final static FindOneAndUpdateOptions FOU_BEFORE_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndUpdateOptions FOU_BEFORE_NOT_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(false).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndReplaceOptions FOR_BEFORE_UPSERT_OPS = new FindOneAndReplaceOptions().upsert(true).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndReplaceOptions FOR_BEFORE_NOT_UPSERT_OPS = new FindOneAndReplaceOptions().upsert(false).returnDocument(ReturnDocument.BEFORE);
+
     private static final Bson IMPOSSIBLE_CONDITION = exists("_id", false);
 
     /**
@@ -180,6 +201,10 @@ public class DbUtils {
      * --------------------------------------------------------------------------------------------
      * (1) uses a find condition that won't match any existing document, making sure the operation is an insert
      *
+     * Each write is a single round trip: findOneAndUpdate and findOneAndReplace return the old document
+     * and the new document is known locally. Only when a PATCH uses update operators other than $set
+     * and $unset, the new document is read from the db if and when OperationResult.getNewData() is invoked.
+     *
      *
      * @param cs the client session
      * @param method the request method
@@ -220,25 +245,14 @@ public class DbUtils {
             return new OperationResult(HttpStatus.SC_BAD_REQUEST);
         }
 
-        // get the oldDocument depending on the request method
-        var oldDocument = switch (writeMode) {
-            case INSERT -> null;
-            case UPDATE -> cs.isPresent() ? coll.find(cs.get(), query).first() : coll.find(query).first() ;
-            case UPSERT -> documentId.isPresent()
-                ? cs.isPresent() ? coll.find(cs.get(), query).first() : coll.find(query).first()
-                : null;
-        };
-
-        if (writeMode == WRITE_MODE.UPDATE && oldDocument == null) {
-            return new OperationResult(HttpStatus.SC_NOT_FOUND);
-        }
-
+        // each write is a single round trip: the old document is returned by
+        // the write operation and the new one is known locally when possible
         return switch(writeMode) {
             case INSERT -> switch(method) {
                 case PATCH -> {
                     try {
                         var newDocument = cs.isPresent()
-                            ? coll.findOneAndUpdate(cs.get(), IMPOSSIBLE_CONDITION, getUpdateDocument(data, false), FAU_NOT_UPSERT_OPS)
+                            ? coll.findOneAndUpdate(cs.get(), IMPOSSIBLE_CONDITION, getUpdateDocument(data, false), FAU_UPSERT_OPS)
                             : coll.findOneAndUpdate(IMPOSSIBLE_CONDITION, getUpdateDocument(data, false), FAU_UPSERT_OPS);
                         yield new OperationResult(-1, null, newDocument);
                     } catch (IllegalArgumentException iae) {
@@ -250,19 +264,16 @@ public class DbUtils {
                     try {
                         resolveCurrentDateOperator(data);
 
-                        var insertedId = cs.isPresent()
-                            ? coll.insertOne(cs.get(), data).getInsertedId()
-                            : coll.insertOne(data).getInsertedId();
-
-                        var insertedQuery = eq("_id", insertedId);
+                        // the _id is generated here rather than by the driver,
+                        // so that the inserted document is fully known
+                        var newDocument = withId(data, () -> new BsonObjectId());
 
-                        if (shardKeys.isPresent() && !shardKeys.get().isEmpty()) {
-                            insertedQuery = and(insertedQuery, shardKeys.get());
+                        if (cs.isPresent()) {
+                            coll.insertOne(cs.get(), newDocument);
+                        } else {
+                            coll.insertOne(newDocument);
                         }
 
-                        var newDocument = cs.isPresent()
-                            ? coll.find(cs.get(), insertedQuery).first()
-                            : coll.find(insertedQuery).first();
                         yield new OperationResult(-1, null, newDocument);
                     } catch (IllegalArgumentException iae) {
                         yield new OperationResult(HttpStatus.SC_BAD_REQUEST, null, iae);
@@ -274,12 +285,49 @@ public class DbUtils {
 
             case UPDATE, UPSERT -> switch(method) {
                 case PATCH -> {
+                    BsonDocument oldDocument = null;
+
                     try {
-                        final var ops = writeMode == WRITE_MODE.UPSERT ? FOU_AFTER_UPSERT_OPS : FOU_AFTER_NOT_UPSERT_OPS;
-                        var newDocument = cs.isPresent()
-                            ? coll.findOneAndUpdate(cs.get(), query, getUpdateDocument(data, false), ops)
-                            : coll.findOneAndUpdate(query, getUpdateDocument(data, false), ops);
-                        yield new OperationResult(-1, oldDocument, newDocument);
+                        if (documentId.isEmpty()) {
+                            // nothing matches the query, the document is always upserted:
+                            // the write returns it, with the _id generated by the server
+                            var newDocument = cs.isPresent()
+                                ? coll.findOneAndUpdate(cs.get(), query, getUpdateDocument(data, false), FAU_UPSERT_OPS)
+                                : coll.findOneAndUpdate(query, getUpdateDocument(data, false), FAU_UPSERT_OPS);
+                            yield new OperationResult(-1, null, newDocument);
+                        }
+
+                        final var ops = writeMode == WRITE_MODE.UPSERT ? FOU_BEFORE_UPSERT_OPS : FOU_BEFORE_NOT_UPSERT_OPS;
+                        final var update = getUpdateDocument(data, false);
+
+                        oldDocument = cs.isPresent()
+                            ? coll.findOneAndUpdate(cs.get(), query, update, ops)
+                            : coll.findOneAndUpdate(query, update, ops);
+
+                        if (oldDocument == null && writeMode == WRITE_MODE.UPDATE) {
+                            yield new OperationResult(HttpStatus.SC_NOT_FOUND);
+                        }
+
+                        var newDocument = oldDocument == null ? null : applyUpdate(oldDocument, update);
+
+                        if (newDocument != null) {
+                            yield new OperationResult(-1, oldDocument, newDocument);
+                        } else {
+                            // the update cannot be applied locally, the new document
+                            // is read only if needed, e.g. by response interceptors
+                            var newId = oldDocument != null ? oldDocument.get("_id") : documentId.get();
+                            var newQuery = eq("_id", newId);
+
+                            if (shardKeys.isPresent() && !shardKeys.get().isEmpty()) {
+                                newQuery = and(newQuery, shardKeys.get());
+                            }
+
+                            final var _newQuery = newQuery;
+
+                            yield new OperationResult(-1, null, oldDocument, newId,
+                                () -> cs.isPresent() ? coll.find(cs.get(), _newQuery).first() : coll.find(_newQuery).first(),
+                                null);
+                        }
                     } catch (IllegalArgumentException iae) {
                         yield new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, iae);
                     }
@@ -287,17 +335,23 @@ public class DbUtils {
 
                 case PUT, POST -> {
                     try {
-                        if (filter.isPresent() && !filter.get().isEmpty()) {
-                            query = and(query, filter.get());
+                        // if the document is upserted without a documentId, the _id
+                        // is generated here rather than by the server, so that the
+                        // new document is fully known
+                        var newDocument = withId(getReplaceDocument(data), () -> documentId.isPresent() ? documentId.get() : new BsonObjectId());
+
+                        final var ops = writeMode == WRITE_MODE.UPSERT ? FOR_BEFORE_UPSERT_OPS : FOR_BEFORE_NOT_UPSERT_OPS;
+                        var oldDocument = cs.isPresent()
+                            ? coll.findOneAndReplace(cs.get(), query, newDocument, ops)
+                            : coll.findOneAndReplace(query, newDocument, ops);
+
+                        if (oldDocument == null && writeMode == WRITE_MODE.UPDATE) {
+                            yield new OperationResult(HttpStatus.SC_NOT_FOUND);
                         }
 
-                        final var ops = writeMode == WRITE_MODE.UPSERT ? FOR_AFTER_UPSERT_OPS : FOR_AFTER_NOT_UPSERT_OPS;
-                        var newDocument = cs.isPresent()
-                            ? coll.findOneAndReplace(cs.get(), query, getReplaceDocument(data), ops)
-                            : coll.findOneAndReplace(query, getReplaceDocument(data), ops);
                         yield new OperationResult(-1, oldDocument, newDocument);
                     } catch (IllegalArgumentException iae) {
-                        yield new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, iae);
+                        yield new OperationResult(HttpStatus.SC_BAD_REQUEST, null, iae);
                     }
                 }
 
@@ -306,6 +360,91 @@ public class DbUtils {
         };
     }
 
+    /**
+     *
+     * @param doc
+     * @param id supplies the _id if doc does not have it
+     * @return doc, if it has the _id, otherwise a copy of doc with the _id as first key
+     */
+    static BsonDocument withId(final BsonDocument doc, final Supplier<BsonValue> id) {
+        if (doc.containsKey("_id")) {
+            return doc;
+        } else {
+            var ret = new BsonDocument("_id", id.get());
+            ret.putAll(doc);
+            return ret;
+        }
+    }
+
+    /**
+     * Applies the update to a copy of the document, as MongoDB does.
+     *
+     * Only the $set and $unset operators are supported, also with dot notation
+     * on nested documents. Note that the order of the new fields might differ
+     * from the order used by MongoDB.
+     *
+     * @param doc
+     * @param update the update document, with update operators
+     * @return the updated copy of the document, or null if the update cannot
+     * be applied locally
+     */
+    static BsonDocument applyUpdate(final BsonDocument doc, final BsonDocument update) {
+        var ret = doc.clone();
+
+        for (var op : update.entrySet()) {
+            if (!op.getValue().isDocument()) {
+                return null;
+            }
+
+            var set = switch(op.getKey()) {
+                case "$set" -> true;
+                case "$unset" -> false;
+                default -> null;
+            };
+
+            if (set == null) {
+                return null;
+            }
+
+            fields:
+            for (var field : op.getValue().asDocument().entrySet()) {
+                var path = field.getKey().split("\\.");
+
+                // the document containing the last field of the path
+                var parent = ret;
+
+                for (var i = 0; i < path.length - 1; i++) {
+                    var next = parent.get(path[i]);
+
+                    if (next == null) {
+                        if (!set) {
+                            // nothing to unset
+                            continue fields;
+                        }
+
+                        next = new BsonDocument();
+                        parent.put(path[i], next);
+                    } else if (!next.isDocument()) {
+                        // e.g. array elements
+                        return null;
+                    }
+
+                    parent = next.asDocument();
+                }
+
+                var last = path[path.length - 1];
+
+                if (set) {
+                    parent.put(last, field.getValue());
+                } else {
+                    parent.remove(last);
+                }
+            }
+        }
+
+        return ret;
+    }
+
     /**
      *
      * @param cs the client session
@@ -138,28 +138,76 @@ public class Documents {
             content);
 
         var oldDocument = writeResult.getOldData();
-        var newDocument = writeResult.getNewData();
 
         if (oldDocument != null && checkEtag) {
             // check the old etag (if not match then restore the old document version)
-            return optimisticCheckEtag(
+            var ret = optimisticCheckEtag(
                 cs,
                 mcoll,
                 shardKeys,
                 oldDocument,
+                writeResult,
                 newEtag,
                 requestEtag,
                 HttpStatus.SC_OK,
                 false);
+
+            // the document is written even if restored afterwards
+            EtagIndex.get().written(dbName, collName);
+            return ret;
         } else {
             var httpCode = writeResult.getHttpCode() > 0 ? writeResult.getHttpCode() : oldDocument == null ? HttpStatus.SC_CREATED : HttpStatus.SC_OK;
 
             // invalidate the cache entris of this collection
             GetCollectionCache.getInstance().invalidateAll(dbName, collName);
-            return new OperationResult(httpCode, newEtag, oldDocument, newDocument, writeResult.getCause());
+            EtagIndex.get().written(dbName, collName);
+            return new OperationResult(httpCode, newEtag, oldDocument, writeResult.getNewId(), writeResult::getNewData, writeResult.getCause());
         }
     }
 
+    /**
+     * Inserts a document with write-behind, i.e. coalescing the concurrent
+     * inserts in the collection in bulk writes
+     *
+     * @param rsOps the ReplicaSet connection options
+     * @param dbName the database name
+     * @param collName
+     * @param newContent
+     * @param writeBehind the write-behind options of the collection
+     * @return the OperationResult
+     */
+    public OperationResult insertDocument(
+        final Optional<RSOps> rsOps,
+        final String dbName,
+        final String collName,
+        final BsonDocument newContent,
+        final WriteBehind writeBehind) {
+        var mcoll = collections.collection(rsOps, dbName, collName);
+
+        // genereate new etag
+        var newEtag = new BsonObjectId();
+
+        final var content = DbUtils.validContent(newContent);
+
+        content.put("_etag", newEtag);
+
+        BsonDocument newDocument;
+
+        try {
+            DbUtils.resolveCurrentDateOperator(content);
+            newDocument = DbUtils.withId(content, () -> new BsonObjectId());
+        } catch (IllegalArgumentException iae) {
+            return new OperationResult(HttpStatus.SC_BAD_REQUEST, null, iae);
+        }
+
+        InsertsBatcher.get().insert(mcoll, newDocument, writeBehind);
+
+        // invalidate the cache entris of this collection
+        GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+        EtagIndex.get().written(dbName, collName);
+        return new OperationResult(HttpStatus.SC_CREATED, newEtag, null, newDocument);
+    }
+
     /**
      * @param cs the client session
      * @param rsOps the ReplicaSet connection options
@@ -190,18 +238,23 @@ public class Documents {
             .filter(d -> d != null && d.isDocument())
             .forEachOrdered(document -> document.asDocument().put("_etag", newEtag));
 
-        var ret = DbUtils.bulkWriteDocuments(
-            cs,
-            mcoll,
-            documents,
-            filter,
-            shardKeys,
-            writeMode);
+        try {
+            var ret = DbUtils.bulkWriteDocuments(
+                cs,
+                mcoll,
+                documents,
+                filter,
+                shardKeys,
+                writeMode);
 
-        // invalidate the cache entris of this collection
-        GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+            // invalidate the cache entris of this collection
+            GetCollectionCache.getInstance().invalidateAll(dbName, collName);
 
-        return ret;
+            return ret;
+        } finally {
+            // some documents might be written even if the bulk write fails
+            EtagIndex.get().written(dbName, collName);
+        }
     }
 
     /**
@@ -251,6 +304,9 @@ public class Documents {
                 case BAD_VALUE_KEY_ERROR -> new BulkOperationResult(ResponseHelper.getHttpStatusFromErrorCode(mce.getCode()), null, null);
                 default -> throw mce;
             };
+        } finally {
+            // some documents might be written even if the bulk write fails
+            EtagIndex.get().written(dbName, collName);
         }
     }
 
@@ -287,17 +343,23 @@ public class Documents {
             return new OperationResult(HttpStatus.SC_NOT_FOUND);
         } else if (checkEtag) {
             // check the old etag (in not match restore the old document version)
-            return optimisticCheckEtag(
+            var ret = optimisticCheckEtag(
                 cs,
                 mcoll,
                 Optional.empty(),
                 oldDocument,
                 null,
+                null,
                 requestEtag,
                 HttpStatus.SC_NO_CONTENT, true);
+
+            // the document is deleted even if restored afterwards
+            EtagIndex.get().written(dbName, collName);
+            return ret;
         } else {
             // invalidate the cache entris of this collection
             GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+            EtagIndex.get().written(dbName, collName);
             return new OperationResult(HttpStatus.SC_NO_CONTENT, oldDocument);
         }
     }
@@ -362,12 +424,17 @@ public class Documents {
 
         deletes.add(new DeleteManyModel<>(_filter));
 
-        var result = cs.isPresent() ? mcoll.bulkWrite(cs.get(), deletes) : mcoll.bulkWrite(deletes);
+        try {
+            var result = cs.isPresent() ? mcoll.bulkWrite(cs.get(), deletes) : mcoll.bulkWrite(deletes);
 
-        // invalidate the cache entris of this collection
-        GetCollectionCache.getInstance().invalidateAll(dbName, collName);
+            // invalidate the cache entris of this collection
+            GetCollectionCache.getInstance().invalidateAll(dbName, collName);
 
-        return new BulkOperationResult(HttpStatus.SC_OK, null, result);
+            return new BulkOperationResult(HttpStatus.SC_OK, null, result);
+        } finally {
+            // some documents might be deleted even if the bulk write fails
+            EtagIndex.get().written(dbName, collName);
+        }
     }
 
     private OperationResult optimisticCheckEtag(
@@ -375,6 +442,7 @@ public class Documents {
         final MongoCollection<BsonDocument> coll,
         final Optional<BsonDocument> shardKeys,
         final BsonDocument oldDocument,
+        final OperationResult writeResult,
         final BsonObjectId newEtag,
         final String requestEtag,
         final int httpStatusIfOk,
@@ -420,14 +488,12 @@ public class Documents {
         }
 
         if (Objects.equals(_requestEtag, oldEtag)) {
-            var query = eq("_id", oldDocument.get("_id"));
-
-            var newDocument = cs.isPresent() ? coll.find(cs.get(), query).first() : coll.find(query).first();
-
             // invalidate the cache entris of this collection
             GetCollectionCache.getInstance().invalidateAll(coll);
 
-            return new OperationResult(httpStatusIfOk, newEtag, oldDocument, newDocument);
+            return deleting
+                ? new OperationResult(httpStatusIfOk, newEtag, oldDocument, null)
+                : new OperationResult(httpStatusIfOk, newEtag, oldDocument, writeResult.getNewId(), writeResult::getNewData, null);
         } else {
             // oopps, we need to restore old document
             // they call it optimistic lock strategy
@@ -0,0 +1,210 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.mongodb.MongoNamespace;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.utils.Pair;
+
+/**
+ * Keeps in memory an etag for each collection that changes on every write of
+ * the collection, so that conditional GET /db/coll and GET /db/coll/docid
+ * requests can be answered with 304 Not Modified without querying MongoDB.
+ *
+ * The etag of a collection is generated when first requested and dropped on
+ * every write made via Documents, Collections and Databases, so that the next
+ * request gets a new one. When etag-index-watch is enabled, EtagIndexActivator
+ * also drops it on the changes made by other clients and the index is not
+ * trusted while its change stream is not open.
+ *
+ * The etag of a document is remembered along with the etag of its collection
+ * at the time it was read: it is still current if the collection etag did not
+ * change since then.
+ *
+ * The etag of a collection must be read before querying it and the writes
+ * must be notified after being executed: this way a response is never tagged
+ * with an etag that is newer than its content.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class EtagIndex {
+    /**
+     *
+     * @return
+     */
+    public static EtagIndex get() {
+        return EtagIndexHolder.INSTANCE;
+    }
+
+    private final boolean enabled;
+    private final boolean watch;
+
+    private final Map<MongoNamespace, ObjectId> etags = new ConcurrentHashMap<>();
+
+    // document key -> (document etag, collection etag when read)
+    private final Cache<DocumentKey, Pair<ObjectId, ObjectId>> documents;
+
+    // with etag-index-watch, the writes of other clients are known only while the change stream is open
+    private volatile boolean trusted;
+
+    EtagIndex(boolean enabled, boolean watch, long docs) {
+        this.enabled = enabled;
+        this.watch = watch;
+        this.trusted = !watch;
+        this.documents = enabled ? CacheFactory.createLocalCache(docs, Cache.EXPIRE_POLICY.NEVER, -1) : null;
+    }
+
+    /**
+     * @return true if etag-index is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if etag-index-watch is enabled
+     */
+    public boolean isWatching() {
+        return watch;
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @return the current etag of the collection or null if the index is
+     * disabled or cannot be trusted
+     */
+    public ObjectId etag(String dbName, String collName) {
+        if (!enabled || !trusted) {
+            return null;
+        }
+
+        return etags.computeIfAbsent(new MongoNamespace(dbName, collName), ns -> new ObjectId());
+    }
+
+    /**
+     * Notifies that the collection has been written
+     *
+     * @param dbName
+     * @param collName
+     */
+    public void written(String dbName, String collName) {
+        if (enabled) {
+            etags.remove(new MongoNamespace(dbName, collName));
+        }
+    }
+
+    /**
+     * Notifies that the collection has been written
+     *
+     * @param ns
+     */
+    public void written(MongoNamespace ns) {
+        if (enabled) {
+            etags.remove(ns);
+        }
+    }
+
+    /**
+     * Notifies that the database has been dropped or written in an unknown
+     * collection
+     *
+     * @param dbName
+     */
+    public void invalidate(String dbName) {
+        if (enabled) {
+            etags.keySet().removeIf(ns -> ns.getDatabaseName().equals(dbName));
+        }
+    }
+
+    /**
+     * Notifies that any collection might have been written
+     */
+    public void invalidateAll() {
+        if (enabled) {
+            etags.clear();
+        }
+    }
+
+    void setTrusted(boolean trusted) {
+        this.trusted = trusted;
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param documentId
+     * @param filter the filter of the request, null if none
+     * @param etag the etag known by the client
+     * @return true if etag is the current etag of the document
+     */
+    public boolean isCurrent(String dbName, String collName, BsonValue documentId, BsonDocument filter, String etag) {
+        if (etag == null) {
+            return false;
+        }
+
+        var collEtag = etag(dbName, collName);
+
+        if (collEtag == null) {
+            return false;
+        }
+
+        var read = documents.get(new DocumentKey(dbName, collName, documentId, filter));
+
+        return read != null && read.isPresent()
+            && collEtag.equals(read.get().getValue())
+            && etag.equals(read.get().getKey().toHexString());
+    }
+
+    /**
+     * Remembers the etag of a document
+     *
+     * @param dbName
+     * @param collName
+     * @param documentId
+     * @param filter the filter of the request, null if none
+     * @param etag the etag of the document
+     * @param collEtag the etag of the collection, as returned by etag() before reading the document
+     */
+    public void read(String dbName, String collName, BsonValue documentId, BsonDocument filter, ObjectId etag, ObjectId collEtag) {
+        if (enabled && etag != null && collEtag != null) {
+            documents.put(new DocumentKey(dbName, collName, documentId, filter), new Pair<>(etag, collEtag));
+        }
+    }
+
+    private record DocumentKey(String dbName, String collName, BsonValue documentId, BsonDocument filter) {
+    }
+
+    private static class EtagIndexHolder {
+        private static final EtagIndex INSTANCE = MongoServiceConfiguration.get() == null
+            ? new EtagIndex(false, false, 0)
+            : new EtagIndex(MongoServiceConfiguration.get().isEtagIndex(), MongoServiceConfiguration.get().isEtagIndexWatch(), MongoServiceConfiguration.get().getEtagIndexDocs());
+    }
+}
@@ -0,0 +1,134 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.util.List;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import static org.restheart.mongodb.ConnectionChecker.connected;
+import static org.restheart.mongodb.ConnectionChecker.replicaSet;
+import org.restheart.plugins.Initializer;
+import org.restheart.plugins.Inject;
+import org.restheart.plugins.RegisterPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the EtagIndex up to date with the writes of other clients, including
+ * other RESTHeart nodes, watching the changes of all collections with a change
+ * stream.
+ *
+ * The index is trusted only while the change stream is open: when it fails,
+ * the etags of all collections are dropped after reopening it, since the
+ * changes made in the meantime are unknown.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@RegisterPlugin(name = "etagIndexActivator",
+        description = "watches the changes of all clients to update the etag index",
+        priority = Integer.MIN_VALUE + 1)
+public class EtagIndexActivator implements Initializer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtagIndexActivator.class);
+
+    private static final long RETRY_DELAY = 1_000;
+
+    // only the fields used to update the index
+    private static final List<Bson> PIPELINE = List.of(Aggregates.project(Projections.include("ns", "to", "operationType")));
+
+    @Inject("mclient")
+    private MongoClient mclient;
+
+    @Override
+    public void init() {
+        var index = EtagIndex.get();
+
+        if (!index.isEnabled() || !index.isWatching()) {
+            return;
+        }
+
+        if (!connected(mclient)) {
+            LOGGER.error("Cannot watch the changes for the etag index: MongoDB not connected. Conditional requests will not be checked with the etag index.");
+        } else if (!replicaSet(mclient)) {
+            LOGGER.error("Cannot watch the changes for the etag index: MongoDB is a standalone instance and Change Streams require a Replica Set. Conditional requests will not be checked with the etag index.");
+        } else {
+            var watcher = new Thread(() -> watch(index), "etag-index-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    private void watch(EtagIndex index) {
+        while (true) {
+            try (var cursor = mclient.watch(PIPELINE).withDocumentClass(BsonDocument.class).cursor()) {
+                // the changes made while not watching are unknown
+                index.invalidateAll();
+                index.setTrusted(true);
+
+                LOGGER.debug("watching the changes for the etag index");
+
+                while (cursor.hasNext()) {
+                    changed(index, cursor.next());
+                }
+            } catch (Throwable t) {
+                LOGGER.warn("Error watching the changes for the etag index, retrying in {} msecs", RETRY_DELAY, t);
+            }
+
+            // the cursor is closed, the changes are unknown until it is reopened
+            index.setTrusted(false);
+
+            try {
+                Thread.sleep(RETRY_DELAY);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void changed(EtagIndex index, BsonDocument event) {
+        var ns = event.get("ns");
+
+        if (ns == null || !ns.isDocument() || !ns.asDocument().isString("db")) {
+            // the invalidate event has no namespace
+            index.invalidateAll();
+        } else if (ns.asDocument().isString("coll")) {
+            index.written(namespace(ns.asDocument()));
+
+            // rename
+            var to = event.get("to");
+
+            if (to != null && to.isDocument() && to.asDocument().isString("coll")) {
+                index.written(namespace(to.asDocument()));
+            }
+        } else {
+            // dropDatabase
+            index.invalidate(ns.asDocument().getString("db").getValue());
+        }
+    }
+
+    private static MongoNamespace namespace(BsonDocument ns) {
+        return new MongoNamespace(ns.getString("db").getValue(), ns.getString("coll").getValue());
+    }
+}
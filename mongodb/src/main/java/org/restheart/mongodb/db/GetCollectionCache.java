@@ -20,14 +20,19 @@
  */
 package org.restheart.mongodb.db;
 
+import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.bson.BsonDocument;
+import com.codahale.metrics.Counter;
+import com.mongodb.MongoNamespace;
 import com.mongodb.client.MongoCollection;
 import static org.fusesource.jansi.Ansi.Color.GREEN;
 import static org.fusesource.jansi.Ansi.Color.RED;
@@ -35,12 +40,22 @@ import static org.fusesource.jansi.Ansi.ansi;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
 import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.handlers.metrics.SharedMongoMetricRegistryProxy;
 import org.restheart.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
+ * Caches the documents read by GET /db/coll requests.
+ *
+ * The cached entries are indexed by namespace and query (filter, sort, keys and
+ * hint); the entries of the same query are kept sorted by their range, so that
+ * the entry covering the requested range is found without scanning the whole
+ * cache and without locking.
+ *
+ * The number of hits, misses and evictions are exposed in the default metric
+ * registry with names get-collection-cache.hits, .misses and .evictions
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
@@ -51,6 +66,12 @@ public class GetCollectionCache {
     private static final long CACHE_SIZE = MongoServiceConfiguration.get() == null ? 100 : MongoServiceConfiguration.get().getGetCollectionCacheSize();
     private static final long CACHE_TTL = MongoServiceConfiguration.get() == null ? 10_000 : MongoServiceConfiguration.get().getGetCollectionCacheTTL();
 
+    // entries of the same query sorted by from, to and cursorId
+    private static final Comparator<GetCollectionCacheKey> RANGE_ORDER = Comparator
+        .comparingInt(GetCollectionCacheKey::from)
+        .thenComparingInt(GetCollectionCacheKey::to)
+        .thenComparingLong(GetCollectionCacheKey::cursorId);
+
     /**
      *
      * @return
@@ -61,8 +82,24 @@ public class GetCollectionCache {
 
     private final Cache<GetCollectionCacheKey, List<BsonDocument>> cache;
 
+    private final Map<MongoNamespace, Map<QueryKey, ConcurrentSkipListSet<GetCollectionCacheKey>>> index = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
     private GetCollectionCache() {
-        cache = CacheFactory.createLocalCache(CACHE_SIZE, Cache.EXPIRE_POLICY.AFTER_WRITE, CACHE_TTL);
+        var metrics = new SharedMongoMetricRegistryProxy().registry();
+        hits = metrics.counter("get-collection-cache.hits");
+        misses = metrics.counter("get-collection-cache.misses");
+        evictions = metrics.counter("get-collection-cache.evictions");
+
+        // entries evicted by size or ttl are still indexed, explicitly removed ones are not
+        cache = CacheFactory.createLocalCache(CACHE_SIZE, Cache.EXPIRE_POLICY.AFTER_WRITE, CACHE_TTL, entry -> {
+            if (entry.getKey() != null && unindex(entry.getKey())) {
+                evictions.inc();
+            }
+        });
 
         if (LOGGER.isTraceEnabled()) {
             // print stats every 1 minute
@@ -76,75 +113,139 @@ public class GetCollectionCache {
         }
     }
 
-    public synchronized void put(GetCollectionCacheKey key, List<BsonDocument> value) {
+    public void put(GetCollectionCacheKey key, List<BsonDocument> value) {
         cache.put(key, value);
+
+        index.computeIfAbsent(key.collection().getNamespace(), ns -> new ConcurrentHashMap<>())
+            .compute(QueryKey.of(key), (qk, entries) -> {
+                var ret = entries == null ? new ConcurrentSkipListSet<>(RANGE_ORDER) : entries;
+                ret.add(key);
+                return ret;
+            });
     }
 
-    public synchronized Pair<GetCollectionCacheKey, List<BsonDocument>> find(GetCollectionCacheKey key) {
+    public Pair<GetCollectionCacheKey, List<BsonDocument>> find(GetCollectionCacheKey key) {
         return _get(key, false);
     }
 
-    public synchronized List<BsonDocument> get(GetCollectionCacheKey key) {
-        return _get(key, false).getValue();
+    public List<BsonDocument> get(GetCollectionCacheKey key) {
+        var ret = _get(key, false);
+        return ret == null ? null : ret.getValue();
     }
 
-    public synchronized List<BsonDocument> remove(GetCollectionCacheKey key) {
-        return _get(key, true).getValue();
+    public List<BsonDocument> remove(GetCollectionCacheKey key) {
+        var ret = _get(key, true);
+        return ret == null ? null : ret.getValue();
     }
 
     /**
      *
      * @param key
-     * @param allocationPolicy
-     * @return
+     * @param remove
+     * @return the entry whose range covers the range of key
      */
-    private synchronized Pair<GetCollectionCacheKey, List<BsonDocument>> _get(GetCollectionCacheKey key, boolean remove) {
-        // return the first entry with all avaible documents
-        var _bestKey = cache.asMap().keySet().stream()
-            .filter(cacheKeyFilter(key))
-            .findFirst();
+    private Pair<GetCollectionCacheKey, List<BsonDocument>> _get(GetCollectionCacheKey key, boolean remove) {
+        var _bestKey = covering(key);
 
         if (_bestKey.isPresent()) {
-            var _cached = remove ? cache.remove(_bestKey.get()) : cache.get(_bestKey.get());
+            Optional<List<BsonDocument>> _cached;
+
+            if (remove) {
+                unindex(_bestKey.get());
+                _cached = cache.remove(_bestKey.get());
+            } else {
+                _cached = cache.get(_bestKey.get());
+            }
 
             if (_cached != null && _cached.isPresent()) {
+                hits.inc();
                 LOGGER.debug("{} cached documents. cache entry id {}", ansi().fg(GREEN).bold().a("found").reset().toString(), _bestKey.get().cursorId());
                 return new Pair<>(_bestKey.get(), _cached.get());
             } else {
+                // expired, the removal listener has not been notified yet
+                unindex(_bestKey.get());
+                misses.inc();
                 LOGGER.debug("{} cached documents.", ansi().fg(RED).bold().a("no").reset().toString());
                 return null;
             }
         } else {
+            misses.inc();
             LOGGER.debug(ansi().fg(RED).bold().a("missed").reset().toString() + " get collection cache.");
             return null;
         }
     }
 
-    public synchronized void invalidate(GetCollectionCacheKey key) {
+    /**
+     * Finds the entry of the same query with the greatest from that covers the
+     * requested range, walking back from the floor of the requested from.
+     *
+     * @param requested
+     * @return
+     */
+    private Optional<GetCollectionCacheKey> covering(GetCollectionCacheKey requested) {
+        var queries = index.get(requested.collection().getNamespace());
+
+        if (queries == null) {
+            return Optional.empty();
+        }
+
+        var entries = queries.get(QueryKey.of(requested));
+
+        if (entries == null) {
+            return Optional.empty();
+        }
+
+        var probe = new GetCollectionCacheKey(null, null, null, null, null, null, requested.from(), Integer.MAX_VALUE, Long.MAX_VALUE, false);
+
+        for (var cached : entries.headSet(probe, true).descendingSet()) {
+            if (cached.to() >= requested.to() || cached.exhausted()) {
+                return Optional.of(cached);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @param key
+     * @return true if the key was indexed
+     */
+    private boolean unindex(GetCollectionCacheKey key) {
+        var queries = index.get(key.collection().getNamespace());
+
+        if (queries == null) {
+            return false;
+        }
+
+        var removed = new boolean[] { false };
+
+        queries.computeIfPresent(QueryKey.of(key), (qk, entries) -> {
+            removed[0] = entries.remove(key);
+            return entries.isEmpty() ? null : entries;
+        });
+
+        return removed[0];
+    }
+
+    public void invalidate(GetCollectionCacheKey key) {
+        unindex(key);
         cache.invalidate(key);
     }
 
     public void invalidateAll(String db, String coll) {
-        cache.asMap().keySet().stream()
-            .filter(k -> k.collection().getNamespace().getDatabaseName().equals(db))
-            .filter(k -> k.collection().getNamespace().getCollectionName().equals(coll))
-            .forEach(k -> cache.invalidate(k));
+        invalidateAll(new MongoNamespace(db, coll));
     }
 
     public void invalidateAll(MongoCollection<?> coll) {
-        cache.asMap().keySet().stream()
-            .filter(k -> k.collection().getNamespace().equals(coll.getNamespace()))
-            .forEach(k -> cache.invalidate(k));
+        invalidateAll(coll.getNamespace());
     }
 
-    private Predicate<? super GetCollectionCacheKey> cacheKeyFilter(GetCollectionCacheKey requested) {
-        return cached
-            -> Objects.equals(cached.collection().getNamespace(), requested.collection().getNamespace())
-            && Objects.equals(cached.filter(), requested.filter())
-            && Objects.equals(cached.sort(), requested.sort())
-            && Objects.equals(cached.keys(), requested.keys())
-            && ((cached.from() <= requested.from() && cached.to() >= requested.to())
-                || (cached.exhausted() && cached.from() <= requested.from()));
+    private void invalidateAll(MongoNamespace namespace) {
+        var queries = index.remove(namespace);
+
+        if (queries != null) {
+            queries.values().forEach(entries -> entries.forEach(cache::invalidate));
+        }
     }
 
     private TreeMap<String, Long> getCacheSizes() {
@@ -154,6 +255,16 @@ public class GetCollectionCache {
             .collect(Collectors.groupingBy(GetCollectionCacheKey::getCacheStatsGroup, Collectors.counting())));
     }
 
+    /**
+     * the part of GetCollectionCacheKey that identifies the query, regardless
+     * of the range
+     */
+    private record QueryKey(BsonDocument filter, BsonDocument sort, BsonDocument keys, BsonDocument hint) {
+        static QueryKey of(GetCollectionCacheKey key) {
+            return new QueryKey(key.filter(), key.sort(), key.keys(), key.hint());
+        }
+    }
+
     private static class DBCursorPoolSingletonHolder {
         private static final GetCollectionCache INSTANCE = new GetCollectionCache();
 
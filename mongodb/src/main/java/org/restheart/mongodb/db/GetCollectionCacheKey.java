@@ -50,10 +50,10 @@ public record GetCollectionCacheKey(
         return new GetCollectionCacheKey(
             key.session,
             key.collection,
+            key.sort,
             key.filter,
             key.keys,
             key.hint,
-            key.sort,
             key.from,
             key.to,
             key.cursorId,
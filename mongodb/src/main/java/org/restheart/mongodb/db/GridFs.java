@@ -109,6 +109,7 @@ public class GridFs {
                 var options = new GridFSUploadOptions().metadata(Document.parse(metadata.toJson()));
 
                 var _id = gridFSBucket.uploadFromStream(filename, sourceStream, options);
+                EtagIndex.get().written(dbName, filesCollectionName(bucket));
 
                 return new OperationResult(SC_CREATED, new BsonObjectId(etag), new BsonObjectId(_id));
             } else {
@@ -117,6 +118,7 @@ public class GridFs {
                 var options = new GridFSUploadOptions().metadata(Document.parse(metadata.toJson()));
 
                 gridFSBucket.uploadFromStream(_id, filename, sourceStream, options);
+                EtagIndex.get().written(dbName, filesCollectionName(bucket));
 
                 return new OperationResult(SC_CREATED, new BsonObjectId(etag), _id);
             }
@@ -244,6 +246,9 @@ public class GridFs {
         } catch (MongoGridFSException e) {
             LOGGER.error("Can't delete fileId '{}'", file.getId(), e);
             return new OperationResult(SC_NOT_FOUND);
+        } finally {
+            // the files collection can be written even if the deletion fails, e.g. without the chunks
+            EtagIndex.get().written(dbName, filesCollectionName(bucket));
         }
 
         return new OperationResult(SC_NO_CONTENT);
@@ -270,6 +275,7 @@ public class GridFs {
     public void deleteChunksCollection(final Optional<RSOps> rsOps, final String dbName, final String bucketName) {
         var chunksCollName = extractBucketName(bucketName).concat(".chunks");
         collections.collection(rsOps, dbName, chunksCollName).drop();
+        collections.catalog().deleted(dbName, chunksCollName);
     }
 
     /**
@@ -316,6 +322,9 @@ public class GridFs {
             shardKeys,
             content);
 
+        // the document is written even if restored afterwards by optimisticCheckEtag
+        EtagIndex.get().written(dbName, collName);
+
         var oldDocument = updateResult.getOldData();
 
         switch(method) {
@@ -375,6 +384,10 @@ public class GridFs {
         return collectionName.substring(0, collectionName.lastIndexOf('.'));
     }
 
+    private static String filesCollectionName(final String bucket) {
+        return bucket.concat(".files");
+    }
+
     private OperationResult optimisticCheckEtag(
         final Optional<ClientSession> cs,
         final MongoCollection<BsonDocument> coll,
@@ -0,0 +1,228 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertOneModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import org.bson.BsonDocument;
+import static org.restheart.mongodb.db.DbUtils.BWO_NOT_ORDERED;
+
+/**
+ * Coalesces the concurrent inserts of documents in the same collection in
+ * unordered bulk writes.
+ *
+ * The first insert of a batch waits up to maxDelay milliseconds, or until
+ * the batch reaches maxBatchSize documents, then writes all the documents of
+ * the batch with one bulkWrite. Each insert waits for the bulk write and gets
+ * the outcome of its own document, so that, for instance, a duplicate key
+ * error only fails the request that inserted the duplicate document.
+ *
+ * No thread is involved other than the ones executing the requests.
+ *
+ * NOTE: this class is package-private and only meant to be used as a delagate
+ * within the Documents class.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class InsertsBatcher {
+    private static final InsertsBatcher INSTANCE = new InsertsBatcher();
+
+    static InsertsBatcher get() {
+        return INSTANCE;
+    }
+
+    // documents with a different write concern cannot be in the same bulk write
+    private record Key(MongoNamespace namespace, WriteConcern writeConcern) {}
+
+    // the open batch of each collection
+    private final Map<Key, Batch> batches = new ConcurrentHashMap<>();
+
+    private InsertsBatcher() {
+    }
+
+    /**
+     * Inserts the document, blocking until the batch that contains it is written
+     *
+     * @param coll
+     * @param document the document to insert, with the _id
+     * @param options
+     * @throws MongoWriteException if the document cannot be inserted
+     */
+    void insert(MongoCollection<BsonDocument> coll, BsonDocument document, WriteBehind options) {
+        var key = new Key(coll.getNamespace(), coll.getWriteConcern());
+
+        Batch batch;
+        int index;
+
+        while (true) {
+            batch = batches.computeIfAbsent(key, k -> new Batch(coll, options.maxBatchSize()));
+            index = batch.add(document);
+
+            if (index >= 0) {
+                break;
+            }
+
+            // the batch is full or being written, start a new one
+            batches.remove(key, batch);
+        }
+
+        if (index == 0) {
+            // the first insert of the batch writes it
+            var documents = batch.close(TimeUnit.MILLISECONDS.toNanos(options.maxDelay()));
+            batches.remove(key, batch);
+            batch.write(documents);
+        }
+
+        batch.outcome(index);
+    }
+
+    private static class Batch {
+        private final MongoCollection<BsonDocument> coll;
+        private final int maxSize;
+        private final List<BsonDocument> documents = new ArrayList<>();
+
+        // not synchronized to not pin virtual threads while waiting
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition full = lock.newCondition();
+        private boolean closed = false;
+
+        // completed with the MongoBulkWriteException or null when all documents are inserted
+        private final CompletableFuture<MongoBulkWriteException> outcome = new CompletableFuture<>();
+
+        Batch(MongoCollection<BsonDocument> coll, int maxSize) {
+            this.coll = coll;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         *
+         * @param document
+         * @return the index of the document in the batch, or -1 if the batch does not accept more documents
+         */
+        int add(BsonDocument document) {
+            lock.lock();
+
+            try {
+                if (closed || documents.size() >= maxSize) {
+                    return -1;
+                }
+
+                documents.add(document);
+
+                if (documents.size() >= maxSize) {
+                    full.signal();
+                }
+
+                return documents.size() - 1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * waits until the batch is full or maxDelay elapses, then closes it
+         *
+         * @param maxDelay in nanoseconds
+         * @return the documents of the batch
+         */
+        List<BsonDocument> close(long maxDelay) {
+            lock.lock();
+
+            try {
+                var remaining = maxDelay;
+
+                while (documents.size() < maxSize && remaining > 0) {
+                    remaining = full.awaitNanos(remaining);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closed = true;
+                lock.unlock();
+            }
+
+            return documents;
+        }
+
+        void write(List<BsonDocument> documents) {
+            try {
+                coll.bulkWrite(documents.stream().map(d -> new InsertOneModel<>(d)).collect(Collectors.toList()), BWO_NOT_ORDERED);
+                outcome.complete(null);
+            } catch (MongoBulkWriteException mbwe) {
+                outcome.complete(mbwe);
+            } catch (Throwable t) {
+                outcome.completeExceptionally(t);
+            }
+        }
+
+        /**
+         * waits for the bulk write
+         *
+         * @param index
+         * @throws MongoWriteException if the document at index was not inserted
+         */
+        void outcome(int index) {
+            MongoBulkWriteException mbwe;
+
+            try {
+                mbwe = outcome.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted waiting for the bulk write", ie);
+            } catch (ExecutionException ee) {
+                if (ee.getCause() instanceof RuntimeException re) {
+                    throw re;
+                } else {
+                    throw new IllegalStateException("error writing documents", ee.getCause());
+                }
+            }
+
+            if (mbwe == null) {
+                return;
+            }
+
+            var error = mbwe.getWriteErrors().stream().filter(e -> e.getIndex() == index).findFirst();
+
+            if (error.isPresent()) {
+                var e = error.get();
+                throw new MongoWriteException(new WriteError(e.getCode(), e.getMessage(), e.getDetails()), mbwe.getServerAddress());
+            } else if (mbwe.getWriteConcernError() != null) {
+                // the document was inserted but the write concern was not satisfied
+                throw mbwe;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import static com.mongodb.client.model.Filters.eq;
+import com.mongodb.client.MongoClient;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.cache.LoadingCache;
+
+/**
+ * Caches the names of the collections of each database, so that checking if
+ * a database or a collection exists, as done for the ones without properties,
+ * is a memory lookup rather than a listCollections command.
+ *
+ * The collections of a database are listed on its first check and listed
+ * again namespace-catalog-ttl milliseconds later. The databases and the
+ * collections created and deleted via RESTHeart update the catalog
+ * immediately. A collection not in the catalog is checked with a
+ * listCollections filtered by its name, so that the ones created by other
+ * clients are found before the next listing. The ones deleted by other
+ * clients are instead considered existing until the next listing.
+ *
+ * NOTE: this class is package-private and only meant to be used as a delagate
+ * within the Collections and Databases classes.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class NamespaceCatalog {
+    private static final long MAX_DBS = 1_000;
+
+    private final MongoClient client;
+
+    // dbName -> names of its collections
+    private final LoadingCache<String, Set<String>> catalog;
+
+    /**
+     *
+     * @param client
+     * @param ttl the time to live of the listings in milliseconds, the catalog is disabled if ttl <= 0
+     */
+    NamespaceCatalog(MongoClient client, long ttl) {
+        this.client = client;
+        this.catalog = ttl > 0 ? CacheFactory.createLocalLoadingCache(MAX_DBS, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl, this::list) : null;
+    }
+
+    boolean isEnabled() {
+        return catalog != null;
+    }
+
+    /**
+     *
+     * @param dbName
+     * @return true if the db exists
+     */
+    boolean dbExists(String dbName) {
+        var listed = catalog.get(dbName);
+
+        if (listed != null && listed.isPresent()) {
+            if (!listed.get().isEmpty()) {
+                return true;
+            }
+
+            // the db might have been created by other clients since listed
+            catalog.invalidate(dbName);
+        }
+
+        // at least one collection exists for an existing db
+        return !collNames(dbName).isEmpty();
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @return true if the collection exists
+     */
+    boolean collectionExists(String dbName, String collName) {
+        var collNames = collNames(dbName);
+
+        if (collNames.contains(collName)) {
+            return true;
+        }
+
+        // the collection might have been created by other clients since listed
+        var exists = client.getDatabase(dbName).listCollections().filter(eq("name", collName)).first() != null;
+
+        if (exists) {
+            collNames.add(collName);
+        }
+
+        return exists;
+    }
+
+    void created(String dbName, String collName) {
+        if (catalog != null) {
+            var listed = catalog.get(dbName);
+
+            if (listed != null && listed.isPresent()) {
+                listed.get().add(collName);
+            }
+        }
+    }
+
+    void deleted(String dbName, String collName) {
+        if (catalog != null) {
+            var listed = catalog.get(dbName);
+
+            if (listed != null && listed.isPresent()) {
+                listed.get().remove(collName);
+            }
+        }
+    }
+
+    void deleted(String dbName) {
+        if (catalog != null) {
+            catalog.invalidate(dbName);
+        }
+    }
+
+    private Set<String> collNames(String dbName) {
+        return catalog.getLoading(dbName).get();
+    }
+
+    private Set<String> list(String dbName) {
+        var ret = ConcurrentHashMap.<String>newKeySet();
+        client.getDatabase(dbName).listCollectionNames().into(ret);
+        return ret;
+    }
+}
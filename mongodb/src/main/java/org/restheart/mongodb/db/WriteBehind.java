@@ -0,0 +1,114 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import org.bson.BsonDocument;
+import org.restheart.exchange.InvalidMetadataException;
+
+/**
+ * The write-behind options of a collection, defined in its metadata as
+ * follows:
+ *
+ * <pre>
+ * { "writeBehind": { "maxBatchSize": 100, "maxDelay": 5 } }
+ * </pre>
+ *
+ * or, to use the default values, as {@code { "writeBehind": true }}
+ *
+ * When set, the documents created with POST /db/coll in insert write mode
+ * are not inserted one by one: the inserts arriving within maxDelay
+ * milliseconds are coalesced in a single unordered bulk write of up to
+ * maxBatchSize documents.
+ *
+ * @param maxBatchSize the maximum number of documents inserted by one bulk write
+ * @param maxDelay the maximum time in milliseconds an insert waits for other inserts
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public record WriteBehind(int maxBatchSize, int maxDelay) {
+    public static final String WRITE_BEHIND_ELEMENT_NAME = "writeBehind";
+    public static final String MAX_BATCH_SIZE_ELEMENT_NAME = "maxBatchSize";
+    public static final String MAX_DELAY_ELEMENT_NAME = "maxDelay";
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final int DEFAULT_MAX_DELAY = 5;
+
+    /**
+     *
+     * @param collProps
+     * @return the write-behind options of the collection or null if not set
+     * @throws InvalidMetadataException
+     */
+    public static WriteBehind getFromJson(BsonDocument collProps) throws InvalidMetadataException {
+        if (collProps == null || !collProps.containsKey(WRITE_BEHIND_ELEMENT_NAME)) {
+            return null;
+        }
+
+        var _wb = collProps.get(WRITE_BEHIND_ELEMENT_NAME);
+
+        if (_wb.isBoolean()) {
+            return _wb.asBoolean().getValue() ? new WriteBehind(DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY) : null;
+        }
+
+        if (!_wb.isDocument()) {
+            throw new InvalidMetadataException("element '" + WRITE_BEHIND_ELEMENT_NAME + "' is neither an object nor a boolean: " + _wb);
+        }
+
+        var wb = _wb.asDocument();
+
+        return new WriteBehind(
+            positiveInt(wb, MAX_BATCH_SIZE_ELEMENT_NAME, DEFAULT_MAX_BATCH_SIZE),
+            positiveInt(wb, MAX_DELAY_ELEMENT_NAME, DEFAULT_MAX_DELAY));
+    }
+
+    /**
+     * checks the write-behind options in the content of a PUT or PATCH
+     * collection request, including the dot notation keys of PATCH, e.g.
+     * { "writeBehind.maxDelay": 10 }
+     *
+     * @param content the collection properties to write
+     * @throws InvalidMetadataException if the write-behind options are invalid
+     */
+    public static void check(BsonDocument content) throws InvalidMetadataException {
+        getFromJson(content);
+
+        var prefix = WRITE_BEHIND_ELEMENT_NAME + ".";
+
+        for (var key : content.keySet()) {
+            if (key.startsWith(prefix)) {
+                var name = key.substring(prefix.length());
+                positiveInt(new BsonDocument(name, content.get(key)), name, 0);
+            }
+        }
+    }
+
+    private static int positiveInt(BsonDocument wb, String key, int defaultValue) throws InvalidMetadataException {
+        var value = wb.get(key);
+
+        if (value == null) {
+            return defaultValue;
+        } else if (value.isNumber() && value.asNumber().intValue() > 0) {
+            return value.asNumber().intValue();
+        } else {
+            throw new InvalidMetadataException("element '" + WRITE_BEHIND_ELEMENT_NAME + "." + key + "' is not a positive number: " + value);
+        }
+    }
+}
@@ -27,7 +27,6 @@ import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import org.apache.tika.Tika;
 import org.bson.BsonDocument;
 import org.bson.BsonString;
@@ -45,6 +44,7 @@ import static org.restheart.exchange.ExchangeKeys.TRUE_KEY_ID;
 import static org.restheart.exchange.ExchangeKeys._ID;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
+import org.restheart.utils.BuffersUtils;
 import org.restheart.utils.ChannelReader;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.BsonUtils;
@@ -299,40 +299,32 @@ public class MongoRequestContentInjector {
 
     private static BsonValue injectBson(HttpServerExchange exchange, MongoRequest request, MongoResponse response) {
         BsonValue content;
-        final String contentString;
 
         var bar = ByteArrayProxyRequest.of(exchange);
 
         try {
             if (bar.isContentAvailable()) {
                 // if content has been already injected
-                // get it from MongoRequest.readContent()
-                contentString = new String(bar.readContent(), StandardCharsets.UTF_8);
+                // parse it from the pooled buffers
+                try (var reader = BuffersUtils.reader(bar.getBuffer())) {
+                    content = BsonUtils.parse(reader);
+                }
             } else {
-                // otherwise use ChannelReader
-                contentString = ChannelReader.readString(exchange);
+                // otherwise parse it as it is read from the channel
+                content = ChannelReader.readBson(exchange);
+            }
+
+            if (content != null && !content.isDocument() && !content.isArray()) {
+                throw new IllegalArgumentException("request data must be either a json object or an array, got " + content.getBsonType().name());
             }
         } catch (IOException ieo) {
             var errMsg = "Error reading request content";
             LOGGER.error(errMsg, ieo);
             response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, errMsg);
             return null;
-        }
-
-        // parse the json content
-        if (contentString != null && !contentString.isEmpty()) { // check content type
-            try {
-                content = BsonUtils.parse(contentString);
-
-                if (content != null && !content.isDocument() && !content.isArray()) {
-                    throw new IllegalArgumentException("request data must be either a json object or an array, got " + content.getBsonType().name());
-                }
-            } catch (JsonParseException | IllegalArgumentException ex) {
-                response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, "Invalid JSON. " + ex.getMessage(), ex);
-                return null;
-            }
-        } else {
-            content = null;
+        } catch (JsonParseException | IllegalArgumentException ex) {
+            response.setInError(HttpStatus.SC_NOT_ACCEPTABLE, "Invalid JSON. " + ex.getMessage(), ex);
+            return null;
         }
 
         return content;
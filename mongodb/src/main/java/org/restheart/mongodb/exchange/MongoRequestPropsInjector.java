@@ -42,6 +42,8 @@ import static org.restheart.exchange.ExchangeKeys.REPRESENTATION_FORMAT_KEY;
 import static org.restheart.exchange.ExchangeKeys.SHARDKEY_QPARAM_KEY;
 import static org.restheart.exchange.ExchangeKeys.SORT_BY_QPARAM_KEY;
 import static org.restheart.exchange.ExchangeKeys.SORT_QPARAM_KEY;
+import org.restheart.exchange.ExchangeKeys.STREAM_MODE;
+import static org.restheart.exchange.ExchangeKeys.STREAM_QPARAM_KEY;
 import org.restheart.exchange.ExchangeKeys.TYPE;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
@@ -66,6 +68,7 @@ public class MongoRequestPropsInjector {
 
     private static final int DEFAULT_PAGESIZE = MongoServiceConfiguration.get().getDefaultPagesize();
     private static final int MAX_PAGESIZE = MongoServiceConfiguration.get().getMaxPagesize();
+    private static final int MAX_STREAM_PAGESIZE = MongoServiceConfiguration.get().getMaxStreamPagesize();
 
     /**
      *
@@ -130,6 +133,18 @@ public class MongoRequestPropsInjector {
             return;
         }
 
+        // check stream to be a valid stream mode
+        var __stream = exchange.getQueryParameters().get(STREAM_QPARAM_KEY);
+
+        if (__stream != null && !__stream.isEmpty()) {
+            try {
+                STREAM_MODE.valueOf(__stream.getFirst().toUpperCase());
+            } catch (IllegalArgumentException iae) {
+                response.setInError(HttpStatus.SC_BAD_REQUEST, "illegal stream paramenter, it must be one of " + Arrays.toString(STREAM_MODE.values()).toLowerCase());
+                return;
+            }
+        }
+
         var __pagesize = exchange.getQueryParameters().get(PAGESIZE_QPARAM_KEY);
 
         int page = 1; // default page
@@ -145,8 +160,13 @@ public class MongoRequestPropsInjector {
             }
         }
 
-        if (pagesize < 0 || pagesize > MAX_PAGESIZE) {
-            response.setInError(HttpStatus.SC_BAD_REQUEST, "illegal pagesize parameter, pagesize must be >= 0 and <= " + MAX_PAGESIZE);
+        // streamed responses don't hold the page in memory
+        var maxPagesize = request.isGet() && request.isCollection() && request.getStreamMode() != null
+            ? MAX_STREAM_PAGESIZE
+            : MAX_PAGESIZE;
+
+        if (pagesize < 0 || pagesize > maxPagesize) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST, "illegal pagesize parameter, pagesize must be >= 0 and <= " + maxPagesize);
             return;
         } else {
             request.setPagesize(pagesize);
@@ -38,6 +38,7 @@ import org.restheart.exchange.QueryVariableNotBoundException;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.EtagIndex;
 import org.restheart.security.AclVarsInterpolator;
 import org.restheart.security.FileRealmAccount;
 import org.restheart.security.JwtAccount;
@@ -148,6 +149,9 @@ public class GetAggregationHandler extends PipelinedHandler {
                     for (BsonDocument obj : mrOutput) {
                         _data.add(obj);
                     }
+
+                    // the results are inline: without collectionName() the map-reduce writes no collection
+                    // and the EtagIndex is still valid; an out collection must be invalidated as $out and $merge
                     break;
                 case AGGREGATION_PIPELINE:
                     AggregateIterable<BsonDocument> agrOutput;
@@ -179,6 +183,11 @@ public class GetAggregationHandler extends PipelinedHandler {
                     for (BsonDocument obj : agrOutput) {
                         _data.add(obj);
                     }
+
+                    // the $out and $merge stages write the results to a collection
+                    if (pipeline.getStages().stream().anyMatch(s -> s.isDocument() && (s.asDocument().containsKey("$out") || s.asDocument().containsKey("$merge")))) {
+                        EtagIndex.get().invalidateAll();
+                    }
                     break;
                 default:
                     response.setInError(HttpStatus.SC_INTERNAL_SERVER_ERROR, "unknown query type");
@@ -0,0 +1,337 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/**
+ * Evaluates in memory the pipeline of a change stream made only of $match
+ * stages, so that the change events can be read by a single change stream
+ * shared by all the streams of the collection and then filtered for each
+ * stream.
+ *
+ * The supported query operators are $eq, $ne, $gt, $gte, $lt, $lte, $in,
+ * $nin, $exists, $not, $and, $or and $nor, with arguments that are not
+ * documents, arrays or regular expressions. Strings are compared without
+ * collation. A pipeline with other stages or operators cannot be evaluated
+ * and requires a dedicated change stream.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamMatcher implements Predicate<BsonDocument> {
+    private final Predicate<BsonDocument> predicate;
+
+    private ChangeStreamMatcher(Predicate<BsonDocument> predicate) {
+        this.predicate = predicate;
+    }
+
+    /**
+     *
+     * @param stages the resolved stages of the change stream
+     * @return the matcher of the stages or empty if they cannot be evaluated in memory
+     */
+    public static Optional<ChangeStreamMatcher> of(List<BsonDocument> stages) {
+        Predicate<BsonDocument> ret = event -> true;
+
+        try {
+            for (var stage : stages) {
+                if (stage.size() != 1 || !stage.containsKey("$match") || !stage.get("$match").isDocument()) {
+                    return Optional.empty();
+                }
+
+                ret = ret.and(filter(stage.getDocument("$match")));
+            }
+        } catch (IllegalArgumentException iae) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ChangeStreamMatcher(ret));
+    }
+
+    /**
+     * @param event the change event
+     * @return true if the event passes the $match stages
+     */
+    @Override
+    public boolean test(BsonDocument event) {
+        return this.predicate.test(event);
+    }
+
+    private static Predicate<BsonDocument> filter(BsonDocument filter) {
+        Predicate<BsonDocument> ret = doc -> true;
+
+        for (var key : filter.keySet()) {
+            var value = filter.get(key);
+
+            ret = ret.and(switch (key) {
+                case "$and" -> logical(value).stream().reduce(doc -> true, Predicate::and);
+                case "$or" -> logical(value).stream().reduce(doc -> false, Predicate::or);
+                case "$nor" -> logical(value).stream().reduce(doc -> false, Predicate::or).negate();
+                default -> {
+                    if (key.startsWith("$")) {
+                        throw new IllegalArgumentException("unsupported operator " + key);
+                    }
+
+                    yield field(key.split("\\."), value);
+                }
+            });
+        }
+
+        return ret;
+    }
+
+    private static List<Predicate<BsonDocument>> logical(BsonValue value) {
+        if (!value.isArray() || value.asArray().isEmpty()) {
+            throw new IllegalArgumentException("logical operators require a non empty array");
+        }
+
+        var ret = new ArrayList<Predicate<BsonDocument>>();
+
+        for (var element : value.asArray()) {
+            if (!element.isDocument()) {
+                throw new IllegalArgumentException("logical operators require an array of documents");
+            }
+
+            ret.add(filter(element.asDocument()));
+        }
+
+        return ret;
+    }
+
+    private static Predicate<BsonDocument> field(String[] path, BsonValue condition) {
+        var operators = operators(condition);
+
+        return doc -> {
+            var values = new ArrayList<BsonValue>();
+            collect(doc, path, 0, values);
+            return operators.test(values);
+        };
+    }
+
+    /**
+     * @return the predicate on the values found at the path of the field
+     */
+    private static Predicate<List<BsonValue>> operators(BsonValue condition) {
+        if (!isOperatorsDocument(condition)) {
+            return eq(condition);
+        }
+
+        Predicate<List<BsonValue>> ret = values -> true;
+
+        for (var entry : condition.asDocument().entrySet()) {
+            var arg = entry.getValue();
+
+            ret = ret.and(switch (entry.getKey()) {
+                case "$eq" -> eq(arg);
+                case "$ne" -> eq(arg).negate();
+                case "$in" -> in(arg);
+                case "$nin" -> in(arg).negate();
+                case "$gt" -> compare(arg, c -> c > 0);
+                case "$gte" -> compare(arg, c -> c >= 0);
+                case "$lt" -> compare(arg, c -> c < 0);
+                case "$lte" -> compare(arg, c -> c <= 0);
+                case "$exists" -> {
+                    var exists = !(arg.isBoolean() && !arg.asBoolean().getValue()) && !(arg.isNumber() && arg.asNumber().doubleValue() == 0);
+                    yield values -> values.isEmpty() != exists;
+                }
+                case "$not" -> {
+                    if (!isOperatorsDocument(arg)) {
+                        throw new IllegalArgumentException("$not requires an operators document");
+                    }
+
+                    yield operators(arg).negate();
+                }
+                default -> throw new IllegalArgumentException("unsupported operator " + entry.getKey());
+            });
+        }
+
+        return ret;
+    }
+
+    private static boolean isOperatorsDocument(BsonValue condition) {
+        if (!condition.isDocument() || condition.asDocument().isEmpty()) {
+            return false;
+        }
+
+        var keys = condition.asDocument().keySet();
+        var operators = keys.stream().filter(k -> k.startsWith("$")).count();
+
+        if (operators > 0 && operators < keys.size()) {
+            throw new IllegalArgumentException("operators mixed with fields");
+        }
+
+        return operators > 0;
+    }
+
+    private static Predicate<List<BsonValue>> eq(BsonValue arg) {
+        checkArgument(arg);
+
+        if (arg.isNull()) {
+            // matches missing fields as well
+            return values -> values.isEmpty() || anyElement(values, BsonValue::isNull);
+        } else {
+            return values -> anyElement(values, v -> equal(v, arg));
+        }
+    }
+
+    private static Predicate<List<BsonValue>> in(BsonValue arg) {
+        if (!arg.isArray()) {
+            throw new IllegalArgumentException("$in and $nin require an array");
+        }
+
+        return arg.asArray().getValues().stream()
+            .map(ChangeStreamMatcher::eq)
+            .reduce(values -> false, Predicate::or);
+    }
+
+    private static Predicate<List<BsonValue>> compare(BsonValue arg, IntPredicate test) {
+        checkArgument(arg);
+
+        if (arg.isNull()) {
+            throw new IllegalArgumentException("comparison with null");
+        }
+
+        return values -> anyElement(values, v -> {
+            var c = compare(v, arg);
+            return c != null && test.test(c);
+        });
+    }
+
+    private static void checkArgument(BsonValue arg) {
+        switch (arg.getBsonType()) {
+            // documents and arrays are compared by MongoDB field by field, in order and by type
+            case DOCUMENT, ARRAY, REGULAR_EXPRESSION, JAVASCRIPT, JAVASCRIPT_WITH_SCOPE, MIN_KEY, MAX_KEY, UNDEFINED, DB_POINTER, SYMBOL ->
+                throw new IllegalArgumentException("unsupported argument type " + arg.getBsonType());
+            default -> {}
+        }
+    }
+
+    /**
+     * a field matches if its value or, when it is an array, one of its
+     * elements matches
+     */
+    private static boolean anyElement(List<BsonValue> values, Predicate<BsonValue> test) {
+        for (var value : values) {
+            if (test.test(value)) {
+                return true;
+            }
+
+            if (value.isArray()) {
+                for (var element : value.asArray()) {
+                    if (test.test(element)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * collects the values at path, traversing arrays as MongoDB does
+     */
+    private static void collect(BsonValue value, String[] path, int idx, List<BsonValue> out) {
+        if (idx == path.length) {
+            out.add(value);
+        } else if (value.isDocument()) {
+            var next = value.asDocument().get(path[idx]);
+
+            if (next != null) {
+                collect(next, path, idx + 1, out);
+            }
+        } else if (value.isArray()) {
+            var array = value.asArray();
+
+            if (isIndex(path[idx])) {
+                var i = Integer.parseInt(path[idx]);
+
+                if (i < array.size()) {
+                    collect(array.get(i), path, idx + 1, out);
+                }
+            }
+
+            for (var element : array) {
+                if (element.isDocument()) {
+                    collect(element, path, idx, out);
+                }
+            }
+        }
+    }
+
+    private static boolean isIndex(String key) {
+        return !key.isEmpty() && key.length() < 10 && key.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean equal(BsonValue a, BsonValue b) {
+        if (a.isNumber() && b.isNumber()) {
+            return compare(a, b) == 0;
+        } else {
+            return a.equals(b);
+        }
+    }
+
+    /**
+     * @return the comparison of the two values or null if they are not
+     *         comparable, i.e. they are not of the same type or both numbers
+     */
+    private static Integer compare(BsonValue a, BsonValue b) {
+        if (a.isNumber() && b.isNumber()) {
+            if ((a.isInt32() || a.isInt64()) && (b.isInt32() || b.isInt64())) {
+                return Long.compare(a.asNumber().longValue(), b.asNumber().longValue());
+            } else {
+                var x = a.asNumber().doubleValue();
+                var y = b.asNumber().doubleValue();
+
+                if (x < y) {
+                    return -1;
+                } else if (x > y) {
+                    return 1;
+                } else if (x == y || (Double.isNaN(x) && Double.isNaN(y))) {
+                    return 0;
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        if (a.getBsonType() != b.getBsonType()) {
+            return null;
+        }
+
+        return switch (a.getBsonType()) {
+            case STRING -> a.asString().getValue().compareTo(b.asString().getValue());
+            case DATE_TIME -> Long.compare(a.asDateTime().getValue(), b.asDateTime().getValue());
+            case OBJECT_ID -> a.asObjectId().getValue().compareTo(b.asObjectId().getValue());
+            case BOOLEAN -> Boolean.compare(a.asBoolean().getValue(), b.asBoolean().getValue());
+            case TIMESTAMP -> a.asTimestamp().compareTo(b.asTimestamp());
+            case NULL -> 0;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,158 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Multiplexes the streams on the MongoDB change streams.
+ *
+ * The streams whose pipeline can be evaluated in memory by
+ * ChangeStreamMatcher share a single MongoDB change stream per collection,
+ * whose events are filtered for each stream by its matcher. The other
+ * streams get a dedicated change stream, shared only by the streams with the
+ * same resolved pipeline.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamMultiplexer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamMultiplexer.class);
+
+    private static final ChangeStreamMatcher MATCH_ALL = ChangeStreamMatcher.of(List.of()).get();
+
+    /**
+     * identifies a MongoDB change stream
+     *
+     * @param db
+     * @param collection
+     * @param stages the pipeline of the change stream, empty for the shared one
+     */
+    public record UpstreamKey(String db, String collection, List<BsonDocument> stages) {
+    }
+
+    private final Map<UpstreamKey, ChangeStreamSubscriber> upstreams = new HashMap<>();
+    private final Map<SessionKey, ChangeStreamSubscriber> subscribers = new HashMap<>();
+
+    public static ChangeStreamMultiplexer getInstance() {
+        return ChangeStreamMultiplexerSingletonHolder.INSTANCE;
+    }
+
+    /**
+     * subscribes the stream to the shared change stream of the collection or,
+     * if its stages cannot be evaluated in memory, to a dedicated one
+     *
+     * @param sessionKey the key of the stream
+     * @param db
+     * @param collection
+     * @param resolvedStages the stages of the stream
+     */
+    public synchronized void subscribe(SessionKey sessionKey, String db, String collection, List<BsonDocument> resolvedStages) {
+        // the stream definition might have been updated
+        unsubscribe(sessionKey);
+
+        var matcher = ChangeStreamMatcher.of(resolvedStages);
+        var key = new UpstreamKey(db, collection, matcher.isPresent() ? List.of() : resolvedStages);
+
+        var upstream = this.upstreams.get(key);
+        var start = upstream == null;
+
+        if (start) {
+            LOGGER.debug("Opening {} change stream on {}/{}", key.stages().isEmpty() ? "shared" : "dedicated", db, collection);
+            upstream = new ChangeStreamSubscriber(key);
+            this.upstreams.put(key, upstream);
+        }
+
+        upstream.add(sessionKey, matcher.orElse(MATCH_ALL));
+        this.subscribers.put(sessionKey, upstream);
+
+        if (start) {
+            upstream.start();
+        }
+    }
+
+    /**
+     * unsubscribes the stream, closing the change stream when it has no more
+     * subscribed streams
+     *
+     * @param sessionKey the key of the stream
+     */
+    public synchronized void unsubscribe(SessionKey sessionKey) {
+        var upstream = this.subscribers.remove(sessionKey);
+
+        if (upstream != null && upstream.remove(sessionKey)) {
+            LOGGER.debug("Closing change stream on {}/{}", upstream.getKey().db(), upstream.getKey().collection());
+            upstream.stop();
+            this.upstreams.remove(upstream.getKey(), upstream);
+        }
+    }
+
+    /**
+     * registers a client session of the stream, first sending it the
+     * events it missed after the resume token, if still in the replay window
+     * of the change stream
+     *
+     * @param sessionKey the key of the stream
+     * @param session
+     * @param resumeToken the resume token of the last event received by the client, can be null
+     */
+    public void connect(SessionKey sessionKey, ChangeStreamSession session, String resumeToken) {
+        ChangeStreamSubscriber upstream;
+
+        synchronized (this) {
+            upstream = this.subscribers.get(sessionKey);
+        }
+
+        // out of the lock, since the subscriber calls unsubscribe() holding its own
+        if (upstream != null) {
+            upstream.connect(sessionKey, session, resumeToken);
+        } else {
+            WebSocketSessionsRegistry.getInstance().add(sessionKey, session);
+        }
+    }
+
+    /**
+     * unsubscribes all the streams of the change stream and closes it
+     *
+     * @param upstream
+     */
+    synchronized void remove(ChangeStreamSubscriber upstream) {
+        upstream.getSessionKeys().forEach(sk -> this.subscribers.remove(sk, upstream));
+        upstream.stop();
+        this.upstreams.remove(upstream.getKey(), upstream);
+    }
+
+    /**
+     * @return the number of open MongoDB change streams
+     */
+    public synchronized int size() {
+        return this.upstreams.size();
+    }
+
+    private static class ChangeStreamMultiplexerSingletonHolder {
+        private static final ChangeStreamMultiplexer INSTANCE = new ChangeStreamMultiplexer();
+    }
+}
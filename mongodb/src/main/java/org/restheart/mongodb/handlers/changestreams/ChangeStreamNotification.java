@@ -20,25 +20,119 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
+import io.undertow.connector.ByteBufferPool;
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.server.DefaultByteBufferPool;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bson.BsonValue;
+
 /**
+ * A change stream notification, encoded once in UTF-8 and sent to all the
+ * sessions of the streams that match the change event.
+ *
+ * The message is encoded in a pooled direct buffer, or in a heap buffer if it
+ * does not fit into it. The notification is reference counted: each session
+ * retains it until the message is sent or dropped, and the pooled buffer is
+ * returned to the pool when the last reference is released.
  *
  * @author omartrasatti
  */
 public class ChangeStreamNotification {
+    private static final ByteBufferPool POOL = new DefaultByteBufferPool(true, 16 * 1024);
 
-    private final SessionKey sessionKey;
-    private final String notificationMessage;
+    private final BsonValue documentKey;
+    private final String resumeToken;
+    private final PooledByteBuffer pooled;
+    private final ByteBuffer message;
+    private final AtomicInteger references = new AtomicInteger(1);
 
-    public ChangeStreamNotification(SessionKey sessionKey, String notificationMessage) {
-        this.sessionKey = sessionKey;
-        this.notificationMessage = notificationMessage;
+    /**
+     *
+     * @param notificationMessage the json of the notification
+     * @param documentKey the key of the changed document, can be null
+     */
+    public ChangeStreamNotification(String notificationMessage, BsonValue documentKey) {
+        this(notificationMessage, documentKey, null);
     }
 
-    public SessionKey getSessionKey() {
-        return this.sessionKey;
+    /**
+     *
+     * @param notificationMessage the json of the notification
+     * @param documentKey the key of the changed document, can be null
+     * @param resumeToken the resume token of the change event, can be null
+     */
+    public ChangeStreamNotification(String notificationMessage, BsonValue documentKey, String resumeToken) {
+        this.documentKey = documentKey;
+        this.resumeToken = resumeToken;
+
+        var pooledBuffer = POOL.allocate();
+        var buffer = pooledBuffer.getBuffer();
+        var result = StandardCharsets.UTF_8.newEncoder().encode(CharBuffer.wrap(notificationMessage), buffer, true);
+
+        if (result.isUnderflow()) {
+            buffer.flip();
+            this.pooled = pooledBuffer;
+            this.message = buffer;
+        } else {
+            // too big for the pooled buffer
+            pooledBuffer.close();
+            this.pooled = null;
+            this.message = ByteBuffer.wrap(notificationMessage.getBytes(StandardCharsets.UTF_8));
+        }
     }
 
+    /**
+     *
+     * @return a view of the UTF-8 encoded message, with its own position
+     */
+    public ByteBuffer getMessage() {
+        return this.message.duplicate();
+    }
+
+    /**
+     *
+     * @return the message
+     */
     public String getNotificationMessage() {
-        return this.notificationMessage;
+        return StandardCharsets.UTF_8.decode(getMessage()).toString();
+    }
+
+    /**
+     *
+     * @return the key of the changed document, null if the change is not about a document
+     */
+    public BsonValue getDocumentKey() {
+        return this.documentKey;
+    }
+
+    /**
+     *
+     * @return the resume token of the change event, can be null
+     */
+    public String getResumeToken() {
+        return this.resumeToken;
+    }
+
+    /**
+     * acquires a reference to the notification
+     *
+     * @return this
+     */
+    public ChangeStreamNotification retain() {
+        this.references.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * releases a reference to the notification, its buffer is returned to the pool
+     * when the last reference is released
+     */
+    public void release() {
+        if (this.references.decrementAndGet() == 0 && this.pooled != null) {
+            this.pooled.close();
+        }
     }
 }
@@ -0,0 +1,93 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+
+/**
+ * A bounded buffer of the most recent events of a MongoDB change stream,
+ * indexed by resume token, used to send to a reconnecting client the events
+ * it missed.
+ *
+ * Not thread safe, the access is guarded by the ChangeStreamSubscriber.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class ChangeStreamReplayWindow {
+    private final BsonDocument[] events;
+    private final String[] tokens;
+    private final Map<String, Long> seqs = new HashMap<>();
+
+    // the sequence number of the next event
+    private long next = 0;
+
+    /**
+     *
+     * @param size the number of events kept, 0 disables the window
+     */
+    ChangeStreamReplayWindow(int size) {
+        this.events = new BsonDocument[Math.max(0, size)];
+        this.tokens = new String[this.events.length];
+    }
+
+    void add(String token, BsonDocument event) {
+        if (this.events.length == 0 || token == null) {
+            return;
+        }
+
+        var idx = (int) (this.next % this.events.length);
+
+        if (this.tokens[idx] != null) {
+            this.seqs.remove(this.tokens[idx]);
+        }
+
+        this.events[idx] = event;
+        this.tokens[idx] = token;
+        this.seqs.put(token, this.next);
+        this.next++;
+    }
+
+    /**
+     *
+     * @param token the resume token of the last event received by the client
+     * @return the events after the one with the token, or null if it is not in the window
+     */
+    List<BsonDocument> after(String token) {
+        var seq = token == null ? null : this.seqs.get(token);
+
+        if (seq == null) {
+            return null;
+        }
+
+        var ret = new ArrayList<BsonDocument>();
+
+        for (var s = seq + 1; s < this.next; s++) {
+            ret.add(this.events[(int) (s % this.events.length)]);
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,239 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.utils.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.Buffers;
+import org.xnio.ChannelListeners;
+import org.xnio.IoUtils;
+import org.xnio.XnioExecutor;
+import org.xnio.channels.StreamSinkChannel;
+
+/**
+ * A server-sent events session of a change stream.
+ *
+ * Each notification is written as an event whose id is the resume token of
+ * the change event and whose data is the json of the notification, encoded
+ * once and shared with the other sessions. Since the json is compact, the
+ * data fits in a single line. With HTTP/2, the streams of a client share
+ * the same connection.
+ *
+ * EventSource clients reconnect automatically sending the Last-Event-ID
+ * header, so that they receive the events they missed from the replay window.
+ *
+ * A comment is written every change-streams-sse-keep-alive seconds, when no
+ * notification is being sent, so that the proxies do not close idle streams.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamServerSentEventsSession extends ChangeStreamSession {
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(ChangeStreamServerSentEventsSession.class);
+
+    private static final String CONTENT_TYPE = "text/event-stream; charset=UTF-8";
+
+    private static final byte[] DATA = "data: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEEP_ALIVE = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final int KEEP_ALIVE_INTERVAL = MongoServiceConfiguration.get() != null
+        ? MongoServiceConfiguration.get().getChangeStreamsSseKeepAlive()
+        : 20;
+
+    private final StreamSinkChannel sink;
+
+    // accessed from the io thread
+    XnioExecutor.Key keepAlive = null;
+
+    /**
+     * @param sink the response channel, written from its io thread
+     * @param sessionKey
+     * @param keepAliveInterval the seconds between the keep-alive comments, 0 to disable them
+     */
+    ChangeStreamServerSentEventsSession(StreamSinkChannel sink, SessionKey sessionKey, int keepAliveInterval) {
+        super(sessionKey);
+        this.sink = sink;
+
+        this.sink.getCloseSetter().set(channel -> {
+            LOGGER.debug("Stream connection closed, sessionkey={}", sessionKey);
+            closeQuietly();
+        });
+
+        if (keepAliveInterval > 0) {
+            this.keepAlive = sink.getIoThread().executeAtInterval(this::keepAlive, keepAliveInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * starts the server-sent events response and then connects a new
+     * session to the stream, that must have been subscribed
+     *
+     * @param exchange
+     */
+    static void connect(HttpServerExchange exchange) {
+        var sessionKey = new SessionKey(exchange);
+        var resumeToken = exchange.getAttachment(GetChangeStreamHandler.RESUME_TOKEN_ATTACHMENT_KEY);
+
+        exchange.setStatusCode(HttpStatus.SC_OK);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, CONTENT_TYPE);
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "no-cache");
+        // with HTTP/1.1 the connection is dedicated to the stream
+        exchange.setPersistent(false);
+
+        var sink = exchange.getResponseChannel();
+
+        Runnable connect = () -> {
+            var session = new ChangeStreamServerSentEventsSession(sink, sessionKey, KEEP_ALIVE_INTERVAL);
+
+            exchange.addExchangeCompleteListener((ex, next) -> {
+                session.closeQuietly();
+                next.proceed();
+            });
+
+            LOGGER.debug("New stream connection, sessionkey={}", sessionKey);
+
+            ChangeStreamMultiplexer.getInstance().connect(sessionKey, session, resumeToken);
+        };
+
+        try {
+            // sends the response headers; the exchange stays open since it is either resumed or dispatched
+            if (sink.flush()) {
+                exchange.dispatch(exchange.getIoThread(), connect);
+            } else {
+                sink.getWriteSetter().set(ChannelListeners.flushingChannelListener(channel -> {
+                    // the writes are resumed on demand by the session
+                    channel.suspendWrites();
+                    channel.getWriteSetter().set(null);
+                    connect.run();
+                }, ChannelListeners.closingChannelExceptionHandler()));
+                sink.resumeWrites();
+            }
+        } catch (IOException ioe) {
+            LOGGER.debug("Error starting the stream response, sessionkey={}", sessionKey, ioe);
+            IoUtils.safeClose(sink);
+        }
+    }
+
+    @Override
+    protected void write(ChangeStreamNotification notification) {
+        var token = notification.getResumeToken();
+
+        var event = new ByteBuffer[] {
+            ByteBuffer.wrap(token == null ? DATA : ("id: " + token + "\ndata: ").getBytes(StandardCharsets.UTF_8)),
+            // the message is encoded once and shared by all the sessions
+            notification.getMessage(),
+            ByteBuffer.wrap(END)
+        };
+
+        // the response channel is written from the io thread
+        this.sink.getIoThread().execute(() -> write(event, notification));
+    }
+
+    /**
+     * writes a comment, skipped while a notification is being sent
+     */
+    private void keepAlive() {
+        if (holdSending()) {
+            write(new ByteBuffer[] { ByteBuffer.wrap(KEEP_ALIVE) }, null);
+        }
+    }
+
+    /**
+     * @param event
+     * @param notification the notification, null for the keep-alive comment
+     */
+    private void write(ByteBuffer[] event, ChangeStreamNotification notification) {
+        try {
+            while (Buffers.hasRemaining(event)) {
+                if (this.sink.write(event) == 0) {
+                    awaitWritable(event, notification);
+                    return;
+                }
+            }
+
+            if (!this.sink.flush()) {
+                awaitWritable(event, notification);
+                return;
+            }
+
+            if (notification != null) {
+                sent(notification);
+            } else {
+                resumeSending();
+            }
+        } catch (IOException ioe) {
+            if (notification != null) {
+                failed(notification, ioe);
+            } else {
+                LOGGER.debug("Error writing keep-alive, closing session, sessionkey={}", getSessionKey(), ioe);
+                closeQuietly();
+            }
+        }
+    }
+
+    private void awaitWritable(ByteBuffer[] event, ChangeStreamNotification notification) {
+        this.sink.getWriteSetter().set(channel -> {
+            channel.suspendWrites();
+            channel.getWriteSetter().set(null);
+            write(event, notification);
+        });
+
+        this.sink.resumeWrites();
+    }
+
+    @Override
+    protected Executor getIoThread() {
+        return this.sink.getIoThread();
+    }
+
+    @Override
+    protected void closeChannel() {
+        this.sink.getIoThread().execute(() -> {
+            if (this.keepAlive != null) {
+                this.keepAlive.remove();
+                this.keepAlive = null;
+            }
+
+            try {
+                this.sink.shutdownWrites();
+
+                if (this.sink.flush()) {
+                    IoUtils.safeClose(this.sink);
+                } else {
+                    this.sink.getWriteSetter().set(ChannelListeners.flushingChannelListener(ChannelListeners.closingChannelListener(), ChannelListeners.closingChannelExceptionHandler()));
+                    this.sink.resumeWrites();
+                }
+            } catch (IOException ioe) {
+                IoUtils.safeClose(this.sink);
+            }
+        });
+    }
+}
@@ -0,0 +1,301 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import io.undertow.server.session.SecureRandomSessionIdGenerator;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.MongoServiceConfiguration.CHANGE_STREAMS_OVERFLOW_POLICY;
+import org.restheart.mongodb.handlers.metrics.SharedMongoMetricRegistryProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A client session of a change stream, over WebSocket or Server-Sent Events.
+ *
+ * The notifications are queued and sent one at a time: the next one is
+ * written when the client has received the previous one, so that a slow
+ * client only delays its own notifications. When the queue is full, the
+ * change-streams-send-queue-overflow policy applies.
+ *
+ * The transport writes the notification and then calls sent() or failed().
+ *
+ * @author Omar Trasatti {@literal <omar@softinstigate.com>}
+ */
+public abstract class ChangeStreamSession {
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(ChangeStreamSession.class);
+
+    private static final int SEND_QUEUE_SIZE = MongoServiceConfiguration.get() != null
+        ? Math.max(1, MongoServiceConfiguration.get().getChangeStreamsSendQueueSize())
+        : 1_000;
+
+    private static final CHANGE_STREAMS_OVERFLOW_POLICY OVERFLOW_POLICY = MongoServiceConfiguration.get() != null
+        ? MongoServiceConfiguration.get().getChangeStreamsSendQueueOverflow()
+        : CHANGE_STREAMS_OVERFLOW_POLICY.DISCONNECT;
+
+    private static final Counter QUEUED;
+    private static final Histogram QUEUE_DEPTH;
+    private static final Counter DROPPED;
+    private static final Counter DISCONNECTED;
+
+    static {
+        var metrics = new SharedMongoMetricRegistryProxy().registry();
+        QUEUED = metrics.counter("change-streams.send-queue.queued");
+        QUEUE_DEPTH = metrics.histogram("change-streams.send-queue.depth");
+        DROPPED = metrics.counter("change-streams.send-queue.dropped");
+        DISCONNECTED = metrics.counter("change-streams.send-queue.disconnected");
+    }
+
+    private final String sessionId;
+    private final SessionKey sessionKey;
+    private final int sendQueueSize;
+    private final CHANGE_STREAMS_OVERFLOW_POLICY overflowPolicy;
+
+    // guarded by this
+    private final ArrayDeque<ChangeStreamNotification> queue = new ArrayDeque<>();
+    private boolean sending = false;
+    private boolean closed = false;
+
+    protected ChangeStreamSession(SessionKey sessionKey) {
+        this(sessionKey, SEND_QUEUE_SIZE, OVERFLOW_POLICY);
+    }
+
+    ChangeStreamSession(SessionKey sessionKey, int sendQueueSize, CHANGE_STREAMS_OVERFLOW_POLICY overflowPolicy) {
+        this.sessionId = new SecureRandomSessionIdGenerator().createSessionId();
+        this.sessionKey = sessionKey;
+        this.sendQueueSize = sendQueueSize;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public String getId() {
+        return this.sessionId;
+    }
+
+    public SessionKey getSessionKey() {
+        return this.sessionKey;
+    }
+
+    /**
+     * sends the notification or queues it if the previous one is still being sent.
+     * The session retains the notification until it is sent or dropped
+     *
+     * @param notification
+     */
+    public void send(ChangeStreamNotification notification) {
+        boolean overflow;
+
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+
+            notification.retain();
+
+            if (!this.sending) {
+                this.sending = true;
+                overflow = false;
+            } else if (enqueue(notification)) {
+                return;
+            } else {
+                overflow = true;
+            }
+        }
+
+        if (!overflow) {
+            write(notification);
+        } else {
+            notification.release();
+            LOGGER.debug("Send queue full, closing session, sessionkey={}", sessionKey);
+            DISCONNECTED.inc();
+            closeQuietly();
+        }
+    }
+
+    /**
+     * @return the number of queued notifications
+     */
+    public synchronized int queued() {
+        return this.queue.size();
+    }
+
+    /**
+     * @return false if the notification cannot be queued and the session must be closed
+     */
+    private boolean enqueue(ChangeStreamNotification notification) {
+        if (this.queue.size() >= this.sendQueueSize) {
+            ChangeStreamNotification dropped = null;
+
+            switch (this.overflowPolicy) {
+                case DISCONNECT -> {
+                    return false;
+                }
+                case COALESCE -> {
+                    var key = notification.getDocumentKey();
+
+                    if (key != null) {
+                        for (var it = this.queue.iterator(); it.hasNext();) {
+                            var queued = it.next();
+
+                            if (key.equals(queued.getDocumentKey())) {
+                                it.remove();
+                                dropped = queued;
+                                break;
+                            }
+                        }
+                    }
+
+                    if (dropped == null) {
+                        dropped = this.queue.poll();
+                    }
+                }
+                case DROP_OLDEST -> dropped = this.queue.poll();
+            }
+
+            dropped.release();
+            DROPPED.inc();
+            QUEUED.dec();
+        }
+
+        this.queue.add(notification);
+        QUEUED.inc();
+        QUEUE_DEPTH.update(this.queue.size());
+
+        return true;
+    }
+
+    private void sendNext() {
+        ChangeStreamNotification next;
+
+        synchronized (this) {
+            next = this.queue.poll();
+
+            if (next == null || this.closed) {
+                this.sending = false;
+
+                if (next != null) {
+                    next.release();
+                }
+
+                return;
+            }
+
+            QUEUED.dec();
+        }
+
+        write(next);
+    }
+
+    /**
+     * holds off the notifications, so that the transport can write something
+     * else to the client without interleaving it with them, e.g. a keep-alive
+     *
+     * @return false if a notification is being sent or the session is closed;
+     * otherwise the transport must call resumeSending() when done
+     */
+    protected synchronized boolean holdSending() {
+        if (this.closed || this.sending) {
+            return false;
+        }
+
+        this.sending = true;
+        return true;
+    }
+
+    /**
+     * to be called by the transport after holdSending(), sends the
+     * notifications queued in the meantime
+     */
+    protected void resumeSending() {
+        getIoThread().execute(this::sendNext);
+    }
+
+    /**
+     * writes the notification to the client; when done, the transport must
+     * call either sent() or failed()
+     *
+     * @param notification
+     */
+    protected abstract void write(ChangeStreamNotification notification);
+
+    /**
+     * @return the io thread of the connection, where the next notification is written
+     */
+    protected abstract Executor getIoThread();
+
+    /**
+     * closes the connection with the client
+     *
+     * @throws IOException
+     */
+    protected abstract void closeChannel() throws IOException;
+
+    /**
+     * to be called by the transport when the notification has been written
+     *
+     * @param notification
+     */
+    protected void sent(ChangeStreamNotification notification) {
+        notification.release();
+        // sending the next one from the io thread avoids recursion when the write completes immediately
+        getIoThread().execute(this::sendNext);
+    }
+
+    /**
+     * to be called by the transport when the notification cannot be written
+     *
+     * @param notification
+     * @param t
+     */
+    protected void failed(ChangeStreamNotification notification, Throwable t) {
+        notification.release();
+        LOGGER.debug("Error sending stream notification, closing session, sessionkey={}", sessionKey, t);
+        closeQuietly();
+    }
+
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+            QUEUED.dec(this.queue.size());
+            this.queue.forEach(ChangeStreamNotification::release);
+            this.queue.clear();
+        }
+
+        WebSocketSessionsRegistry.getInstance().remove(this.sessionKey, this);
+        closeChannel();
+    }
+
+    protected void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ioe) {
+            LOGGER.warn("error closing session {}", sessionKey);
+        }
+    }
+}
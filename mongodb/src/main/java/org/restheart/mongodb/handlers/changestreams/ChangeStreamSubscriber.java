@@ -21,115 +21,276 @@
 package org.restheart.mongodb.handlers.changestreams;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
-import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.MongoServerException;
 import com.mongodb.client.model.changestream.FullDocument;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonNull;
 import org.bson.BsonString;
-import org.bson.BsonValue;
-import org.bson.Document;
-import org.bson.codecs.DocumentCodec;
-import org.bson.codecs.configuration.CodecRegistries;
-import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.json.JsonMode;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
+import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.RHMongoClients;
 import org.restheart.utils.BsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Subscribes to a MongoDB change stream and dispatches its events to the
+ * streams whose matcher passes them
+ *
+ * The resume token of the last event is tracked, so that the change stream
+ * is restarted after an error from where it stopped. The most recent events
+ * are kept in a ChangeStreamReplayWindow, to send to a reconnecting client
+ * the events after its last resume token.
  *
  * @author omartrasatti
  */
-public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument<?>> {
+public class ChangeStreamSubscriber implements Subscriber<BsonDocument> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStreamSubscriber.class);
 
-    private final SessionKey sessionKey;
-    private List<BsonDocument> resolvedStages;
-    private String dbName;
-    private String collName;
+    private static final int REPLAY_WINDOW = MongoServiceConfiguration.get() != null
+        ? MongoServiceConfiguration.get().getChangeStreamsReplayWindow()
+        : 100;
+
+    private static final long RESTART_DELAY = 1_000; // 1 second
+
+    // a stream without sessions is kept for a grace period: it is subscribed before the websocket
+    // handshake or the server-sent events response starts, and its clients reconnect with a resume token
+    private static final long IDLE_GRACE_PERIOD = 10_000; // 10 seconds
+
+    private final ChangeStreamMultiplexer.UpstreamKey key;
+    private final Map<SessionKey, ChangeStreamMatcher> matchers = new ConcurrentHashMap<>();
+    // since when the streams have no sessions, absent while they have
+    private final Map<SessionKey, Long> idleSince = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final ChangeStreamReplayWindow window = new ChangeStreamReplayWindow(REPLAY_WINDOW);
 
     // Can be a configuration.
     private boolean init;
-    private Subscription sub;
+    private volatile boolean stopped = false;
+    private volatile Subscription sub;
 
-    public ChangeStreamSubscriber(SessionKey sessionKey, List<BsonDocument> resolvedStages, String dbName, String collName) {
+    // the _id of the last event and whether it invalidated the change stream
+    private volatile BsonDocument resumeToken = null;
+    private volatile boolean invalidated = false;
+    // whether the change stream notified an event since it was (re)started
+    private volatile boolean resumed = false;
+
+    public ChangeStreamSubscriber(ChangeStreamMultiplexer.UpstreamKey key) {
         super();
-        this.sessionKey = sessionKey;
-        this.resolvedStages = resolvedStages;
-        this.dbName = dbName;
-        this.collName = collName;
+        this.key = key;
         this.init = false;
     }
 
-    public ChangeStreamSubscriber(SessionKey sessionKey, List<BsonDocument> resolvedStages, String dbName, String collName, boolean init) {
-        super();
-        this.sessionKey = sessionKey;
-        this.resolvedStages = resolvedStages;
-        this.dbName = dbName;
-        this.collName = collName;
-        this.init = init;
+    /**
+     * opens the MongoDB change stream, resuming it after the last event if any
+     */
+    void start() {
+        this.resumed = false;
+
+        var publisher = RHMongoClients.mclientReactive()
+            .getDatabase(key.db())
+            .getCollection(key.collection())
+            .watch(key.stages())
+            .fullDocument(FullDocument.UPDATE_LOOKUP);
+
+        var token = this.resumeToken;
+
+        if (token != null) {
+            // an invalidated change stream cannot be resumed, only started after the invalidate event
+            publisher = this.invalidated ? publisher.startAfter(token) : publisher.resumeAfter(token);
+        }
+
+        publisher.withDocumentClass(BsonDocument.class).subscribe(this);
+    }
+
+    void add(SessionKey sessionKey, ChangeStreamMatcher matcher) {
+        this.matchers.put(sessionKey, matcher);
+        this.idleSince.put(sessionKey, now());
+    }
+
+    /**
+     *
+     * @param sessionKey
+     * @return true if no more streams are subscribed
+     */
+    boolean remove(SessionKey sessionKey) {
+        this.matchers.remove(sessionKey);
+        this.idleSince.remove(sessionKey);
+        return this.matchers.isEmpty();
+    }
+
+    Set<SessionKey> getSessionKeys() {
+        return new HashSet<>(this.matchers.keySet());
+    }
+
+    ChangeStreamMultiplexer.UpstreamKey getKey() {
+        return this.key;
+    }
+
+    /**
+     * registers the session, first sending it the events of the replay
+     * window after the one with the resume token. If the token is not in
+     * the window, the session receives the events from now on.
+     *
+     * @param sessionKey
+     * @param session
+     * @param resumeToken the resume token of the last event received by the client, can be null
+     */
+    synchronized void connect(SessionKey sessionKey, ChangeStreamSession session, String resumeToken) {
+        var matcher = this.matchers.get(sessionKey);
+        var missed = resumeToken == null || matcher == null ? null : this.window.after(resumeToken);
+
+        if (missed != null) {
+            LOGGER.debug("Replaying {} events to session {}, sessionKey={}", missed.size(), session.getId(), sessionKey);
+
+            missed.stream().filter(matcher).forEach(event -> {
+                var message = notification(event, sessionKey.getJsonMode());
+                session.send(message);
+                message.release();
+            });
+        } else if (resumeToken != null) {
+            LOGGER.debug("Resume token not in the replay window of sessionKey={}, streaming from now", sessionKey);
+        }
+
+        WebSocketSessionsRegistry.getInstance().add(sessionKey, session);
+        this.idleSince.remove(sessionKey);
     }
 
     @Override
     public void onSubscribe(final Subscription s) {
-        s.request(Long.MAX_VALUE);
         this.sub = s;
+
+        if (stopped) {
+            s.cancel();
+        } else {
+            s.request(Long.MAX_VALUE);
+        }
     }
 
     @Override
-    public void onNext(ChangeStreamDocument<?> notification) {
+    public void onNext(BsonDocument event) {
         if (!init) {
             setInit(true);
         }
 
-        if (!WebSocketSessionsRegistry.getInstance().get(sessionKey).isEmpty()) {
-            LOGGER.trace("[clients watching]: " + WebSocketSessionsRegistry.getInstance().get(sessionKey).size());
+        this.resumed = true;
 
-            LOGGER.trace("Change stream notification for sessionKey={}: {}", sessionKey, notification);
+        if (event.get("_id") instanceof BsonDocument _id) {
+            this.resumeToken = _id;
+            this.invalidated = event.get("operationType") instanceof BsonString op && "invalidate".equals(op.getValue());
+        }
 
-            ChangeStreamWebsocketCallback.NOTIFICATION_PUBLISHER.submit(
-                new ChangeStreamNotification(sessionKey,
-                    BsonUtils.toJson(getDocument(notification), sessionKey.getJsonMode())));
-        } else {
-            this.stop();
+        var unwatched = dispatch(event);
+
+        // unsubscribed out of the lock, since the multiplexer calls this subscriber
+        unwatched.forEach(sessionKey -> {
             LOGGER.debug("Closing unwatched stream, sessionKey=" + sessionKey);
             ChangeStreamsRegistry.getInstance().remove(sessionKey);
+            ChangeStreamMultiplexer.getInstance().unsubscribe(sessionKey);
+        });
+    }
+
+    /**
+     * sends the event to the matching sessions; synchronized with connect(),
+     * so that a connecting session gets either the event from the replay
+     * window or from here, only once
+     *
+     * The grace period of a stream whose sessions all left is measured from
+     * the first event that finds it without sessions, so that the change
+     * stream and its replay window survive the reconnection of the clients
+     *
+     * @return the keys of the streams without sessions after the grace period
+     */
+    synchronized List<SessionKey> dispatch(BsonDocument event) {
+        this.window.add(token(event), event);
+
+        // built and serialized once for all the matching streams, for each json mode
+        var messages = new HashMap<JsonMode, ChangeStreamNotification>();
+        var unwatched = new ArrayList<SessionKey>();
+        var now = now();
+
+        for (var entry : this.matchers.entrySet()) {
+            var sessionKey = entry.getKey();
+            var sessions = WebSocketSessionsRegistry.getInstance().get(sessionKey);
+
+            if (sessions.isEmpty()) {
+                var idleSince = this.idleSince.putIfAbsent(sessionKey, now);
+
+                if (idleSince != null && now - idleSince > IDLE_GRACE_PERIOD) {
+                    unwatched.add(sessionKey);
+                }
+            } else if (entry.getValue().test(event)) {
+                LOGGER.trace("[clients watching]: " + sessions.size());
+
+                LOGGER.trace("Change stream notification for sessionKey={}: {}", sessionKey, event);
+
+                var message = messages.computeIfAbsent(sessionKey.getJsonMode(), jsonMode -> notification(event, jsonMode));
+
+                // each session retains the message until it is sent
+                List.copyOf(sessions).forEach(session -> session.send(message));
+            }
         }
+
+        messages.values().forEach(ChangeStreamNotification::release);
+
+        return unwatched;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private static ChangeStreamNotification notification(BsonDocument event, JsonMode jsonMode) {
+        return new ChangeStreamNotification(BsonUtils.toJson(getDocument(event), jsonMode), event.get("documentKey"), token(event));
     }
 
     @Override
     public void onError(final Throwable t) {
         LOGGER.warn("Error from stream: " + t.getMessage());
 
+        if (stopped) {
+            return;
+        }
+
         if (init) {
-            LOGGER.warn("Restarting stream: {}/{}", dbName, collName);
+            if (!this.resumed && this.resumeToken != null && t instanceof MongoServerException) {
+                // e.g. the resume token is no longer in the oplog
+                LOGGER.warn("Cannot resume stream {}/{}, restarting it from now", key.db(), key.collection());
+                this.resumeToken = null;
+            }
+
+            LOGGER.warn("Restarting stream: {}/{}", key.db(), key.collection());
             restartStream();
         } else {
-            LOGGER.warn("Closing all connected ws clients: {}/{}", dbName, collName);
-            closeAllOnError(dbName, collName);
+            LOGGER.warn("Closing all connected ws clients: {}/{}", key.db(), key.collection());
+            closeAllOnError();
         }
     }
 
-    private void closeAllOnError(String db, String collection) {
+    private void closeAllOnError() {
         var webSocketSessions = WebSocketSessionsRegistry.getInstance();
         var changeStreams = ChangeStreamsRegistry.getInstance();
 
-        var sessionKeys = changeStreams.getSessionKeysOnCollection(db, collection);
+        ChangeStreamMultiplexer.getInstance().remove(this);
 
-        sessionKeys.stream()
-            .collect(Collectors.toSet())
-            .forEach(sk -> {
+        getSessionKeys().forEach(sk -> {
             var _webSocketSession = webSocketSessions.get(sk);
-            _webSocketSession.stream()
-                .collect(Collectors.toSet())
-                .forEach(wss -> {
+            new HashSet<>(_webSocketSession).forEach(wss -> {
                     try {
                         wss.close();
                         webSocketSessions.remove(sk, wss);
@@ -146,88 +307,94 @@ public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument<?
         this.init = init;
     }
 
+    /**
+     * restarts the change stream after a delay, to not spin while MongoDB is not reachable
+     */
     private void restartStream() {
-        try {
-            RHMongoClients.mclientReactive()
-                .getDatabase(dbName)
-                .getCollection(collName)
-                .watch(resolvedStages)
-                .fullDocument(FullDocument.UPDATE_LOOKUP)
-                .subscribe(new ChangeStreamSubscriber(sessionKey,
-                        resolvedStages,
-                        dbName,
-                        collName,
-                        true));
+        CompletableFuture.delayedExecutor(RESTART_DELAY, TimeUnit.MILLISECONDS).execute(() -> {
+            if (stopped) {
+                return;
+            }
 
-        }  catch(Throwable e) {
-            LOGGER.warn("Error trying to restart the stream: " + e.getMessage());
-        }
+            try {
+                start();
+            }  catch(Throwable e) {
+                LOGGER.warn("Error trying to restart the stream: " + e.getMessage());
+            }
+        });
     }
 
     @Override
     public void onComplete() {
-        LOGGER.debug("Stream completed, sessionKey=" + sessionKey);
+        LOGGER.debug("Stream completed: {}/{}", key.db(), key.collection());
+
+        // the change stream is closed after an invalidate event, e.g. when the collection is dropped
+        if (!stopped && this.invalidated) {
+            LOGGER.debug("Restarting invalidated stream: {}/{}", key.db(), key.collection());
+            restartStream();
+        }
     }
 
     public void stop() {
-        this.sub.cancel();
+        this.stopped = true;
+
+        if (this.sub != null) {
+            this.sub.cancel();
+        }
     }
 
-    private BsonDocument getDocument(ChangeStreamDocument<?> notification) {
+    /**
+     *
+     * @param event the change event
+     * @return the resume token of the event, as sent to the clients
+     */
+    static String token(BsonDocument event) {
+        if (event != null && event.get("_id") instanceof BsonDocument _id && _id.get("_data") instanceof BsonString data) {
+            return data.getValue();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @param event the change event
+     * @return the notification sent to the clients
+     */
+    static BsonDocument getDocument(BsonDocument event) {
         var doc = new BsonDocument();
 
-        if (notification == null) {
+        if (event == null) {
             return doc;
         }
 
-        if (notification.getFullDocument() != null) {
-            try {
-                doc.put("fullDocument", toBson((Document) notification.getFullDocument()));
-            } catch(ClassCastException cce) {
-                LOGGER.warn("change stream fullDocument is not json {}", notification.getFullDocument());
-                doc.put("fullDocument", BsonNull.VALUE);
-            }
+        if (event.containsKey("fullDocument") && !event.get("fullDocument").isNull()) {
+            doc.put("fullDocument", event.get("fullDocument"));
         }
 
-        if (notification.getDocumentKey() != null) {
-            doc.put("documentKey", notification.getDocumentKey());
+        if (event.containsKey("documentKey")) {
+            doc.put("documentKey", event.get("documentKey"));
         }
 
-        if (notification.getUpdateDescription() != null) {
+        if (event.get("updateDescription") instanceof BsonDocument _updateDescription) {
             var updateDescription = new BsonDocument();
 
-            var updatedFields = notification.getUpdateDescription().getUpdatedFields();
-
-            if (updatedFields != null) {
-                updateDescription.put("updatedFields", updatedFields);
-            } else {
-                updateDescription.put("updatedFields", BsonNull.VALUE);
-            }
-
-            var removedFields = notification.getUpdateDescription().getRemovedFields();
-
-            if (removedFields == null) {
-                updateDescription.put("updatedFields", new BsonArray());
-            } else {
-                var _removedFields = new BsonArray();
-                removedFields.forEach(rf -> _removedFields.add(new BsonString(rf)));
-
-                updateDescription.put("removedFields", _removedFields);
-            }
+            updateDescription.put("updatedFields", _updateDescription.get("updatedFields", BsonNull.VALUE));
+            updateDescription.put("removedFields", _updateDescription.get("removedFields", new BsonArray()));
 
             doc.put("updateDescription", updateDescription);
         }
 
-        if (notification.getOperationType() != null) {
-            doc.put("operationType", new BsonString(notification.getOperationType().getValue()));
+        if (event.containsKey("operationType")) {
+            doc.put("operationType", event.get("operationType"));
         }
 
-        return doc;
-    }
+        var token = token(event);
 
-    private static final CodecRegistry REGISTRY = CodecRegistries.fromCodecs(new DocumentCodec());
+        if (token != null) {
+            doc.put("resumeToken", new BsonString(token));
+        }
 
-    private static BsonValue toBson(Document document) {
-        return document == null ? BsonNull.VALUE : document.toBsonDocument(BsonDocument.class, REGISTRY);
+        return doc;
     }
 }
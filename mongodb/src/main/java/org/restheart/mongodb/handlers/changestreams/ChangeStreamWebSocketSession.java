@@ -20,30 +20,42 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
-import io.undertow.server.session.SecureRandomSessionIdGenerator;
 import io.undertow.websockets.core.AbstractReceiveListener;
 import io.undertow.websockets.core.StreamSourceFrameChannel;
+import io.undertow.websockets.core.WebSocketCallback;
 import io.undertow.websockets.core.WebSocketChannel;
+import io.undertow.websockets.core.WebSockets;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 /**
+ * A websocket session of a change stream.
  *
  * @author Omar Trasatti {@literal <omar@softinstigate.com>}
  */
 
-public class ChangeStreamWebSocketSession {
+public class ChangeStreamWebSocketSession extends ChangeStreamSession {
     private static final Logger LOGGER
             = LoggerFactory.getLogger(ChangeStreamWebSocketSession.class);
 
-    private final String sessionId;
-    private final SessionKey sessionKey;
     private final WebSocketChannel webSocketChannel;
 
+    private final WebSocketCallback<ChangeStreamNotification> sendCallback = new WebSocketCallback<>() {
+        @Override
+        public void complete(final WebSocketChannel channel, ChangeStreamNotification notification) {
+            sent(notification);
+        }
+
+        @Override
+        public void onError(final WebSocketChannel channel, ChangeStreamNotification notification, Throwable throwable) {
+            failed(notification, throwable);
+        }
+    };
+
     public ChangeStreamWebSocketSession(WebSocketChannel channel, SessionKey sessionKey) {
-        this.sessionId = new SecureRandomSessionIdGenerator().createSessionId();
+        super(sessionKey);
         this.webSocketChannel = channel;
-        this.sessionKey = sessionKey;
         initChannelReceiveListener(webSocketChannel);
     }
 
@@ -53,20 +65,23 @@ public class ChangeStreamWebSocketSession {
         channel.resumeReceives();
     }
 
-    public String getId() {
-        return this.sessionId;
+    public WebSocketChannel getChannel() {
+        return this.webSocketChannel;
     }
 
-    public SessionKey getSessionKey() {
-        return this.sessionKey;
+    @Override
+    protected void write(ChangeStreamNotification notification) {
+        // the message is encoded once and shared by all the sessions
+        WebSockets.sendText(notification.getMessage(), this.webSocketChannel, this.sendCallback, notification);
     }
 
-    public WebSocketChannel getChannel() {
-        return this.webSocketChannel;
+    @Override
+    protected Executor getIoThread() {
+        return this.webSocketChannel.getIoThread();
     }
 
-    public void close() throws IOException {
-        WebSocketSessionsRegistry.getInstance().remove(this.sessionKey, this);
+    @Override
+    protected void closeChannel() throws IOException {
         this.webSocketChannel.close();
     }
 
@@ -78,7 +93,7 @@ public class ChangeStreamWebSocketSession {
         }
         @Override
         protected void onClose(WebSocketChannel webSocketChannel, StreamSourceFrameChannel channel) throws IOException {
-            LOGGER.debug("Stream connection closed, sessionkey={}", sessionKey);
+            LOGGER.debug("Stream connection closed, sessionkey={}", getSessionKey());
             this.session.close();
         }
     }
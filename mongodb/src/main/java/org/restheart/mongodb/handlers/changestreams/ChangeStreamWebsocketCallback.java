@@ -23,7 +23,6 @@ package org.restheart.mongodb.handlers.changestreams;
 import io.undertow.websockets.WebSocketConnectionCallback;
 import io.undertow.websockets.core.WebSocketChannel;
 import io.undertow.websockets.spi.WebSocketHttpExchange;
-import java.util.concurrent.SubmissionPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,15 +33,9 @@ import org.slf4j.LoggerFactory;
  */
 public class ChangeStreamWebsocketCallback implements WebSocketConnectionCallback {
 
-    public static final SubmissionPublisher<ChangeStreamNotification> NOTIFICATION_PUBLISHER = new SubmissionPublisher<>();
-
     private static final Logger LOGGER
             = LoggerFactory.getLogger(ChangeStreamWebsocketCallback.class);
 
-    public ChangeStreamWebsocketCallback() {
-        NOTIFICATION_PUBLISHER.subscribe(new WebSocketNotificationSubscriber());
-    }
-
     @Override
     public void onConnect(WebSocketHttpExchange exchange, WebSocketChannel channel) {
         var sessionKey = new SessionKey(exchange);
@@ -51,7 +44,8 @@ public class ChangeStreamWebsocketCallback implements WebSocketConnectionCallbac
 
         LOGGER.debug("New stream connection, sessionkey={}", sessionKey);
 
-        WebSocketSessionsRegistry.getInstance().add(sessionKey, newSession);
+        ChangeStreamMultiplexer.getInstance().connect(sessionKey, newSession,
+                exchange.getAttachment(GetChangeStreamHandler.RESUME_TOKEN_ATTACHMENT_KEY));
     }
 
     private ChangeStreamWebSocketSession createSession(WebSocketChannel channel, SessionKey sessionKey) {
@@ -20,11 +20,11 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
-import com.mongodb.client.model.changestream.FullDocument;
 import io.undertow.Handlers;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -36,7 +36,6 @@ import org.restheart.exchange.MongoResponse;
 import org.restheart.exchange.QueryNotFoundException;
 import org.restheart.exchange.QueryVariableNotBoundException;
 import org.restheart.handlers.PipelinedHandler;
-import org.restheart.mongodb.RHMongoClients;
 import org.restheart.utils.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,12 +50,16 @@ public class GetChangeStreamHandler extends PipelinedHandler {
     private final String CONNECTION_HEADER_VALUE = "upgrade";
     private final String UPGRADE_HEADER_KEY = "upgrade";
     private final String UPGRADE_HEADER_VALUE = "websocket";
+    private final String ACCEPT_HEADER_VALUE = "text/event-stream";
+    private static final String RESUME_TOKEN_QPARAM_KEY = "resumeToken";
+    private static final String LAST_EVENT_ID_HEADER_KEY = "Last-Event-ID";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GetChangeStreamHandler.class);
     private static final HttpHandler WEBSOCKET_HANDSHAKE_HANDLER = Handlers.websocket(new ChangeStreamWebsocketCallback());
 
     public static final AttachmentKey<BsonDocument> AVARS_ATTACHMENT_KEY = AttachmentKey.create(BsonDocument.class);
     public static final AttachmentKey<JsonMode> JSON_MODE_ATTACHMENT_KEY = AttachmentKey.create(JsonMode.class);
+    public static final AttachmentKey<String> RESUME_TOKEN_ATTACHMENT_KEY = AttachmentKey.create(String.class);
 
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
@@ -70,16 +73,25 @@ public class GetChangeStreamHandler extends PipelinedHandler {
 
         try {
             if (isWebSocketHandshakeRequest(exchange)) {
-                exchange.putAttachment(JSON_MODE_ATTACHMENT_KEY, request.getJsonMode());
-                exchange.putAttachment(AVARS_ATTACHMENT_KEY, request.getAggregationVars());
+                putAttachments(exchange, request);
 
                 startStream(exchange);
 
                 WEBSOCKET_HANDSHAKE_HANDLER.handleRequest(exchange);
+            } else if (isServerSentEventsRequest(exchange)) {
+                putAttachments(exchange, request);
+
+                startStream(exchange);
+
+                // the response is started by ResponseSender, after the response interceptors
+                response.setCustomSender(() -> ChangeStreamServerSentEventsSession.connect(exchange));
+
+                next(exchange);
             } else {
                 response.setInError(HttpStatus.SC_BAD_REQUEST,
-                        "The stream connection requires WebSocket, "
-                        + "no 'Upgrade' or 'Connection' request header found");
+                        "The stream connection requires WebSocket or Server-Sent Events, "
+                        + "no 'Upgrade' or 'Connection' request header "
+                        + "nor 'Accept: text/event-stream' request header found");
 
                 next(exchange);
             }
@@ -132,6 +144,42 @@ public class GetChangeStreamHandler extends PipelinedHandler {
                     .anyMatch(val -> val.toLowerCase().contains(UPGRADE_HEADER_VALUE));
     }
 
+    private boolean isServerSentEventsRequest(HttpServerExchange exchange) {
+        var acceptVals = exchange.getRequestHeaders()
+            .get(Headers.ACCEPT);
+
+        return acceptVals != null &&
+                Arrays.stream(acceptVals.toArray())
+                    .anyMatch(val -> val.toLowerCase().contains(ACCEPT_HEADER_VALUE));
+    }
+
+    private void putAttachments(HttpServerExchange exchange, MongoRequest request) {
+        exchange.putAttachment(JSON_MODE_ATTACHMENT_KEY, request.getJsonMode());
+        exchange.putAttachment(AVARS_ATTACHMENT_KEY, request.getAggregationVars());
+
+        var resumeToken = getResumeToken(exchange);
+
+        if (resumeToken != null) {
+            exchange.putAttachment(RESUME_TOKEN_ATTACHMENT_KEY, resumeToken);
+        }
+    }
+
+    /**
+     * @return the resume token of the last event received by the client,
+     * from the resumeToken query parameter or the Last-Event-ID header
+     */
+    static String getResumeToken(HttpServerExchange exchange) {
+        var qparam = exchange.getQueryParameters().get(RESUME_TOKEN_QPARAM_KEY);
+
+        if (qparam != null && !qparam.isEmpty() && !qparam.getFirst().isBlank()) {
+            return qparam.getFirst().strip();
+        }
+
+        var header = exchange.getRequestHeaders().getFirst(LAST_EVENT_ID_HEADER_KEY);
+
+        return header == null || header.isBlank() ? null : header.strip();
+    }
+
     private List<BsonDocument> getResolvedStagesAsList(MongoRequest request) throws InvalidMetadataException, QueryVariableNotBoundException, QueryNotFoundException {
         String changesStreamOperation = request.getChangeStreamOperation();
 
@@ -165,15 +213,10 @@ public class GetChangeStreamHandler extends PipelinedHandler {
         if (!ChangeStreamsRegistry.getInstance().containsKey(streamKey)) {
             ChangeStreamsRegistry.getInstance().put(streamKey, new SessionInfo(MongoRequest.of(exchange)));
 
-            RHMongoClients.mclientReactive()
-                    .getDatabase(request.getDBName())
-                    .getCollection(request.getCollectionName())
-                    .watch(resolvedStages)
-                    .fullDocument(FullDocument.UPDATE_LOOKUP)
-                    .subscribe(new ChangeStreamSubscriber(streamKey,
-                            resolvedStages,
-                            request.getDBName(),
-                            request.getCollectionName()));
+            ChangeStreamMultiplexer.getInstance().subscribe(streamKey,
+                    request.getDBName(),
+                    request.getCollectionName(),
+                    resolvedStages);
 
             return true;
         } else {
@@ -82,6 +82,7 @@ public class ObsoleteChangeStreamRemover implements MongoInterceptor {
             });
 
             changeStreams.remove(sk);
+            ChangeStreamMultiplexer.getInstance().unsubscribe(sk);
         });
     }
 
@@ -107,6 +108,7 @@ public class ObsoleteChangeStreamRemover implements MongoInterceptor {
             });
 
             changeStreams.remove(sk);
+            ChangeStreamMultiplexer.getInstance().unsubscribe(sk);
         });
     }
 
@@ -27,21 +27,21 @@ import java.util.Set;
 
 
 /**
- * Registry to keep track of web socket sessions
+ * Registry to keep track of the web socket and server-sent events sessions
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  * @author Omar Trasatti {@literal <omar@softinstigate.com>}
  */
 public class WebSocketSessionsRegistry {
 
-    private final SetMultimap<SessionKey, ChangeStreamWebSocketSession> MULTIMAP = Multimaps
-            .synchronizedSetMultimap(Multimaps.synchronizedSetMultimap(HashMultimap.<SessionKey, ChangeStreamWebSocketSession>create()));
+    private final SetMultimap<SessionKey, ChangeStreamSession> MULTIMAP = Multimaps
+            .synchronizedSetMultimap(Multimaps.synchronizedSetMultimap(HashMultimap.<SessionKey, ChangeStreamSession>create()));
 
     public static WebSocketSessionsRegistry getInstance() {
         return CacheManagerSingletonHolder.INSTANCE;
     }
 
-    public Set<ChangeStreamWebSocketSession> get(SessionKey key) {
+    public Set<ChangeStreamSession> get(SessionKey key) {
         return MULTIMAP.get(key);
     }
 
@@ -49,11 +49,11 @@ public class WebSocketSessionsRegistry {
         return MULTIMAP.keySet();
     }
 
-    public boolean add(SessionKey key, ChangeStreamWebSocketSession session) {
+    public boolean add(SessionKey key, ChangeStreamSession session) {
         return MULTIMAP.put(key, session);
     }
 
-    public boolean remove(SessionKey key, ChangeStreamWebSocketSession session) {
+    public boolean remove(SessionKey key, ChangeStreamSession session) {
         return MULTIMAP.remove(key, session);
     }
 
@@ -0,0 +1,101 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.collection;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCursor;
+import io.undertow.server.HttpServerExchange;
+import org.bson.BsonDocument;
+import org.bson.json.JsonMode;
+import org.restheart.exchange.ExchangeKeys.STREAM_MODE;
+import org.restheart.utils.BsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+
+/**
+ * Sends the documents of GET /db/coll as they come off the cursor, either as
+ * newline delimited json or as a json array.
+ *
+ * The documents are written to the blocking output stream of the exchange:
+ * when the client does not keep up, the write blocks the worker thread and
+ * the next batch is not fetched from the cursor, so that the memory footprint
+ * does not depend on the pagesize.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class DocumentsStreamSender implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentsStreamSender.class);
+
+    private final HttpServerExchange exchange;
+    private final MongoCursor<BsonDocument> cursor;
+    private final STREAM_MODE mode;
+    private final JsonMode jsonMode;
+
+    DocumentsStreamSender(HttpServerExchange exchange, MongoCursor<BsonDocument> cursor, STREAM_MODE mode, JsonMode jsonMode) {
+        this.exchange = exchange;
+        this.cursor = cursor;
+        this.mode = mode;
+        this.jsonMode = jsonMode;
+    }
+
+    @Override
+    public void run() {
+        var array = mode == STREAM_MODE.ARRAY;
+
+        try (cursor; var out = new OutputStreamWriter(exchange.getOutputStream(), StandardCharsets.UTF_8)) {
+            if (array) {
+                out.write('[');
+            }
+
+            var first = true;
+
+            while (cursor.hasNext()) {
+                if (array && !first) {
+                    out.write(',');
+                }
+
+                BsonUtils.toJson(cursor.next(), jsonMode, out);
+
+                if (!array) {
+                    out.write('\n');
+                }
+
+                first = false;
+            }
+
+            if (array) {
+                out.write(']');
+            }
+        } catch (IOException ioe) {
+            LOGGER.debug("error streaming documents of {}, client disconnected?", exchange.getRequestPath(), ioe);
+            IoUtils.safeClose(exchange.getConnection());
+        } catch (MongoException me) {
+            // the response is already started, the only way to signal the error is closing the connection
+            LOGGER.error("error streaming documents of {}", exchange.getRequestPath(), me);
+            IoUtils.safeClose(exchange.getConnection());
+        }
+    }
+}
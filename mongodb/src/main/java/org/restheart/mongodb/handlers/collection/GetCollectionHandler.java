@@ -20,18 +20,29 @@
  */
 package org.restheart.mongodb.handlers.collection;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Optional;
 
 import com.mongodb.MongoException;
+import com.mongodb.client.MongoCursor;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.json.JsonParseException;
+import org.restheart.exchange.Exchange;
+import org.restheart.exchange.ExchangeKeys.STREAM_MODE;
 import org.restheart.exchange.IllegalQueryParamenterException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.EtagIndex;
+import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
 import org.slf4j.Logger;
@@ -77,6 +88,16 @@ public class GetCollectionHandler extends PipelinedHandler {
             return;
         }
 
+        // with the etag index, the content known by the client is checked without querying the collection
+        var contentEtag = contentEtag(exchange, request);
+
+        if (contentEtag != null && contentEtag.equals(exchange.getRequestHeaders().getFirst(Headers.IF_NONE_MATCH))) {
+            response.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
+            ResponseHelper.injectEtagHeader(exchange, contentEtag);
+            next(exchange);
+            return;
+        }
+
         long size = -1;
 
         if (request.isCount()) {
@@ -114,6 +135,34 @@ public class GetCollectionHandler extends PipelinedHandler {
                 return;
             }
 
+            if (isStreamable(exchange, request)) {
+                try {
+                    var cursor = dbs.getCollectionDataCursor(
+                        Optional.ofNullable(request.getClientSession()),
+                        request.rsOps(),
+                        request.getDBName(),
+                        request.getCollectionName(),
+                        request.getPage(),
+                        request.getPagesize(),
+                        sort,
+                        filter,
+                        request.getHintDocument(),
+                        request.getProjectionDocument());
+
+                    // the cursor is closed by the sender, this covers the case it never runs
+                    exchange.addExchangeCompleteListener((ex, nl) -> {
+                        cursor.close();
+                        nl.proceed();
+                    });
+
+                    streamData(exchange, request, response, cursor, size, contentEtag);
+                } catch (MongoException me) {
+                    handleMongoException(exchange, request, me);
+                }
+
+                return;
+            }
+
             try {
                 data = dbs.getCollectionData(
                     Optional.ofNullable(request.getClientSession()),
@@ -128,15 +177,8 @@ public class GetCollectionHandler extends PipelinedHandler {
                     request.getProjectionDocument(),
                     request.isCache());
             } catch (MongoException me) {
-                if (me.getMessage().matches(".*Can't canonicalize query.*")) {
-                    // error with the filter expression during query execution
-                    LOGGER.debug("invalid filter expression {}", request.getFilter(), me);
-                    MongoResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, "wrong request, filter expression is invalid", me);
-                    next(exchange);
-                    return;
-                } else {
-                    throw me;
-                }
+                handleMongoException(exchange, request, me);
+                return;
             }
         }
 
@@ -152,7 +194,11 @@ public class GetCollectionHandler extends PipelinedHandler {
             response.setContentTypeAsJson();
             response.setStatusCode(HttpStatus.SC_OK);
 
-            ResponseHelper.injectEtagHeader(exchange, request.getCollectionProps());
+            if (contentEtag != null) {
+                ResponseHelper.injectEtagHeader(exchange, contentEtag);
+            } else {
+                ResponseHelper.injectEtagHeader(exchange, request.getCollectionProps());
+            }
 
             // call the ResponseTransformerMetadataHandler if piped in
             next(exchange);
@@ -161,4 +207,109 @@ public class GetCollectionHandler extends PipelinedHandler {
             next(exchange);
         }
     }
+
+    /**
+     * The etag of the content combines the etag of the collection from the
+     * EtagIndex with the query string, the filter, that includes the readFilter
+     * of the permission, and the user, since the same collection etag is valid
+     * for all the requests of the collection.
+     *
+     * @return the etag of the content or null if the EtagIndex cannot be used
+     */
+    private static String contentEtag(HttpServerExchange exchange, MongoRequest request) {
+        if (!RequestHelper.canUseEtagIndex(request)) {
+            return null;
+        }
+
+        // the etag of the collection must be read before the documents
+        var collEtag = EtagIndex.get().etag(request.getDBName(), request.getCollectionName());
+
+        if (collEtag == null) {
+            return null;
+        }
+
+        var account = request.getAuthenticatedAccount();
+        var user = account == null || account.getPrincipal() == null ? null : account.getPrincipal().getName();
+
+        return collEtag.toHexString() + "-" + digest(exchange.getQueryString(), String.valueOf(request.getFilter()), user);
+    }
+
+    /**
+     * @return the first 128 bits of the SHA-256 of the values, hex encoded; each
+     * value is prefixed by its length, so that different values cannot collide
+     * by moving characters from one to the next
+     */
+    static String digest(String... values) {
+        MessageDigest sha256;
+
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(nsae);
+        }
+
+        for (var value : values) {
+            if (value == null) {
+                sha256.update(ByteBuffer.allocate(4).putInt(-1).array());
+            } else {
+                var bytes = value.getBytes(StandardCharsets.UTF_8);
+                sha256.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                sha256.update(bytes);
+            }
+        }
+
+        return HexFormat.of().formatHex(sha256.digest(), 0, 16);
+    }
+
+    /**
+     * The documents are streamed when requested with the stream query
+     * parameter and the exchange is blocking, since the sender relies on the
+     * blocking writes to not read the cursor faster than the client consumes
+     * the response. MongoService disables the streaming when some response
+     * interceptor needs the content.
+     */
+    private boolean isStreamable(HttpServerExchange exchange, MongoRequest request) {
+        return request.getStreamMode() != null
+            && exchange.isBlocking()
+            && !exchange.isInIoThread();
+    }
+
+    private void streamData(HttpServerExchange exchange, MongoRequest request, MongoResponse response, MongoCursor<BsonDocument> cursor, long size, String contentEtag) throws Exception {
+        try {
+            // the content is not set, the sender writes the documents as they come off the cursor
+            response.setCount(size);
+
+            response.setContentType(request.getStreamMode() == STREAM_MODE.NDJSON
+                ? Exchange.NDJSON_MEDIA_TYPE
+                : Exchange.JSON_MEDIA_TYPE);
+
+            response.setStatusCode(HttpStatus.SC_OK);
+
+            if (contentEtag != null) {
+                ResponseHelper.injectEtagHeader(exchange, contentEtag);
+            } else {
+                ResponseHelper.injectEtagHeader(exchange, request.getCollectionProps());
+            }
+
+            response.setCustomSender(new DocumentsStreamSender(exchange, cursor, request.getStreamMode(), request.getJsonMode()));
+
+            next(exchange);
+        } catch (IllegalQueryParamenterException ex) {
+            cursor.close();
+            MongoResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, ex.getMessage(), ex);
+            next(exchange);
+        }
+    }
+
+    private void handleMongoException(HttpServerExchange exchange, MongoRequest request, MongoException me) throws Exception {
+        if (me.getMessage().matches(".*Can't canonicalize query.*")) {
+            // error with the filter expression during query execution
+            LOGGER.debug("invalid filter expression {}", request.getFilter(), me);
+            MongoResponse.of(exchange).setInError(HttpStatus.SC_BAD_REQUEST, "wrong request, filter expression is invalid", me);
+            next(exchange);
+        } else {
+            throw me;
+        }
+    }
 }
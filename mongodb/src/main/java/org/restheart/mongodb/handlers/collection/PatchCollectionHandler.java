@@ -26,10 +26,12 @@ import static org.restheart.exchange.ExchangeKeys._SCHEMAS;
 
 import java.util.Optional;
 
+import org.restheart.exchange.InvalidMetadataException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.WriteBehind;
 import org.restheart.mongodb.interceptors.MetadataCachesSingleton;
 import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.utils.HttpStatus;
@@ -107,6 +109,15 @@ public class PatchCollectionHandler extends PipelinedHandler {
 
         final var content = _content.asDocument();
 
+        // check the write-behind options, otherwise the POST requests would fail
+        try {
+            WriteBehind.check(content);
+        } catch (InvalidMetadataException ime) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST, "wrong write-behind metadata, " + ime.getMessage(), ime);
+            next(exchange);
+            return;
+        }
+
         var result = dbs.upsertCollection(
             Optional.ofNullable(request.getClientSession()),
             request.rsOps(),
@@ -28,10 +28,13 @@ import java.util.Optional;
 
 import org.bson.BsonDocument;
 import org.restheart.exchange.ExchangeKeys.DOC_ID_TYPE;
+import org.restheart.exchange.ExchangeKeys.WRITE_MODE;
+import org.restheart.exchange.InvalidMetadataException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Documents;
+import org.restheart.mongodb.db.WriteBehind;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.mongodb.utils.MongoURLUtils;
 import org.restheart.utils.HttpStatus;
@@ -106,19 +109,37 @@ public class PostCollectionHandler extends PipelinedHandler {
             }
         }
 
-        var result = documents.writeDocument(
-            Optional.ofNullable(request.getClientSession()),
-            request.rsOps(),
-            request.getDBName(),
-            request.getCollectionName(),
-            request.getMethod(),
-            request.getWriteMode(),
-            Optional.ofNullable(content.get("_id")),
-            Optional.ofNullable(request.getFiltersDocument()),
-            Optional.ofNullable(request.getShardKey()),
-            content,
-            request.getETag(),
-            request.isETagCheckRequired());
+        WriteBehind writeBehind;
+
+        try {
+            writeBehind = WriteBehind.getFromJson(request.getCollectionProps());
+        } catch (InvalidMetadataException ime) {
+            response.setInError(HttpStatus.SC_INTERNAL_SERVER_ERROR, "wrong collection metadata", ime);
+            next(exchange);
+            return;
+        }
+
+        // write-behind does not apply to inserts in transactions
+        var result = writeBehind != null && request.getWriteMode() == WRITE_MODE.INSERT && request.getClientSession() == null
+            ? documents.insertDocument(
+                request.rsOps(),
+                request.getDBName(),
+                request.getCollectionName(),
+                content,
+                writeBehind)
+            : documents.writeDocument(
+                Optional.ofNullable(request.getClientSession()),
+                request.rsOps(),
+                request.getDBName(),
+                request.getCollectionName(),
+                request.getMethod(),
+                request.getWriteMode(),
+                Optional.ofNullable(content.get("_id")),
+                Optional.ofNullable(request.getFiltersDocument()),
+                Optional.ofNullable(request.getShardKey()),
+                content,
+                request.getETag(),
+                request.isETagCheckRequired());
 
         response.setDbOperationResult(result);
 
@@ -152,7 +173,7 @@ public class PostCollectionHandler extends PipelinedHandler {
         // insert the Location handler for new documents
         // note, next handlers might change the status code
         if (result.getHttpCode() == HttpStatus.SC_CREATED) {
-            response.getHeaders().add(HttpString.tryFromString("Location"), RepresentationUtils.getReferenceLink(MongoURLUtils.getRemappedRequestURL(exchange), result.getNewData().get("_id")));
+            response.getHeaders().add(HttpString.tryFromString("Location"), RepresentationUtils.getReferenceLink(MongoURLUtils.getRemappedRequestURL(exchange), result.getNewId()));
         }
 
         next(exchange);
@@ -24,10 +24,12 @@ import java.util.Optional;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
 import org.bson.BsonDocument;
+import org.restheart.exchange.InvalidMetadataException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.WriteBehind;
 import org.restheart.mongodb.interceptors.MetadataCachesSingleton;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
@@ -84,6 +86,15 @@ public class PutCollectionHandler extends PipelinedHandler {
 
         final BsonDocument content = _content.asDocument();
 
+        // check the write-behind options, otherwise the POST requests would fail
+        try {
+            WriteBehind.check(content);
+        } catch (InvalidMetadataException ime) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST, "wrong write-behind metadata, " + ime.getMessage(), ime);
+            next(exchange);
+            return;
+        }
+
         var result = dbs.upsertCollection(
             Optional.ofNullable(request.getClientSession()),
             request.rsOps(), 
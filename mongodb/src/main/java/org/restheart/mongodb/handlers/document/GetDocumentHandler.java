@@ -23,6 +23,7 @@ package org.restheart.mongodb.handlers.document;
 import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
 import java.util.Deque;
 import java.util.HashSet;
 import org.bson.BsonDocument;
@@ -38,6 +39,7 @@ import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Databases;
+import org.restheart.mongodb.db.EtagIndex;
 import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
@@ -99,6 +101,21 @@ public class GetDocumentHandler extends PipelinedHandler {
             docId = request.getDocumentId();
         }
 
+        // with the etag index, the etag known by the client is checked without querying the document
+        var etagIndex = EtagIndex.get();
+        var ifNoneMatch = exchange.getRequestHeaders().getFirst(Headers.IF_NONE_MATCH);
+        var useEtagIndex = request.getType() == TYPE.DOCUMENT && RequestHelper.canUseEtagIndex(request);
+
+        if (useEtagIndex && etagIndex.isCurrent(request.getDBName(), collName, docId, request.getFiltersDocument(), ifNoneMatch)) {
+            response.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
+            ResponseHelper.injectEtagHeader(exchange, ifNoneMatch);
+            next(exchange);
+            return;
+        }
+
+        // the etag of the collection must be read before the document
+        var collEtag = useEtagIndex ? etagIndex.etag(request.getDBName(), collName) : null;
+
         Bson query = eq("_id", docId);
 
         HashSet<Bson> terms = new HashSet<>();
@@ -209,6 +226,10 @@ public class GetDocumentHandler extends PipelinedHandler {
             return;
         }
 
+        if (collEtag != null && etag instanceof BsonObjectId oid) {
+            etagIndex.read(request.getDBName(), collName, docId, request.getFiltersDocument(), oid.getValue(), collEtag);
+        }
+
         response.setContent(document);
 
         response.setContentTypeAsJson();
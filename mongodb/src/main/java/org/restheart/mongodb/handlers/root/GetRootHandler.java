@@ -30,7 +30,6 @@ import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Databases;
-import org.restheart.mongodb.interceptors.MetadataCachesSingleton;
 import org.restheart.utils.HttpStatus;
 
 /**
@@ -109,13 +108,7 @@ public class GetRootHandler extends PipelinedHandler {
                                 : (request.getPage() - 1) * pagesize
                                 + pagesize);
 
-                        __dbs.stream().map(db -> {
-                                if (MetadataCachesSingleton.isEnabled() && !request.isNoCache()) {
-                                    return MetadataCachesSingleton.getInstance().getDBProperties(db);
-                                } else {
-                                    return dbs.getDatabaseProperties(Optional.ofNullable(request.getClientSession()), request.rsOps(), request.getDBName());
-                                }})
-                            .forEachOrdered(db -> data.add(db));
+                        data.addAll(dbs.getDatabasesData(Optional.ofNullable(request.getClientSession()), request.rsOps(), __dbs, request.isNoCache()));
                     }
                 }
             }
@@ -165,7 +165,8 @@ public class JsonSchemaTransformer extends PipelinedHandler {
     static void escapeSchema(BsonDocument schema) {
         BsonValue escaped = BsonUtils.escapeKeys(schema, false);
 
-        if (escaped.isDocument()) {
+        // escapeKeys() returns the schema itself when no key needs escaping
+        if (escaped != schema && escaped.isDocument()) {
             List<String> keys = Lists.newArrayList(schema.keySet().iterator());
 
             keys.stream().forEach(f -> schema.remove(f));
@@ -181,7 +182,7 @@ public class JsonSchemaTransformer extends PipelinedHandler {
     static void unescapeSchema(BsonDocument schema) {
         var unescaped = BsonUtils.unescapeKeys(schema);
 
-        if (unescaped != null && unescaped.isDocument()) {
+        if (unescaped != schema && unescaped != null && unescaped.isDocument()) {
             var keys = Lists.newArrayList(schema.keySet().iterator());
 
             keys.stream().forEach(f -> schema.remove(f));
@@ -25,6 +25,7 @@ import java.util.UUID;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.mongodb.db.EtagIndex;
 import org.restheart.mongodb.db.sessions.Txn;
 import org.restheart.mongodb.db.sessions.TxnClientSessionFactory;
 import org.restheart.utils.HttpStatus;
@@ -77,6 +78,9 @@ public class PatchTxnHandler extends PipelinedHandler {
 
         cs.commitTransaction();
 
+        // the collections written by the transaction are not known
+        EtagIndex.get().invalidateAll();
+
         response.setContentTypeAsJson();
         response.setStatusCode(HttpStatus.SC_OK);
 
@@ -173,6 +173,60 @@ public class MetadataCachesSingleton {
         }
     }
 
+    /**
+     *
+     * @param dbName
+     * @return the cached db properties, null if not cached or cached as not existing
+     */
+    public BsonDocument getCachedDBProperties(String dbName) {
+        if (!enabled) {
+            throw new IllegalStateException("tried to use disabled cache");
+        }
+
+        var _dbProps = dbPropsCache.get(dbName);
+
+        return _dbProps == null ? null : _dbProps.orElse(null);
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @return the cached collection properties, null if not cached or cached as not existing
+     */
+    public BsonDocument getCachedCollectionProperties(String dbName, String collName) {
+        if (!enabled) {
+            throw new IllegalStateException("tried to use disabled cache");
+        }
+
+        var _collProps = collectionPropsCache.get(dbName + SEPARATOR + collName);
+
+        return _collProps == null ? null : _collProps.orElse(null);
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param dbProps
+     */
+    public void putDBProperties(String dbName, BsonDocument dbProps) {
+        if (enabled && dbPropsCache != null) {
+            dbPropsCache.put(dbName, dbProps);
+        }
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param collProps
+     */
+    public void putCollectionProperties(String dbName, String collName, BsonDocument collProps) {
+        if (enabled && collectionPropsCache != null) {
+            collectionPropsCache.put(dbName + SEPARATOR + collName, collProps);
+        }
+    }
+
     /**
      *
      * @param dbName
@@ -26,7 +26,9 @@ import io.undertow.util.Headers;
 import org.bson.BsonObjectId;
 import org.bson.BsonValue;
 import org.bson.types.ObjectId;
+import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
+import org.restheart.mongodb.db.EtagIndex;
 import org.restheart.mongodb.db.OperationResult;
 import org.restheart.utils.HttpStatus;
 
@@ -55,6 +57,22 @@ public class RequestHelper {
         return vs == null || vs.getFirst() == null ? false : vs.getFirst().equals(etag.getValue().toString());
     }
 
+    /**
+     * The EtagIndex is not used for requests in a client session, since the
+     * writes of a transaction are visible only after the commit, and for
+     * requests that specify the readConcern or readPreference, since they can
+     * read data older than the etag of the collection
+     *
+     * @param request
+     * @return true if the conditional request can be checked with the EtagIndex
+     */
+    public static boolean canUseEtagIndex(MongoRequest request) {
+        return EtagIndex.get().isEnabled()
+            && request.getClientSession() == null
+            && request.rsOps().isEmpty()
+            && request.getShardKey() == null;
+    }
+
     /**
      *
      * @param exchange
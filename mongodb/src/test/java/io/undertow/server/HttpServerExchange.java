@@ -47,6 +47,7 @@ public class HttpServerExchange extends AbstractAttachable {
     private String relativePath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap requestHeaders = new HeaderMap();
 
     /**
      *
@@ -175,7 +176,7 @@ public class HttpServerExchange extends AbstractAttachable {
      * @return
      */
     public HeaderMap getRequestHeaders() {
-        return null;
+        return requestHeaders;
     }
 
     /**
@@ -20,9 +20,20 @@
  */
 package org.restheart.mongodb.db;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import java.util.Optional;
 import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
 import org.bson.BsonString;
+import org.bson.conversions.Bson;
+import org.restheart.exchange.ExchangeKeys.METHOD;
+import org.restheart.exchange.ExchangeKeys.WRITE_MODE;
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
@@ -69,4 +80,45 @@ public class DAOUtilsTest {
         assertEquals(DbUtils.validContent(dbo), dbo);
     }
 
+    /**
+     *
+     */
+    @Test
+    public void testApplyUpdate() {
+        var doc = BsonDocument.parse("{ '_id': 1, 'a': 1, 'n': { 'x': 1, 'y': 2 }, 'arr': [ { 'x': 1 } ] }");
+
+        var update = BsonDocument.parse("{ '$set': { 'a': 2, 'b': 'new', 'n.x': 3, 'm.z': 1 }, '$unset': { 'n.y': '', 'not.existing': '' } }");
+        var updated = DbUtils.applyUpdate(doc, update);
+
+        assertEquals(BsonDocument.parse("{ '_id': 1, 'a': 2, 'n': { 'x': 3 }, 'arr': [ { 'x': 1 } ], 'b': 'new', 'm': { 'z': 1 } }"), updated);
+
+        // the document is not modified
+        assertEquals(2, doc.getDocument("n").getInt32("y").getValue());
+
+        // other operators and array elements cannot be applied locally
+        assertNull(DbUtils.applyUpdate(doc, BsonDocument.parse("{ '$inc': { 'a': 1 } }")));
+        assertNull(DbUtils.applyUpdate(doc, BsonDocument.parse("{ '$set': { 'arr.0.x': 2 } }")));
+    }
+
+    /**
+     *
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPatchUpsertWithoutId() {
+        var upserted = new BsonDocument("_id", new BsonObjectId()).append("n", new BsonString("x"));
+
+        // the server returns the upserted document only when asked for the new one
+        MongoCollection<BsonDocument> coll = mock(MongoCollection.class);
+        when(coll.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+            .thenAnswer(i -> i.getArgument(2, FindOneAndUpdateOptions.class).getReturnDocument() == ReturnDocument.AFTER ? upserted : null);
+
+        var result = DbUtils.writeDocument(Optional.empty(), METHOD.PATCH, WRITE_MODE.UPSERT, coll,
+            Optional.empty(), Optional.empty(), Optional.empty(),
+            BsonDocument.parse("{ '$set': { 'n': 'x' } }"));
+
+        assertEquals(upserted.get("_id"), result.getNewId());
+        assertEquals(upserted, result.getNewData());
+        assertNull(result.getOldData());
+    }
 }
@@ -0,0 +1,83 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import static org.junit.Assert.*;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class EtagIndexTest {
+    @Test
+    public void testCollectionEtag() {
+        var index = new EtagIndex(true, false, 100);
+
+        var etag = index.etag("db", "coll");
+        assertNotNull(etag);
+        assertEquals(etag, index.etag("db", "coll"));
+
+        index.written("db", "other");
+        assertEquals(etag, index.etag("db", "coll"));
+
+        index.written("db", "coll");
+        var newEtag = index.etag("db", "coll");
+        assertNotEquals(etag, newEtag);
+
+        index.invalidate("db");
+        assertNotEquals(newEtag, index.etag("db", "coll"));
+    }
+
+    @Test
+    public void testDocumentEtag() {
+        var index = new EtagIndex(true, false, 100);
+        var id = new BsonString("doc");
+        var filter = new BsonDocument("a", new BsonInt32(1));
+        var docEtag = new ObjectId();
+
+        index.read("db", "coll", id, filter, docEtag, index.etag("db", "coll"));
+
+        assertTrue(index.isCurrent("db", "coll", id, filter, docEtag.toHexString()));
+        assertFalse(index.isCurrent("db", "coll", id, filter, new ObjectId().toHexString()));
+        assertFalse(index.isCurrent("db", "coll", id, null, docEtag.toHexString()));
+        assertFalse(index.isCurrent("db", "coll", id, filter, null));
+
+        index.written("db", "coll");
+        assertFalse(index.isCurrent("db", "coll", id, filter, docEtag.toHexString()));
+    }
+
+    @Test
+    public void testNotTrusted() {
+        var index = new EtagIndex(true, true, 100);
+        assertNull(index.etag("db", "coll"));
+
+        index.setTrusted(true);
+        assertNotNull(index.etag("db", "coll"));
+
+        assertNull(new EtagIndex(false, false, 100).etag("db", "coll"));
+    }
+}
@@ -0,0 +1,113 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class GetCollectionCacheTest {
+    private final GetCollectionCache cache = GetCollectionCache.getInstance();
+
+    private static final BsonDocument FILTER = new BsonDocument("a", new BsonInt32(1));
+    private static final BsonDocument SORT = new BsonDocument("_id", new BsonInt32(-1));
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<BsonDocument> coll(String db, String coll) {
+        var ret = (MongoCollection<BsonDocument>) mock(MongoCollection.class);
+        when(ret.getNamespace()).thenReturn(new MongoNamespace(db, coll));
+        return ret;
+    }
+
+    private static GetCollectionCacheKey key(MongoCollection<BsonDocument> coll, BsonDocument filter, int from, int to, boolean exhausted) {
+        return new GetCollectionCacheKey(Optional.empty(), coll, SORT, filter, null, null, from, to, System.nanoTime(), exhausted);
+    }
+
+    @Test
+    public void testFindCoveringRange() {
+        var coll = coll("test", "covering");
+        var docs = List.of(new BsonDocument("n", new BsonInt32(1)));
+
+        cache.put(key(coll, FILTER, 0, 100, false), docs);
+        cache.put(key(coll, FILTER, 100, 200, false), docs);
+
+        var match = cache.find(key(coll, FILTER, 110, 150, false));
+        assertNotNull(match);
+        assertEquals(100, match.getKey().from());
+
+        assertNotNull(cache.find(key(coll, FILTER, 0, 100, false)));
+
+        // not covered by a single entry
+        assertNull(cache.find(key(coll, FILTER, 50, 150, false)));
+
+        // different query
+        assertNull(cache.find(key(coll, new BsonDocument("a", new BsonInt32(2)), 0, 10, false)));
+
+        // different namespace
+        assertNull(cache.find(key(coll("test", "other"), FILTER, 0, 10, false)));
+    }
+
+    @Test
+    public void testFindExhausted() {
+        var coll = coll("test", "exhausted");
+        var docs = List.of(new BsonDocument("n", new BsonInt32(1)));
+
+        cache.put(key(coll, FILTER, 100, 150, true), docs);
+
+        assertNotNull(cache.find(key(coll, FILTER, 120, 220, false)));
+        assertNull(cache.find(key(coll, FILTER, 50, 150, false)));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        var coll = coll("test", "invalidate");
+        var docs = List.of(new BsonDocument("n", new BsonInt32(1)));
+
+        cache.put(key(coll, FILTER, 0, 100, false), docs);
+        assertNotNull(cache.find(key(coll, FILTER, 0, 10, false)));
+
+        cache.invalidateAll("test", "invalidate");
+        assertNull(cache.find(key(coll, FILTER, 0, 10, false)));
+    }
+
+    @Test
+    public void testRemove() {
+        var coll = coll("test", "remove");
+        var docs = List.of(new BsonDocument("n", new BsonInt32(1)));
+
+        cache.put(key(coll, FILTER, 0, 100, false), docs);
+        assertEquals(docs, cache.remove(key(coll, FILTER, 0, 10, false)));
+        assertNull(cache.find(key(coll, FILTER, 0, 10, false)));
+    }
+}
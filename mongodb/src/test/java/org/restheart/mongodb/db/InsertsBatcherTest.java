@@ -0,0 +1,145 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.Test;
+import org.restheart.exchange.InvalidMetadataException;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class InsertsBatcherTest {
+    private static final InsertsBatcher batcher = InsertsBatcher.get();
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<BsonDocument> coll(String name) {
+        var ret = (MongoCollection<BsonDocument>) mock(MongoCollection.class);
+        when(ret.getNamespace()).thenReturn(new MongoNamespace("test", name));
+        when(ret.getWriteConcern()).thenReturn(WriteConcern.ACKNOWLEDGED);
+        return ret;
+    }
+
+    private static BsonDocument doc(int id) {
+        return new BsonDocument("_id", new BsonInt32(id));
+    }
+
+    private static List<Throwable> insertConcurrently(MongoCollection<BsonDocument> coll, int count, WriteBehind options) throws Exception {
+        var executor = Executors.newFixedThreadPool(count);
+
+        try {
+            var tasks = new ArrayList<Callable<Throwable>>();
+
+            for (var i = 0; i < count; i++) {
+                var id = i;
+                tasks.add(() -> {
+                    try {
+                        batcher.insert(coll, doc(id), options);
+                        return null;
+                    } catch (Throwable t) {
+                        return t;
+                    }
+                });
+            }
+
+            var ret = new ArrayList<Throwable>();
+
+            for (var f : executor.invokeAll(tasks)) {
+                ret.add(f.get());
+            }
+
+            return ret;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInsertsAreBatched() throws Exception {
+        var coll = coll("batched");
+
+        // the batch is written as soon as it is full, long before maxDelay
+        var errors = insertConcurrently(coll, 10, new WriteBehind(10, 60_000));
+
+        assertTrue(errors.stream().allMatch(e -> e == null));
+        verify(coll, times(1)).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testErrorsAreFannedOut() throws Exception {
+        var coll = coll("errors");
+        var duplicateKey = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0);
+
+        when(coll.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenAnswer(invocation -> {
+            List<?> models = invocation.getArgument(0);
+
+            var error = new BulkWriteError(duplicateKey.getCode(), duplicateKey.getMessage(), duplicateKey.getDetails(), models.size() - 1);
+            throw new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of());
+        });
+
+        var errors = insertConcurrently(coll, 1, new WriteBehind(10, 1));
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof MongoWriteException);
+        assertEquals(11000, ((MongoWriteException) errors.get(0)).getCode());
+    }
+
+    @Test
+    public void testGetFromJson() throws Exception {
+        assertNull(WriteBehind.getFromJson(new BsonDocument()));
+        assertEquals(new WriteBehind(WriteBehind.DEFAULT_MAX_BATCH_SIZE, WriteBehind.DEFAULT_MAX_DELAY), WriteBehind.getFromJson(BsonDocument.parse("{ writeBehind: true }")));
+        assertEquals(new WriteBehind(50, 5), WriteBehind.getFromJson(BsonDocument.parse("{ writeBehind: { maxBatchSize: 50 } }")));
+
+        try {
+            WriteBehind.getFromJson(BsonDocument.parse("{ writeBehind: { maxDelay: -1 } }"));
+            fail("negative maxDelay accepted");
+        } catch (InvalidMetadataException ime) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import org.bson.Document;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class NamespaceCatalogTest {
+    @SuppressWarnings("unchecked")
+    private static MongoDatabase db(List<String> collNames, Document filtered) {
+        var db = mock(MongoDatabase.class);
+
+        var names = (MongoIterable<String>) mock(MongoIterable.class);
+        when(names.into(any())).thenAnswer(i -> {
+            Collection<String> target = i.getArgument(0);
+            target.addAll(collNames);
+            return target;
+        });
+        when(db.listCollectionNames()).thenReturn(names);
+
+        var colls = (ListCollectionsIterable<Document>) mock(ListCollectionsIterable.class);
+        when(colls.filter(any())).thenReturn(colls);
+        when(colls.first()).thenReturn(filtered);
+        when(db.listCollections()).thenReturn(colls);
+
+        return db;
+    }
+
+    @Test
+    public void testCollectionExists() {
+        var client = mock(MongoClient.class);
+        var db = db(List.of("a", "b"), null);
+        when(client.getDatabase("db")).thenReturn(db);
+
+        var catalog = new NamespaceCatalog(client, 60_000);
+
+        assertTrue(catalog.collectionExists("db", "a"));
+        assertTrue(catalog.collectionExists("db", "b"));
+        assertFalse(catalog.collectionExists("db", "c"));
+
+        // listed once
+        verify(db, times(1)).listCollectionNames();
+
+        catalog.created("db", "c");
+        assertTrue(catalog.collectionExists("db", "c"));
+
+        catalog.deleted("db", "a");
+        assertFalse(catalog.collectionExists("db", "a"));
+
+        verify(db, times(1)).listCollectionNames();
+    }
+
+    @Test
+    public void testCollectionCreatedByOthers() {
+        var client = mock(MongoClient.class);
+        var db = db(List.of("a"), new Document("name", "c"));
+        when(client.getDatabase("db")).thenReturn(db);
+
+        var catalog = new NamespaceCatalog(client, 60_000);
+
+        assertTrue(catalog.collectionExists("db", "c"));
+        assertTrue(catalog.collectionExists("db", "c"));
+
+        // the second check finds it in the catalog
+        verify(db, times(1)).listCollections();
+    }
+
+    @Test
+    public void testDbExists() {
+        var client = mock(MongoClient.class);
+        var db = db(List.of("a"), null);
+        var empty = db(List.of(), null);
+        when(client.getDatabase("db")).thenReturn(db);
+        when(client.getDatabase("empty")).thenReturn(empty);
+
+        var catalog = new NamespaceCatalog(client, 60_000);
+
+        assertTrue(catalog.dbExists("db"));
+        assertTrue(catalog.dbExists("db"));
+        verify(db, times(1)).listCollectionNames();
+
+        assertFalse(catalog.dbExists("empty"));
+
+        catalog.deleted("db");
+        assertTrue(catalog.dbExists("db"));
+        verify(db, times(2)).listCollectionNames();
+    }
+}
@@ -0,0 +1,53 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import org.bson.BsonDocument;
+import org.junit.Test;
+import org.restheart.exchange.InvalidMetadataException;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class WriteBehindTest {
+    @Test
+    public void testGetFromJson() throws Exception {
+        assertNull(WriteBehind.getFromJson(BsonDocument.parse("{ 'descr': 'x' }")));
+        assertNull(WriteBehind.getFromJson(BsonDocument.parse("{ 'writeBehind': false }")));
+        assertEquals(new WriteBehind(WriteBehind.DEFAULT_MAX_BATCH_SIZE, WriteBehind.DEFAULT_MAX_DELAY), WriteBehind.getFromJson(BsonDocument.parse("{ 'writeBehind': true }")));
+        assertEquals(new WriteBehind(10, WriteBehind.DEFAULT_MAX_DELAY), WriteBehind.getFromJson(BsonDocument.parse("{ 'writeBehind': { 'maxBatchSize': 10 } }")));
+    }
+
+    @Test
+    public void testCheck() throws Exception {
+        WriteBehind.check(BsonDocument.parse("{ 'writeBehind': { 'maxBatchSize': 10, 'maxDelay': 1 } }"));
+        WriteBehind.check(BsonDocument.parse("{ 'writeBehind.maxDelay': 10 }"));
+
+        assertThrows(InvalidMetadataException.class, () -> WriteBehind.check(BsonDocument.parse("{ 'writeBehind': 'yes' }")));
+        assertThrows(InvalidMetadataException.class, () -> WriteBehind.check(BsonDocument.parse("{ 'writeBehind': { 'maxDelay': 0 } }")));
+        assertThrows(InvalidMetadataException.class, () -> WriteBehind.check(BsonDocument.parse("{ 'writeBehind.maxBatchSize': 'a' }")));
+    }
+}
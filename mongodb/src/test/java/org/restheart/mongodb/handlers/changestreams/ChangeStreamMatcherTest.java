@@ -0,0 +1,95 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamMatcherTest {
+    private static final BsonDocument INSERT = BsonDocument.parse("""
+        { "_id": { "_data": "8263" }, "operationType": "insert",
+          "fullDocument": { "_id": 1, "tenant": "a", "n": 5, "tags": [ "x", "y" ], "items": [ { "sku": "s1" }, { "sku": "s2" } ] },
+          "documentKey": { "_id": 1 } }
+        """);
+
+    private static final BsonDocument DELETE = BsonDocument.parse("""
+        { "_id": { "_data": "8264" }, "operationType": "delete", "documentKey": { "_id": 1 } }
+        """);
+
+    private static boolean matches(String stages, BsonDocument event) {
+        return ChangeStreamMatcher.of(stages(stages)).get().test(event);
+    }
+
+    private static List<BsonDocument> stages(String stages) {
+        return BsonDocument.parse("{ \"s\": " + stages + " }").getArray("s").getValues().stream().map(s -> s.asDocument()).toList();
+    }
+
+    @Test
+    public void testEquality() {
+        assertTrue(matches("[]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument.tenant': 'a' } } ]", INSERT));
+        assertFalse(matches("[ { '$match': { 'fullDocument.tenant': 'b' } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument.n': 5.0 } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument.tags': 'y' } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument.items.sku': 's2' } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument.items.1.sku': 's2' } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument.tenant': null } } ]", DELETE));
+        assertFalse(matches("[ { '$match': { 'fullDocument.tenant': { '$ne': null } } } ]", DELETE));
+    }
+
+    @Test
+    public void testOperators() {
+        assertTrue(matches("[ { '$match': { 'operationType': { '$in': [ 'insert', 'update' ] } } } ]", INSERT));
+        assertFalse(matches("[ { '$match': { 'operationType': { '$in': [ 'insert', 'update' ] } } } ]", DELETE));
+        assertTrue(matches("[ { '$match': { 'operationType': { '$nin': [ 'insert', 'update' ] } } } ]", DELETE));
+        assertTrue(matches("[ { '$match': { 'fullDocument.n': { '$gt': 4, '$lte': 5 } } } ]", INSERT));
+        assertFalse(matches("[ { '$match': { 'fullDocument.n': { '$gt': 5 } } } ]", INSERT));
+        // no comparison between different types
+        assertFalse(matches("[ { '$match': { 'fullDocument.n': { '$gt': 'a' } } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { 'fullDocument': { '$exists': false } } } ]", DELETE));
+        assertTrue(matches("[ { '$match': { 'fullDocument.n': { '$not': { '$gt': 5 } } } } ]", INSERT));
+    }
+
+    @Test
+    public void testLogicalOperatorsAndStages() {
+        assertTrue(matches("[ { '$match': { '$or': [ { 'operationType': 'delete' }, { 'fullDocument.tenant': 'a' } ] } } ]", INSERT));
+        assertTrue(matches("[ { '$match': { '$or': [ { 'operationType': 'delete' }, { 'fullDocument.tenant': 'a' } ] } } ]", DELETE));
+        assertFalse(matches("[ { '$match': { '$nor': [ { 'operationType': 'delete' } ] } } ]", DELETE));
+        assertFalse(matches("[ { '$match': { 'operationType': 'insert' } }, { '$match': { 'fullDocument.tenant': 'b' } } ]", INSERT));
+    }
+
+    @Test
+    public void testNotEvaluable() {
+        assertTrue(ChangeStreamMatcher.of(stages("[ { '$project': { 'fullDocument': 1 } } ]")).isEmpty());
+        assertTrue(ChangeStreamMatcher.of(stages("[ { '$match': { '$expr': { '$eq': [ 1, 1 ] } } } ]")).isEmpty());
+        assertTrue(ChangeStreamMatcher.of(stages("[ { '$match': { 'fullDocument.tenant': { '$regex': '^a' } } } ]")).isEmpty());
+        assertTrue(ChangeStreamMatcher.of(stages("[ { '$match': { 'fullDocument.tags': [ 'x', 'y' ] } } ]")).isEmpty());
+    }
+}
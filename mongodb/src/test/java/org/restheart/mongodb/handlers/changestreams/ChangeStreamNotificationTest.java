@@ -0,0 +1,59 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamNotificationTest {
+    @Test
+    public void testSharedMessage() {
+        var json = "{\"operationType\":\"insert\",\"fullDocument\":{\"name\":\"àèìòù\"}}";
+        var n = new ChangeStreamNotification(json, null);
+
+        var first = n.getMessage();
+        var second = n.getMessage();
+
+        // each view has its own position
+        first.position(first.limit());
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, second.remaining());
+        assertEquals(json, n.getNotificationMessage());
+
+        n.release();
+    }
+
+    @Test
+    public void testBigMessage() {
+        var json = "\"" + "a".repeat(64 * 1024) + "\"";
+        var n = new ChangeStreamNotification(json, null);
+
+        assertEquals(json, n.getNotificationMessage());
+        n.retain().release();
+        n.release();
+    }
+}
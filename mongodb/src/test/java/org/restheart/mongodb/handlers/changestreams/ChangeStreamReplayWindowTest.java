@@ -0,0 +1,77 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamReplayWindowTest {
+    private static BsonDocument event(int n) {
+        return new BsonDocument("_id", new BsonDocument("_data", new BsonString("t" + n))).append("n", new BsonInt32(n));
+    }
+
+    @Test
+    public void testAfter() {
+        var window = new ChangeStreamReplayWindow(3);
+
+        for (int n = 0; n < 5; n++) {
+            window.add(ChangeStreamSubscriber.token(event(n)), event(n));
+        }
+
+        // t0 and t1 were evicted
+        assertNull(window.after("t0"));
+        assertNull(window.after("t1"));
+        assertNull(window.after("unknown"));
+        assertNull(window.after(null));
+
+        var missed = window.after("t2");
+        assertEquals(2, missed.size());
+        assertEquals(3, missed.get(0).getInt32("n").getValue());
+        assertEquals(4, missed.get(1).getInt32("n").getValue());
+
+        assertTrue(window.after("t4").isEmpty());
+    }
+
+    @Test
+    public void testDisabled() {
+        var window = new ChangeStreamReplayWindow(0);
+        window.add("t0", event(0));
+
+        assertNull(window.after("t0"));
+    }
+
+    @Test
+    public void testNotificationResumeToken() {
+        var doc = ChangeStreamSubscriber.getDocument(event(7).append("operationType", new BsonString("insert")));
+
+        assertEquals("t7", doc.getString("resumeToken").getValue());
+    }
+}
@@ -0,0 +1,285 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.mongodb.reactivestreams.client.ChangeStreamPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.json.JsonMode;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.restheart.mongodb.RHMongoClients;
+import org.xnio.OptionMap;
+import org.xnio.Xnio;
+import org.xnio.XnioWorker;
+import org.xnio.streams.ChannelInputStream;
+
+/**
+ * Tests the server-sent events transport over an XNIO pipe, whose sink
+ * stands for the response channel.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamServerSentEventsSessionTest {
+    private static final String EOF = "<eof>";
+
+    private static XnioWorker worker;
+
+    @BeforeClass
+    public static void startWorker() throws IOException {
+        worker = Xnio.getInstance().createWorker(OptionMap.EMPTY);
+    }
+
+    @AfterClass
+    public static void stopWorker() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * reads the events written by a session to the pipe
+     */
+    private static class Client {
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private final ChangeStreamServerSentEventsSession session;
+
+        Client(SessionKey key, int keepAliveInterval) throws IOException {
+            var pipe = worker.createHalfDuplexPipe();
+            this.session = new ChangeStreamServerSentEventsSession(pipe.getRightSide(), key, keepAliveInterval);
+
+            var reader = new BufferedReader(new InputStreamReader(new ChannelInputStream(pipe.getLeftSide()), StandardCharsets.UTF_8));
+
+            var thread = new Thread(() -> {
+                try {
+                    for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                        lines.add(line);
+                    }
+
+                    lines.add(EOF);
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            });
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * @param comments false to skip the keep-alive comments
+         * @return the lines of the next event, or EOF when the stream ends
+         */
+        List<String> next(boolean comments) throws InterruptedException {
+            var ret = new ArrayList<String>();
+
+            while (true) {
+                var line = lines.poll(5, TimeUnit.SECONDS);
+                assertNotNull("no event received", line);
+
+                if (line.equals(EOF)) {
+                    return List.of(EOF);
+                } else if (!line.isEmpty()) {
+                    ret.add(line);
+                } else if (comments || !ret.equals(List.of(":"))) {
+                    return ret;
+                } else {
+                    ret.clear();
+                }
+            }
+        }
+    }
+
+    private static SessionKey key(String name) {
+        return new SessionKey("%2F" + name, null, JsonMode.RELAXED);
+    }
+
+    private static void send(ChangeStreamSession session, String message, String resumeToken) {
+        var notification = new ChangeStreamNotification(message, null, resumeToken);
+        session.send(notification);
+        notification.release();
+    }
+
+    private static BsonDocument event(int n) {
+        return new BsonDocument("_id", new BsonDocument("_data", new BsonString("t" + n)))
+            .append("operationType", new BsonString("insert"))
+            .append("documentKey", new BsonDocument("_id", new BsonInt32(n)));
+    }
+
+    @Test
+    public void testFraming() throws Exception {
+        var client = new Client(key("framing"), 0);
+
+        send(client.session, "{\"a\":1}", "t1");
+        send(client.session, "{\"b\":2}", null);
+
+        assertEquals(List.of("id: t1", "data: {\"a\":1}"), client.next(false));
+        // without the resume token, the event has no id
+        assertEquals(List.of("data: {\"b\":2}"), client.next(false));
+
+        client.session.close();
+        assertEquals(List.of(EOF), client.next(false));
+    }
+
+    @Test
+    public void testResumeToken() {
+        var exchange = new HttpServerExchange();
+        assertNull(GetChangeStreamHandler.getResumeToken(exchange));
+
+        // sent by EventSource when it reconnects
+        exchange.getRequestHeaders().put(HttpString.tryFromString("Last-Event-ID"), " t1 ");
+        assertEquals("t1", GetChangeStreamHandler.getResumeToken(exchange));
+
+        // the query parameter takes precedence
+        exchange.addQueryParam("resumeToken", "t2");
+        assertEquals("t2", GetChangeStreamHandler.getResumeToken(exchange));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResumeFromLastEventId() throws Exception {
+        var key = key("resume");
+        var upstream = new CompletableFuture<ChangeStreamSubscriber>();
+
+        // the MongoDB change stream is fed by the test
+        var mclient = mock(MongoClient.class);
+        var db = mock(MongoDatabase.class);
+        var coll = mock(MongoCollection.class);
+        var changeStream = mock(ChangeStreamPublisher.class);
+        when(mclient.getDatabase("db")).thenReturn(db);
+        when(db.getCollection("coll")).thenReturn(coll);
+        when(coll.watch(anyList())).thenReturn(changeStream);
+        when(changeStream.fullDocument(any())).thenReturn(changeStream);
+        doReturn((Publisher<BsonDocument>) s -> upstream.complete((ChangeStreamSubscriber) s)).when(changeStream).withDocumentClass(BsonDocument.class);
+
+        RHMongoClients.setClients(null, mclient);
+
+        try {
+            ChangeStreamMultiplexer.getInstance().subscribe(key, "db", "coll", List.of());
+            var subscriber = upstream.get(5, TimeUnit.SECONDS);
+            subscriber.onSubscribe(mock(Subscription.class));
+
+            // the client received t1, then the connection dropped
+            subscriber.onNext(event(1));
+            subscriber.onNext(event(2));
+
+            // EventSource reconnects sending the id of the last event received
+            var client = new Client(key, 0);
+            ChangeStreamMultiplexer.getInstance().connect(key, client.session, "t1");
+
+            var missed = client.next(false);
+            assertEquals("id: t2", missed.get(0));
+            assertTrue(missed.get(1), missed.get(1).startsWith("data: {"));
+
+            subscriber.onNext(event(3));
+            assertEquals("id: t3", client.next(false).get(0));
+
+            client.session.close();
+            assertEquals(List.of(EOF), client.next(false));
+        } finally {
+            ChangeStreamMultiplexer.getInstance().unsubscribe(key);
+            RHMongoClients.setClients(null, null);
+        }
+    }
+
+    @Test
+    public void testKeepAliveCancelledOnClose() throws Exception {
+        var client = new Client(key("keepalive"), 1);
+        var session = client.session;
+
+        assertEquals(List.of(":"), client.next(true));
+
+        session.close();
+        assertEquals(List.of(EOF), client.next(true));
+
+        // closeChannel() runs on the io thread, before the check
+        var scheduled = new CompletableFuture<Boolean>();
+        session.getIoThread().execute(() -> scheduled.complete(session.keepAlive != null));
+        assertFalse(scheduled.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testKeepAliveNotInterleaved() throws Exception {
+        var client = new Client(key("interleaved"), 1);
+
+        // bursts of notifications that fill the pipe, and pauses
+        var pad = "x".repeat(2_000);
+        var sent = 0;
+        var start = System.currentTimeMillis();
+
+        while (System.currentTimeMillis() - start < 3_000) {
+            send(client.session, "m" + sent + pad, "t" + sent);
+
+            if (++sent % 200 == 0) {
+                Thread.sleep(300);
+            }
+        }
+
+        // idle, for a keep-alive to be sent
+        Thread.sleep(1_500);
+        client.session.close();
+
+        var received = 0;
+        var keepAlives = 0;
+
+        for (var event = client.next(true); !event.equals(List.of(EOF)); event = client.next(true)) {
+            if (event.equals(List.of(":"))) {
+                keepAlives++;
+            } else {
+                assertEquals(List.of("id: t" + received, "data: m" + received + pad), event);
+                received++;
+            }
+        }
+
+        assertEquals(sent, received);
+        assertTrue(keepAlives > 0);
+    }
+}
@@ -0,0 +1,212 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.json.JsonMode;
+import org.junit.Test;
+import org.restheart.mongodb.MongoServiceConfiguration.CHANGE_STREAMS_OVERFLOW_POLICY;
+import org.restheart.mongodb.handlers.metrics.SharedMongoMetricRegistryProxy;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamSessionTest {
+    private static final int QUEUE_SIZE = 3;
+
+    /**
+     * a notification that counts its releases
+     */
+    private static class TestNotification extends ChangeStreamNotification {
+        private int released = 0;
+
+        TestNotification(String token, int id) {
+            super("{}", new BsonDocument("_id", new BsonInt32(id)), token);
+        }
+
+        @Override
+        public void release() {
+            this.released++;
+            super.release();
+        }
+    }
+
+    /**
+     * a session whose writes never complete, so that the notifications are queued
+     */
+    private static class TestSession extends ChangeStreamSession {
+        private final List<String> written = new ArrayList<>();
+        private boolean channelClosed = false;
+
+        TestSession(CHANGE_STREAMS_OVERFLOW_POLICY policy) {
+            super(new SessionKey("/db/coll/_streams/test", new BsonDocument(), JsonMode.RELAXED), QUEUE_SIZE, policy);
+        }
+
+        @Override
+        protected void write(ChangeStreamNotification notification) {
+            written.add(notification.getResumeToken());
+        }
+
+        @Override
+        protected Executor getIoThread() {
+            return Runnable::run;
+        }
+
+        @Override
+        protected void closeChannel() {
+            channelClosed = true;
+        }
+    }
+
+    private static long count(String counter) {
+        return new SharedMongoMetricRegistryProxy().registry().counter(counter).getCount();
+    }
+
+    /**
+     * sends the notifications as the subscriber does, releasing its own reference
+     */
+    private static List<TestNotification> send(ChangeStreamSession session, int... ids) {
+        var ret = new ArrayList<TestNotification>();
+
+        for (var id : ids) {
+            var n = new TestNotification("t" + id, id);
+            session.send(n);
+            n.release();
+            ret.add(n);
+        }
+
+        return ret;
+    }
+
+    @Test
+    public void testDisconnect() {
+        var disconnected = count("change-streams.send-queue.disconnected");
+        var session = new TestSession(CHANGE_STREAMS_OVERFLOW_POLICY.DISCONNECT);
+
+        // the first one is being written, the others fill the queue
+        var sent = send(session, 0, 1, 2, 3);
+        assertEquals(QUEUE_SIZE, session.queued());
+        assertFalse(session.channelClosed);
+
+        var overflow = send(session, 4).get(0);
+
+        assertTrue(session.channelClosed);
+        assertEquals(disconnected + 1, count("change-streams.send-queue.disconnected"));
+        assertEquals(0, session.queued());
+        assertEquals(List.of("t0"), session.written);
+
+        // the queued notifications and the one that overflowed are released
+        sent.subList(1, sent.size()).forEach(n -> assertEquals(2, n.released));
+        assertEquals(2, overflow.released);
+
+        // the session is closed, further notifications are ignored
+        send(session, 5);
+        assertEquals(0, session.queued());
+    }
+
+    @Test
+    public void testCoalesce() {
+        var dropped = count("change-streams.send-queue.dropped");
+        var session = new TestSession(CHANGE_STREAMS_OVERFLOW_POLICY.COALESCE);
+
+        var sent = send(session, 0, 1, 2, 3);
+        assertEquals(QUEUE_SIZE, session.queued());
+
+        // a change of document 2 replaces the queued one
+        send(session, 2);
+
+        assertEquals(QUEUE_SIZE, session.queued());
+        assertEquals(dropped + 1, count("change-streams.send-queue.dropped"));
+        assertEquals(2, sent.get(2).released);
+        assertEquals(1, sent.get(1).released);
+        assertEquals(1, sent.get(3).released);
+
+        // a change of another document drops the oldest
+        send(session, 9);
+
+        assertEquals(QUEUE_SIZE, session.queued());
+        assertEquals(dropped + 2, count("change-streams.send-queue.dropped"));
+        assertEquals(2, sent.get(1).released);
+        assertEquals(1, sent.get(3).released);
+
+        // the replaced notification is not released again when the session is closed
+        session.closeQuietly();
+        assertEquals(2, sent.get(2).released);
+        assertEquals(2, sent.get(3).released);
+    }
+
+    @Test
+    public void testDropOldest() {
+        var dropped = count("change-streams.send-queue.dropped");
+        var session = new TestSession(CHANGE_STREAMS_OVERFLOW_POLICY.DROP_OLDEST);
+
+        var sent = send(session, 0, 1, 2, 3);
+        var last = send(session, 4).get(0);
+
+        assertEquals(QUEUE_SIZE, session.queued());
+        assertFalse(session.channelClosed);
+        assertEquals(dropped + 1, count("change-streams.send-queue.dropped"));
+
+        // the oldest queued one is dropped and released
+        assertEquals(2, sent.get(1).released);
+        assertEquals(1, sent.get(2).released);
+        assertEquals(1, sent.get(3).released);
+        assertEquals(1, last.released);
+
+        // the written one is released when sent, then the queue is drained in order
+        session.sent(sent.get(0));
+        assertEquals(List.of("t0", "t2"), session.written);
+        assertEquals(2, sent.get(0).released);
+    }
+
+    @Test
+    public void testHoldSending() {
+        var session = new TestSession(CHANGE_STREAMS_OVERFLOW_POLICY.DISCONNECT);
+
+        // e.g. a keep-alive is being written
+        assertTrue(session.holdSending());
+        assertFalse(session.holdSending());
+
+        // the notification waits for the transport to resume sending
+        var sent = send(session, 1);
+        assertEquals(1, session.queued());
+        assertTrue(session.written.isEmpty());
+
+        session.resumeSending();
+        assertEquals(List.of("t1"), session.written);
+
+        // a notification is being written
+        assertFalse(session.holdSending());
+
+        session.sent(sent.get(0));
+        assertTrue(session.holdSending());
+    }
+}
@@ -0,0 +1,137 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.changestreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.json.JsonMode;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamSubscriberTest {
+    private static BsonDocument event(int n) {
+        return new BsonDocument("_id", new BsonDocument("_data", new BsonString("t" + n)))
+            .append("operationType", new BsonString("insert"))
+            .append("documentKey", new BsonDocument("_id", new BsonInt32(n)));
+    }
+
+    /**
+     * a session that records the resume tokens of the notifications it receives
+     */
+    private static class TestSession extends ChangeStreamSession {
+        private final List<String> received = new ArrayList<>();
+
+        TestSession(SessionKey sessionKey) {
+            super(sessionKey);
+        }
+
+        @Override
+        protected void write(ChangeStreamNotification notification) {
+            received.add(notification.getResumeToken());
+            sent(notification);
+        }
+
+        @Override
+        protected Executor getIoThread() {
+            return Runnable::run;
+        }
+
+        @Override
+        protected void closeChannel() {
+        }
+    }
+
+    private long clock = 0;
+
+    private final ChangeStreamSubscriber subscriber = new ChangeStreamSubscriber(new ChangeStreamMultiplexer.UpstreamKey("db", "coll", List.of())) {
+        @Override
+        long now() {
+            return clock;
+        }
+    };
+
+    @Test
+    public void testReconnectWithResumeToken() throws IOException {
+        var sk = new SessionKey("/db/coll/_streams/reconnect", new BsonDocument(), JsonMode.RELAXED);
+        subscriber.add(sk, ChangeStreamMatcher.of(List.of()).get());
+
+        clock = 1_000;
+        var first = new TestSession(sk);
+        subscriber.connect(sk, first, null);
+        assertTrue(subscriber.dispatch(event(1)).isEmpty());
+        assertEquals(List.of("t1"), first.received);
+
+        // the client disconnects long after subscribing
+        clock = 60_000;
+        first.close();
+
+        // the grace period starts when the stream is found without sessions
+        clock = 61_000;
+        assertTrue(subscriber.dispatch(event(2)).isEmpty());
+
+        // the client reconnects with the resume token of the last event it received
+        clock = 62_000;
+        var second = new TestSession(sk);
+        subscriber.connect(sk, second, "t1");
+        assertEquals(List.of("t2"), second.received);
+
+        assertTrue(subscriber.dispatch(event(3)).isEmpty());
+        assertEquals(List.of("t2", "t3"), second.received);
+
+        second.close();
+    }
+
+    @Test
+    public void testUnwatchedAfterGracePeriod() throws IOException {
+        var sk = new SessionKey("/db/coll/_streams/unwatched", new BsonDocument(), JsonMode.RELAXED);
+        subscriber.add(sk, ChangeStreamMatcher.of(List.of()).get());
+
+        // not yet connected, within the grace period
+        clock = 5_000;
+        assertTrue(subscriber.dispatch(event(1)).isEmpty());
+
+        var session = new TestSession(sk);
+        subscriber.connect(sk, session, null);
+
+        clock = 100_000;
+        session.close();
+        assertTrue(subscriber.dispatch(event(2)).isEmpty());
+
+        clock = 105_000;
+        assertTrue(subscriber.dispatch(event(3)).isEmpty());
+
+        // no session reconnected within the grace period
+        clock = 111_000;
+        assertEquals(List.of(sk), subscriber.dispatch(event(4)));
+    }
+}
@@ -0,0 +1,46 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2022 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class GetCollectionHandlerTest {
+    @Test
+    public void testDigest() {
+        var digest = GetCollectionHandler.digest("page=1", "{}", "admin");
+
+        assertEquals(32, digest.length());
+        assertEquals(digest, GetCollectionHandler.digest("page=1", "{}", "admin"));
+
+        assertNotEquals(digest, GetCollectionHandler.digest("page=1", "{}", "user"));
+        // the values are not simply concatenated
+        assertNotEquals(GetCollectionHandler.digest("ab", "c", null), GetCollectionHandler.digest("a", "bc", null));
+        assertNotEquals(GetCollectionHandler.digest("a", "b", null), GetCollectionHandler.digest("a", "b", "null"));
+        assertNotEquals(GetCollectionHandler.digest("a", "b", null), GetCollectionHandler.digest("a", "b", ""));
+    }
+}
@@ -20,11 +20,14 @@
  */
 package org.restheart.polyglot;
 
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
-import com.google.common.collect.Maps;
 import com.mongodb.client.MongoClient;
 
 import org.graalvm.polyglot.Context;
@@ -161,57 +164,71 @@ public abstract class AbstractJSPlugin {
         ctx.getBindings("js").putMember("pluginArgs", args);
     }
 
-    // cache Context and handles for performace
-    // each working thread is associates with one context and one handle
-    // because js Context does not allow multithreaded access
-    protected Map<String, Context> ctxs = Maps.newHashMap();
-    protected Map<String, Value> handles = Maps.newHashMap();
+    // cache Contexts and handles for performace
+    // js Context does not allow multithreaded access, so each execution
+    // borrows an idle Context and gives it back when done. The number of
+    // Contexts is bounded by the peak number of concurrent executions
+    // rather than by the number of threads, that with virtual threads
+    // is not bounded at all and whose names are not unique.
+    private final Deque<Context> idleCtxs = new ConcurrentLinkedDeque<>();
+
+    // all the Contexts, for cleaning
+    protected final Set<Context> ctxs = ConcurrentHashMap.newKeySet();
+
+    // the handle Value of each Context
+    private final Map<Context, Value> handles = new ConcurrentHashMap<>();
 
     /**
      *
-     * @return the Context associated with this thread. If not existing, it instanitates it.
+     * @return an idle Context. If none is available, it instanitates a new one.
+     * The Context must be given back with releaseCtx()
      */
-    protected Context ctx() {
-        var workingThreadName = Thread.currentThread().getName();
-
-        if (this.ctxs.get(workingThreadName) == null) {
-            var ctx = context(engine, contextOptions);
-            this.ctxs.put(workingThreadName, ctx);
+    protected Context borrowCtx() {
+        // LIFO, so that the most recently used Contexts are kept warm
+        var ctx = this.idleCtxs.pollFirst();
+        return ctx != null ? ctx : newCtx();
+    }
 
-            addBindings(ctx, this.name, this.conf, LOGGER, this.mclient);
-        }
+    /**
+     *
+     * @param ctx the Context to give back
+     */
+    protected void releaseCtx(Context ctx) {
+        this.idleCtxs.offerFirst(ctx);
+    }
 
-        return this.ctxs.get(workingThreadName);
+    /**
+     *
+     * @return a new Context
+     */
+    protected Context newCtx() {
+        var ctx = context(engine, contextOptions);
+        addBindings(ctx, this.name, this.conf, LOGGER, this.mclient);
+        this.ctxs.add(ctx);
+        return ctx;
     }
 
     /**
      *
-     * @return the handle Value associated with this thread. If not existing, it instanitates it.
+     * @param ctx a borrowed Context
+     * @return the handle Value of the Context. If not existing, it instanitates it.
      */
-    protected Value _handle() {
-        var workingThreadName = Thread.currentThread().getName();
-
-        if (this.handles.containsKey(workingThreadName)) {
-            return this.handles.get(workingThreadName);
-        } else {
-            var handle = ctx().eval(this.handleSource);
-            this.handles.put(workingThreadName, handle);
-            return handle;
-        }
+    protected Value _handle(Context ctx) {
+        return this.handles.computeIfAbsent(ctx, c -> c.eval(this.handleSource));
     }
 
     // for cleaning
     protected static class State implements Runnable {
-        private Map<String, Context> ctxs;
+        private Set<Context> ctxs;
 
-        State(Map<String, Context> ctxs) {
+        State(Set<Context> ctxs) {
             // initialize State needed for cleaning action
             this.ctxs = ctxs;
         }
 
         public void run() {
             if (this.ctxs != null) {
-                this.ctxs.entrySet().stream().map(e -> e.getValue())
+                this.ctxs.stream()
                 .filter(ctx -> ctx != null)
                 .forEach(ctx -> {
                     try {
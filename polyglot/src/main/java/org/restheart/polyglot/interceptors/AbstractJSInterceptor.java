@@ -22,10 +22,11 @@ package org.restheart.polyglot.interceptors;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.google.common.collect.Maps;
 import com.mongodb.client.MongoClient;
 
+import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 import org.restheart.configuration.Configuration;
@@ -71,38 +72,43 @@ public class AbstractJSInterceptor<R extends Request<?>, S extends Response<?>>
      *
      */
     public void handle(R request, S response) {
-        _handle().executeVoid(request, response);
+        var ctx = borrowCtx();
+
+        try {
+            _handle(ctx).executeVoid(request, response);
+        } finally {
+            releaseCtx(ctx);
+        }
     }
 
     @Override
     public boolean resolve(R request, S response) {
-        var ret = resolve().execute(request);
+        var ctx = borrowCtx();
+
+        // the returned Value must be read before giving back the Context
+        try {
+            var ret = _resolve(ctx).execute(request);
 
-        if (ret.isBoolean()) {
-            return ret.asBoolean();
-        } else {
-            LOGGER.error("resolve() of interceptor did not returned a boolean", name);
-            return false;
+            if (ret.isBoolean()) {
+                return ret.asBoolean();
+            } else {
+                LOGGER.error("resolve() of interceptor did not returned a boolean", name);
+                return false;
+            }
+        } finally {
+            releaseCtx(ctx);
         }
     }
 
-    // each working thread is associates with one resolve
-    // because js Context does not allow multithreaded access
-    protected Map<String, Value> resolves = Maps.newHashMap();
+    // the resolve Value of each Context
+    private final Map<Context, Value> resolves = new ConcurrentHashMap<>();
 
     /**
      *
-     * @return the resolve Value associated with this thread. If not existing, it instanitates it.
+     * @param ctx a borrowed Context
+     * @return the resolve Value of the Context. If not existing, it instanitates it.
      */
-    private Value resolve() {
-        var workingThreadName = Thread.currentThread().getName();
-
-        if (this.resolves.containsKey(workingThreadName)) {
-            return this.resolves.get(workingThreadName);
-        } else {
-            var resolve = ctx().eval(this.resolveSource);
-            this.resolves.put(workingThreadName, resolve);
-            return resolve;
-        }
+    private Value _resolve(Context ctx) {
+        return this.resolves.computeIfAbsent(ctx, c -> c.eval(this.resolveSource));
     }
 }
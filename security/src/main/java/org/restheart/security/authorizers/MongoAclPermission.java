@@ -27,7 +27,7 @@ import java.util.stream.StreamSupport;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.restheart.configuration.ConfigurationException;
-import org.restheart.security.AclVarsInterpolator;
+import org.restheart.security.AclPredicate;
 import org.restheart.security.BaseAclPermission;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,7 +48,7 @@ public class MongoAclPermission extends BaseAclPermission {
     private final BsonValue _id;
 
     MongoAclPermission(BsonValue _id, String requestPredicate, Set<String> roles, int priority, BsonDocument raw) throws ConfigurationException {
-        super(req -> AclVarsInterpolator.interpolatePredicate(req, requestPredicate, MongoAclPermission.class.getClassLoader()).resolve(req.getExchange()), roles, priority, raw);
+        super(new AclPredicate(requestPredicate, MongoAclPermission.class.getClassLoader()), roles, priority, raw);
         this._id = _id;
     }
 